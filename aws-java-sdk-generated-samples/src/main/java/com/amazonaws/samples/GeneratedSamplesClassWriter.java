@@ -16,10 +16,9 @@ package com.amazonaws.samples;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
 
 import com.amazonaws.samples.exception.SampleGenerationException;
+import com.amazonaws.util.OutputFiles;
 
 /**
  * Utility to write contents of a generated samples class to disk.
@@ -27,7 +26,9 @@ import com.amazonaws.samples.exception.SampleGenerationException;
 public class GeneratedSamplesClassWriter {
 
     /**
-     * Writes the contents of a generated samples class to disk.
+     * Writes the contents of a generated samples class to disk, unless the
+     * class file already has those contents, so that an unchanged class is
+     * not recompiled.
      *
      * @param outputDirLocation
      *            directory to write to
@@ -48,7 +49,7 @@ public class GeneratedSamplesClassWriter {
 
         try {
             String filename = String.format("%sGeneratedSamples.java", serviceName.replaceAll("\\s+", ""));
-            Files.write(Paths.get(outputDirLocation + filename), samples.getBytes());
+            OutputFiles.writeIfChanged(new File(outputDirLocation + filename), samples.getBytes());
         } catch (IOException e) {
             throw new SampleGenerationException("Failed to write sample class", e);
         }
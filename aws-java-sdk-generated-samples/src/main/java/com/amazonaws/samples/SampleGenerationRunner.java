@@ -14,7 +14,29 @@
  */
 package com.amazonaws.samples;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
 import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugins.annotations.Component;
 import org.apache.maven.plugins.annotations.Mojo;
@@ -26,17 +48,27 @@ import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.project.MavenProject;
 
 import com.amazonaws.codegen.model.intermediate.IntermediateModel;
+import com.amazonaws.codesamples.CodeSample;
+import com.amazonaws.codesamples.RenderedSampleBundleWriter;
+import com.amazonaws.codesamples.SampleIndexWriter;
+import com.amazonaws.codesamples.SampleKeyFilterWriter;
+import com.amazonaws.codesamples.SamplesWriter;
+import com.amazonaws.samples.util.FormattedSnippetCache;
 import com.amazonaws.samples.util.IntermediateModelRetriever;
 
 import static org.twdata.maven.mojoexecutor.MojoExecutor.*;
 
 /**
  * Mojo to generate samples classes for JSON snippet samples retrieved from
- * dependencies on the classpath.
+ * dependencies on the classpath, and to extract the samples XML files and
+ * indexes from them with the ExtractSamples goal. The generated samples can
+ * instead be extracted in process, without writing the samples classes.
  */
 @Mojo(name = "GenerateSamples")
 public class SampleGenerationRunner extends AbstractMojo {
 
+    private static final String SAMPLE_SUB_DIR = "/samples";
+
     @Component
     private MavenProject mavenProject;
 
@@ -49,17 +81,111 @@ public class SampleGenerationRunner extends AbstractMojo {
     @Parameter(defaultValue = "${project.build.sourceDirectory}")
     private String projectSourceDir;
 
+    @Parameter(defaultValue = "${project.build.outputDirectory}")
+    private String projectOutputDir;
+
+    @Parameter(defaultValue = "${project.build.directory}")
+    private String projectBuildDir;
+
+    /**
+     * Whether to hand generated samples straight to the sample writers
+     * instead of writing samples classes and running the ExtractSamples goal
+     * over them. The samples are parsed from the source the samples classes
+     * would have, so both ways write the same samples. Only samples generated
+     * here are written, while the ExtractSamples goal also extracts the
+     * samples of any other source in the project.
+     */
+    @Parameter(property = "extractInProcess", defaultValue = "false")
+    private boolean extractInProcess;
+
+    /**
+     * Whether to write a binary sample index next to each service XML file.
+     * Passed on to the ExtractSamples goal, and honored the same way when
+     * extracting in process.
+     */
+    @Parameter(property = "writeBinaryIndex", defaultValue = "true")
+    private boolean writeBinaryIndex;
+
+    /**
+     * Whether to write a Bloom filter of the keys of every sample. Passed on
+     * to the ExtractSamples goal, and honored the same way when extracting in
+     * process.
+     */
+    @Parameter(property = "writeKeyFilter", defaultValue = "true")
+    private boolean writeKeyFilter;
+
+    /**
+     * Whether to pre-render the HTML block of every sample into a rendered
+     * sample bundle next to each service XML file. Passed on to the
+     * ExtractSamples goal, and honored the same way when extracting in
+     * process.
+     */
+    @Parameter(property = "renderSamples", defaultValue = "false")
+    private boolean renderSamples;
+
+    /**
+     * Whether the ExtractSamples goal only reparses samples classes that
+     * changed since its previous run. Extracting in process always works
+     * from the models, like a full extraction; either way only outputs whose
+     * content changed are rewritten.
+     */
+    @Parameter(property = "incremental", defaultValue = "true")
+    private boolean incremental;
+
+    /**
+     * Whether to also write the generated samples classes when extracting in
+     * process. They are always written otherwise, since they are what the
+     * ExtractSamples goal reads.
+     */
+    @Parameter(property = "writeGeneratedSources", defaultValue = "false")
+    private boolean writeGeneratedSources;
+
+    /**
+     * Number of services to generate samples for concurrently. Zero or less
+     * uses one thread per available processor.
+     */
+    @Parameter(property = "generationThreads", defaultValue = "1")
+    private int generationThreads;
+
+    /**
+     * Whether to format the samples of each service concurrently, on top of
+     * generating services concurrently.
+     */
+    @Parameter(property = "parallelFormatting", defaultValue = "false")
+    private boolean parallelFormatting;
+
+    /**
+     * Whether to keep formatted samples in the build directory and reuse
+     * them for samples whose unformatted code and formatter settings did not
+     * change. After samples were generated for every service, formatted
+     * samples that were not used are deleted, so the cache only holds those
+     * of the current models.
+     */
+    @Parameter(property = "cacheFormattedSamples", defaultValue = "true")
+    private boolean cacheFormattedSamples;
+
+    /**
+     * Glob patterns, such as {@code s3-*}, selecting the intermediate models
+     * to generate samples for by file name. Empty selects every model.
+     * Unselected models are never read.
+     */
+    @Parameter(property = "includeServices")
+    private List<String> includeServices;
+
+    /**
+     * Glob patterns of intermediate model file names to leave out, applied
+     * after {@link #includeServices}.
+     */
+    @Parameter(property = "excludeServices")
+    private List<String> excludeServices;
+
     public void execute() throws MojoExecutionException, MojoFailureException {
-        try {
-            for (IntermediateModel model : IntermediateModelRetriever
-                .getDependencyIntermediateModels()) {
-                if (!model.getExamples().getOperationExamples().isEmpty()) {
-                    SamplesGenerator writer = new SamplesGenerator(model);
-                    GeneratedSamplesClassWriter.writeSamples(projectSourceDir + "/samples/",
-                                                             model
-                                                                 .getMetadata().getSyncInterface(), writer
-                                                                 .getGeneratedSamples());
-                }
+        try (Stream<IntermediateModel> models = IntermediateModelRetriever.streamDependencyIntermediateModels(
+                true, modelNameFilter())) {
+            Map<String, List<CodeSample>> serviceSamples = generateSamples(models);
+            if (extractInProcess) {
+                writeSamples(serviceSamples);
+                return;
             }
 
             executeMojo(
@@ -71,15 +197,202 @@ public class SampleGenerationRunner extends AbstractMojo {
                 goal("ExtractSamples"),
                 configuration(
                     element("sourceExtension", "java"),
-                    element("sampleSubDir", "/samples")
+                    element("sampleSubDir", SAMPLE_SUB_DIR),
+                    element("writeBinaryIndex", String.valueOf(writeBinaryIndex)),
+                    element("writeKeyFilter", String.valueOf(writeKeyFilter)),
+                    element("renderSamples", String.valueOf(renderSamples)),
+                    element("incremental", String.valueOf(incremental))
                 ),
                 executionEnvironment(
                     mavenProject,
                     mavenSession,
                     pluginManager));
 
-        } catch (IOException e) {
+        } catch (IOException | UncheckedIOException e) {
             throw new MojoFailureException("Failed to generate samples", e);
         }
     }
+
+    /**
+     * Writes the samples of every service with the sample extractor's
+     * writers, as the ExtractSamples goal would from the samples classes.
+     */
+    void writeSamples(final Map<String, List<CodeSample>> serviceSamples) throws MojoFailureException {
+        List<CodeSample> samples = new ArrayList<>();
+        serviceSamples.values().forEach(samples::addAll);
+
+        String samplesOutputDir = projectOutputDir + SAMPLE_SUB_DIR;
+        try {
+            SamplesWriter.writeSamples(samples, samplesOutputDir);
+            if (writeBinaryIndex) {
+                SampleIndexWriter.writeIndexes(samples, samplesOutputDir);
+            } else {
+                // readers prefer an index, so a stale one would hide new samples
+                SampleIndexWriter.deleteIndexes(samplesOutputDir);
+            }
+            if (renderSamples) {
+                RenderedSampleBundleWriter.writeBundles(samples, samplesOutputDir);
+            } else {
+                RenderedSampleBundleWriter.deleteBundles(samplesOutputDir);
+            }
+            if (writeKeyFilter) {
+                SampleKeyFilterWriter.writeFilter(samples, samplesOutputDir);
+            } else {
+                // a stale filter would reject samples added since
+                new File(samplesOutputDir, SampleKeyFilterWriter.FILTER_FILE).delete();
+            }
+        } catch (Exception e) {
+            throw new MojoFailureException("Failed to write samples", e);
+        }
+        getLog().info(String.format("Wrote %d samples of %d services to %s", samples.size(), serviceSamples.size(),
+                                    samplesOutputDir));
+    }
+
+    /**
+     * Generates the samples of every model with examples on a bounded
+     * executor, writing samples classes and keeping code samples as
+     * configured. The stream is only advanced once a thread is free, since
+     * advancing it may already materialize the next model, so at most one
+     * model per thread is held at a time. A
+     * failing service does not stop the others; all failures are reported
+     * once every service has been attempted. Samples left out because they
+     * could not be formatted are logged as warnings and counted in the
+     * summary.
+     *
+     * @return code samples by service when extracting in process, in the
+     *         order services were first seen; empty otherwise
+     */
+    Map<String, List<CodeSample>> generateSamples(final Stream<IntermediateModel> models)
+            throws MojoFailureException {
+        int threads = generationThreads > 0 ? generationThreads : Runtime.getRuntime().availableProcessors();
+        String outputDir = projectSourceDir + SAMPLE_SUB_DIR + "/";
+        boolean writeSources = !extractInProcess || writeGeneratedSources;
+        FormattedSnippetCache snippetCache = cacheFormattedSamples
+                ? new FormattedSnippetCache(new File(projectBuildDir, "sample-generation/formatted-samples"),
+                                            SamplesGenerator.getFormatterSettings())
+                : null;
+
+        Semaphore freeThreads = new Semaphore(threads);
+        AtomicInteger omittedSamples = new AtomicInteger();
+        List<Map.Entry<String, Future<List<CodeSample>>>> generations = new ArrayList<>();
+        Map<String, Future<List<CodeSample>>> latestGenerations = new HashMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            Iterator<IntermediateModel> iterator = models.iterator();
+            while (true) {
+                freeThreads.acquire();
+                if (!iterator.hasNext()) {
+                    freeThreads.release();
+                    break;
+                }
+                IntermediateModel model = iterator.next();
+                if (model.getExamples().getOperationExamples().isEmpty()) {
+                    freeThreads.release();
+                    continue;
+                }
+
+                // as in a serial run, a later model of a service overwrites
+                // the class generated from an earlier one
+                String serviceName = model.getMetadata().getSyncInterface();
+                Future<List<CodeSample>> previous = latestGenerations.get(serviceName);
+                if (previous != null) {
+                    awaitQuietly(previous);
+                }
+
+                Future<List<CodeSample>> generation = executor.submit(() -> {
+                    try {
+                        SamplesGenerator generator = new SamplesGenerator(model, snippetCache, parallelFormatting);
+                        if (writeSources) {
+                            GeneratedSamplesClassWriter.writeSamples(outputDir, serviceName,
+                                                                     generator.getGeneratedSamples());
+                        }
+                        List<CodeSample> samples = extractInProcess ? generator.getCodeSamples() : null;
+                        List<String> formattingFailures = generator.getFormattingFailures();
+                        formattingFailures.forEach(getLog()::warn);
+                        omittedSamples.addAndGet(formattingFailures.size());
+                        return samples;
+                    } finally {
+                        freeThreads.release();
+                    }
+                });
+                generations.add(new SimpleEntry<>(serviceName, generation));
+                latestGenerations.put(serviceName, generation);
+            }
+
+            // as in a serial run, the last model of a service determines its
+            // samples
+            Map<String, List<CodeSample>> serviceSamples = new LinkedHashMap<>();
+            List<String> failedServices = new ArrayList<>();
+            for (Map.Entry<String, Future<List<CodeSample>>> generation : generations) {
+                try {
+                    List<CodeSample> samples = generation.getValue().get();
+                    if (samples != null) {
+                        serviceSamples.put(generation.getKey(), samples);
+                    }
+                } catch (ExecutionException e) {
+                    failedServices.add(generation.getKey());
+                    getLog().error("Failed to generate samples for " + generation.getKey(), e.getCause());
+                }
+            }
+
+            getLog().info(String.format("Generated samples for %d of %d services using %d thread(s), omitting %d "
+                                        + "sample(s) that could not be formatted",
+                                        generations.size() - failedServices.size(), generations.size(), threads,
+                                        omittedSamples.get()));
+            if (!failedServices.isEmpty()) {
+                throw new MojoFailureException("Failed to generate samples for " + failedServices);
+            }
+            if (snippetCache != null && isEmpty(includeServices) && isEmpty(excludeServices)) {
+                try {
+                    getLog().debug(String.format("Pruned %d unused formatted samples", snippetCache.prune()));
+                } catch (IOException e) {
+                    getLog().warn("Failed to prune formatted samples", e);
+                }
+            }
+            return serviceSamples;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoFailureException("Interrupted while generating samples", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Builds the filter selecting model file names from the include and
+     * exclude globs.
+     */
+    Predicate<String> modelNameFilter() {
+        List<PathMatcher> includes = globMatchers(includeServices);
+        List<PathMatcher> excludes = globMatchers(excludeServices);
+        return modelName -> {
+            Path path = Paths.get(modelName);
+            return (includes.isEmpty() || includes.stream().anyMatch(matcher -> matcher.matches(path)))
+                   && excludes.stream().noneMatch(matcher -> matcher.matches(path));
+        };
+    }
+
+    private static boolean isEmpty(final List<String> globs) {
+        return globs == null || globs.isEmpty();
+    }
+
+    private static List<PathMatcher> globMatchers(final List<String> globs) {
+        List<PathMatcher> matchers = new ArrayList<>();
+        if (globs != null) {
+            for (String glob : globs) {
+                if (!glob.trim().isEmpty()) {
+                    matchers.add(FileSystems.getDefault().getPathMatcher("glob:" + glob.trim()));
+                }
+            }
+        }
+        return matchers;
+    }
+
+    private static void awaitQuietly(final Future<?> generation) throws InterruptedException {
+        try {
+            generation.get();
+        } catch (ExecutionException e) {
+            // reported with the other failures once all services are done
+        }
+    }
 }
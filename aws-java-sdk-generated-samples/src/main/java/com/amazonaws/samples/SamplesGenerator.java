@@ -14,11 +14,23 @@
  */
 package com.amazonaws.samples;
 
+import java.io.File;
+import java.io.StringReader;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.HashMap;
+import java.util.TreeMap;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.amazonaws.codesamples.CodeSample;
+import com.amazonaws.codesamples.SamplesParser;
 
 import com.amazonaws.codegen.model.intermediate.Example;
 import com.amazonaws.codegen.model.intermediate.IntermediateModel;
@@ -29,6 +41,7 @@ import com.amazonaws.codegen.model.intermediate.Metadata;
 import com.amazonaws.codegen.model.intermediate.OperationModel;
 import com.amazonaws.codegen.model.intermediate.ShapeModel;
 import com.amazonaws.samples.exception.SampleGenerationException;
+import com.amazonaws.samples.util.FormattedSnippetCache;
 import com.amazonaws.codegen.emitters.JavaCodeFormatter;
 import com.fasterxml.jackson.databind.JsonNode;
 import org.eclipse.jdt.core.formatter.DefaultCodeFormatterConstants;
@@ -36,13 +49,41 @@ import org.apache.commons.lang3.StringEscapeUtils;
 
 /**
  * Produces Java generated sample code from generic sample content included with
- * a service intermediate model.
+ * a service intermediate model, either as the source of a samples class or as
+ * {@link CodeSample}s ready to be written by the sample extractor.
  */
 public class SamplesGenerator {
 
+    /**
+     * Delimit the statements of a sample when they are formatted on their own.
+     */
+    private static final String CODE_START = "//CODE_START";
+    private static final String CODE_END = "//CODE_END";
+
+    /**
+     * Stands in for the statements of a sample, followed by its index, when
+     * the rest of the class is formatted.
+     */
+    private static final String CODE_PLACEHOLDER = "//CODE_PLACEHOLDER:";
+
+    private static final Map<String, Object> FORMATTER_OPTIONS = Collections.singletonMap(
+            DefaultCodeFormatterConstants.FORMATTER_COMMENT_FORMAT_LINE_COMMENT, false);
+
+    /**
+     * The JDT formatter is not thread safe; samples of a service may be
+     * formatted on several threads.
+     */
+    private static final ThreadLocal<JavaCodeFormatter> FORMATTERS = ThreadLocal.withInitial(
+            SamplesGenerator::newFormatter);
+
     private final IntermediateModel model;
     private final StringBuilder sb;
-    private final JavaCodeFormatter formatter;
+    private final FormattedSnippetCache snippetCache;
+    private final boolean parallelFormatting;
+    private final UnaryOperator<String> formatter;
+    private final List<EmittedSample> emittedSamples;
+    private String classHeader;
+    private List<List<String>> formattedSamples;
 
     /**
      * Ctor.
@@ -51,24 +92,245 @@ public class SamplesGenerator {
      *            service intermediate model containing generic samples
      */
     public SamplesGenerator(final IntermediateModel model) {
+        this(model, null, false);
+    }
+
+    /**
+     * Ctor.
+     *
+     * @param model
+     *            service intermediate model containing generic samples
+     * @param snippetCache
+     *            cache of formatted sample statements, or null to format
+     *            every sample
+     * @param parallelFormatting
+     *            whether to format the samples of the service concurrently
+     */
+    public SamplesGenerator(final IntermediateModel model, final FormattedSnippetCache snippetCache,
+                            final boolean parallelFormatting) {
+        this(model, snippetCache, parallelFormatting, source -> FORMATTERS.get().apply(source));
+    }
+
+    /**
+     * Ctor.
+     *
+     * @param model
+     *            service intermediate model containing generic samples
+     * @param snippetCache
+     *            cache of formatted sample statements, or null to format
+     *            every sample
+     * @param parallelFormatting
+     *            whether to format the samples of the service concurrently
+     * @param formatter
+     *            formats Java source; must be safe to call from several
+     *            threads when formatting in parallel
+     */
+    SamplesGenerator(final IntermediateModel model, final FormattedSnippetCache snippetCache,
+                     final boolean parallelFormatting, final UnaryOperator<String> formatter) {
         if (model == null) {
             throw new IllegalArgumentException("Intermediate model must be provided");
         }
 
         this.model = model;
         this.sb = new StringBuilder();
-
-        Map formatterOptions = new HashMap();
-        formatterOptions.put(DefaultCodeFormatterConstants.FORMATTER_COMMENT_FORMAT_LINE_COMMENT, false);
-        this.formatter = new JavaCodeFormatter(formatterOptions);
+        this.snippetCache = snippetCache;
+        this.parallelFormatting = parallelFormatting;
+        this.formatter = formatter;
+        this.emittedSamples = new ArrayList<>();
     }
 
     /**
-     * Produces Java generated samples content.
+     * Produces Java generated samples content. The statements of each sample
+     * are formatted on their own, at the depth they have in the class, and
+     * the rest of the class is formatted with placeholders for them, so the
+     * content is that of formatting the whole class at once. A sample that
+     * cannot be formatted is left out rather than failing the whole class,
+     * and reported by {@link #getFormattingFailures()}.
      *
      * @return generated samples content
      */
     public String getGeneratedSamples() {
+        List<List<String>> formatted = formatSamples();
+
+        StringBuilder skeleton = new StringBuilder(classHeader);
+        for (int i = 0; i < emittedSamples.size(); i++) {
+            if (formatted.get(i) != null) {
+                appendMethod(skeleton, emittedSamples.get(i), CODE_PLACEHOLDER + i + "\n");
+            }
+        }
+        skeleton.append("}\n");
+
+        StringBuilder source = new StringBuilder();
+        for (String line : format(skeleton.toString()).split("\\r?\\n")) {
+            String trimmed = line.trim();
+            List<String> lines = trimmed.startsWith(CODE_PLACEHOLDER)
+                    ? formatted.get(Integer.parseInt(trimmed.substring(CODE_PLACEHOLDER.length())))
+                    : Collections.singletonList(line);
+            for (String sourceLine : lines) {
+                source.append(sourceLine).append(String.format("%n"));
+            }
+        }
+        return source.toString();
+    }
+
+    /**
+     * Describes the samples left out of the generated samples because they
+     * could not be formatted, in the order of the samples class.
+     *
+     * @return one message per omitted sample; empty if every sample was
+     *         formatted
+     */
+    public List<String> getFormattingFailures() {
+        formatSamples();
+
+        List<String> failures = new ArrayList<>();
+        for (EmittedSample sample : emittedSamples) {
+            if (sample.formattingFailure != null) {
+                failures.add(String.format("Omitted sample '%s' for service '%s' because it could not be formatted: %s",
+                                           sample.id, model.getMetadata().getSyncInterface(),
+                                           sample.formattingFailure));
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * Produces the unformatted source of the samples class, which formatted
+     * as a whole gives the content of {@link #getGeneratedSamples()} when
+     * every sample can be formatted.
+     */
+    String getUnformattedSamples() {
+        emitClass();
+
+        StringBuilder source = new StringBuilder(classHeader);
+        for (EmittedSample sample : emittedSamples) {
+            appendMethod(source, sample, sample.code);
+        }
+        source.append("}\n");
+        return source.toString();
+    }
+
+    /**
+     * Returns a new formatter with the options samples are formatted with.
+     */
+    static JavaCodeFormatter newFormatter() {
+        return new JavaCodeFormatter(new HashMap<>(FORMATTER_OPTIONS));
+    }
+
+    /**
+     * Describes the formatter options and the formatter implementation, so
+     * that cached snippets are not reused once either changes.
+     */
+    static String getFormatterSettings() {
+        return String.format("%s %s %s", new TreeMap<>(FORMATTER_OPTIONS), codeLocation(JavaCodeFormatter.class),
+                             codeLocation(DefaultCodeFormatterConstants.class));
+    }
+
+    private static String codeLocation(final Class<?> type) {
+        CodeSource source = type.getProtectionDomain().getCodeSource();
+        return source == null || source.getLocation() == null ? type.getName() : source.getLocation().toString();
+    }
+
+    /**
+     * Produces the generated samples as code samples without writing the
+     * samples class, by parsing its source with the sample extractor's
+     * parser. The samples are therefore exactly those the ExtractSamples goal
+     * would extract from the written class, including its handling of
+     * missing titles and descriptions and of duplicate ids.
+     *
+     * @return generated code samples, in the order of the samples class
+     */
+    public List<CodeSample> getCodeSamples() {
+        String fileName = String.format("%sGeneratedSamples.java",
+                                        model.getMetadata().getSyncInterface().replaceAll("\\s+", ""));
+        try {
+            return SamplesParser.getSamples(new StringReader(getGeneratedSamples()), new File(fileName));
+        } catch (Exception e) {
+            throw new SampleGenerationException("Failed to extract generated samples from " + fileName, e);
+        }
+    }
+
+    /**
+     * Formats the statements of every emitted sample once, in emission
+     * order; a sample that cannot be formatted has a null entry.
+     */
+    private List<List<String>> formatSamples() {
+        if (formattedSamples == null) {
+            emitClass();
+            Stream<EmittedSample> samples = parallelFormatting ? emittedSamples.parallelStream()
+                                                               : emittedSamples.stream();
+            formattedSamples = samples.map(this::formatSample).collect(Collectors.toList());
+        }
+        return formattedSamples;
+    }
+
+    private List<String> formatSample(final EmittedSample sample) {
+        try {
+            return formatStatements(sample.code);
+        } catch (RuntimeException e) {
+            // each sample is formatted by a single thread, and the stream
+            // publishes the failure along with the results
+            sample.formattingFailure = e;
+            return null;
+        }
+    }
+
+    /**
+     * Formats statements by wrapping them in a method of their own, returning
+     * the formatted lines of its body, still indented as a method body.
+     */
+    private List<String> formatStatements(final String code) {
+        String source = String.format("class Sample {%nvoid sample() {%n%s%n%s%s%n}%n}%n", CODE_START, code, CODE_END);
+        String formatted = format(source);
+
+        List<String> lines = new ArrayList<>();
+        boolean inCode = false;
+        for (String line : formatted.split("\\r?\\n")) {
+            String trimmed = line.trim();
+            if (trimmed.equals(CODE_START)) {
+                inCode = true;
+            } else if (trimmed.equals(CODE_END)) {
+                return lines;
+            } else if (inCode) {
+                lines.add(line);
+            }
+        }
+        throw new SampleGenerationException("Formatter dropped the sample code markers");
+    }
+
+    /**
+     * Formats source with the formatter of the current thread, going through
+     * the snippet cache when there is one.
+     */
+    private String format(final String source) {
+        String formatted = snippetCache == null ? null : snippetCache.get(source);
+        if (formatted == null) {
+            formatted = formatter.apply(source);
+            if (snippetCache != null) {
+                snippetCache.put(source, formatted);
+            }
+        }
+        return formatted;
+    }
+
+    /**
+     * Appends an unformatted sample method around the given statements.
+     */
+    private static void appendMethod(final StringBuilder source, final EmittedSample sample, final String code) {
+        source.append(String.format("public void %s() {\n", sample.methodName));
+        source.append(String.format("//BEGIN_SAMPLE:%s\n", sample.sampleKey));
+        source.append(String.format("//TITLE:%s\n", sample.title));
+        source.append(String.format("//DESCRIPTION:%s\n", sample.description));
+        source.append(code);
+        source.append("//END_SAMPLE\n");
+        source.append("}\n");
+    }
+
+    private void emitClass() {
+        if (classHeader != null) {
+            return;
+        }
+
         String serviceName = model.getMetadata().getSyncInterface();
 
         String packageName = model.getMetadata().getPackageName();
@@ -80,12 +342,9 @@ public class SamplesGenerator {
         writeLine("import java.nio.*;\n");
         writeLine("import java.io.*;");
         writeLine(String.format("public class %sGeneratedSamples {", serviceName));
+        classHeader = sb.toString();
 
         model.getExamples().getOperationExamples().forEach((k, v) -> emitCode(serviceName, k, v));
-
-        writeLine("}");
-
-        return formatter.apply(sb.toString());
     }
 
     private void emitCode(final String serviceName, final String operationName, final List<Example> examples) {
@@ -113,16 +372,13 @@ public class SamplesGenerator {
                 continue;
             }
 
-            writeLine(String.format("public void %s_%s() {", operationName, i+1));
-            writeLine(String.format("//BEGIN_SAMPLE:%s.%s", serviceName, operationName));
-            writeLine("//TITLE:" + example.getTitle());
-
-            if (example.getDescription() != null && example.getDescription().isEmpty()) {
-                writeLine("//DESCRIPTION:" + operationName);
-            } else {
-                writeLine("//DESCRIPTION:" + example.getDescription());
+            String title = example.getTitle();
+            String description = example.getDescription();
+            if (description != null && description.isEmpty()) {
+                description = operationName;
             }
 
+            sb.setLength(0);
             writeLine(String.format("%s client = %sBuilder.standard().build();", metadata.getSyncInterface(), metadata.getSyncClient()));
             writeLine(String.format("%1$s request = new %1$s()", inputType));
 
@@ -135,8 +391,9 @@ public class SamplesGenerator {
             } else {
                 writeLine(String.format("client.%s(request);", operationMethodName));
             }
-            writeLine("//END_SAMPLE");
-            writeLine("}");
+            emittedSamples.add(new EmittedSample(operationName, String.format("%s_%s", operationName, i + 1),
+                                                 String.format("%s.%s", serviceName, operationName),
+                                                 asLineValue(title), asLineValue(description), sb.toString()));
         }
     }
 
@@ -252,6 +509,14 @@ public class SamplesGenerator {
         }
     }
 
+    /**
+     * Returns a value as it is written to a TITLE or DESCRIPTION comment: a
+     * missing value reads "null", and line breaks are dropped.
+     */
+    private static String asLineValue(final String value) {
+        return String.valueOf(value).replace("\n", "");
+    }
+
     private void writeLine(final String line) {
         sb.append(line.replace("\n", "") + "\n");
     }
@@ -260,4 +525,28 @@ public class SamplesGenerator {
         return str.substring(0, 1).toUpperCase() + str.substring(1);
     }
 
+    /**
+     * A sample of the samples class, with its unformatted statements.
+     */
+    private static final class EmittedSample {
+
+        private final String id;
+        private final String methodName;
+        private final String sampleKey;
+        private final String title;
+        private final String description;
+        private final String code;
+        private RuntimeException formattingFailure;
+
+        EmittedSample(final String id, final String methodName, final String sampleKey, final String title,
+                      final String description, final String code) {
+            this.id = id;
+            this.methodName = methodName;
+            this.sampleKey = sampleKey;
+            this.title = title;
+            this.description = description;
+            this.code = code;
+        }
+    }
+
 }
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2010-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.samples.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import com.amazonaws.util.OutputFiles;
+
+/**
+ * On-disk cache of formatted sample snippets, keyed by a hash of the
+ * formatter settings and the unformatted snippet. The unformatted snippet is
+ * generated from the example and the shapes it uses, so examples that did not
+ * change between builds are not formatted again, while a change of formatter
+ * or of its options misses every entry. Entries are written atomically, so
+ * the cache may be shared by concurrent generations; unreadable entries are
+ * treated as misses.
+ *
+ * The cache remembers the entries used since it was created, so that after a
+ * generation of every service the entries of samples that no longer exist, or
+ * that were formatted with other settings, can be pruned.
+ */
+public class FormattedSnippetCache {
+
+    /**
+     * Part of every key; change it when the way snippets are formatted
+     * changes in a way the formatter settings do not capture.
+     */
+    private static final String FORMAT_VERSION = "1";
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final Path cacheDir;
+    private final String formatterSettings;
+    private final Set<Path> usedEntries;
+
+    /**
+     * Ctor.
+     *
+     * @param cacheDir
+     *            directory holding cache entries, created when first written
+     * @param formatterSettings
+     *            description of the formatter and its options; entries
+     *            formatted with other settings are not found
+     */
+    public FormattedSnippetCache(final File cacheDir, final String formatterSettings) {
+        if (cacheDir == null) {
+            throw new IllegalArgumentException("Cache directory must be provided");
+        }
+        if (formatterSettings == null) {
+            throw new IllegalArgumentException("Formatter settings must be provided");
+        }
+        this.cacheDir = cacheDir.toPath();
+        this.formatterSettings = formatterSettings;
+        this.usedEntries = ConcurrentHashMap.newKeySet();
+    }
+
+    /**
+     * Returns the formatted form of a snippet if it is cached.
+     *
+     * @param snippet
+     *            unformatted snippet
+     * @return formatted snippet, or null if not cached
+     */
+    public String get(final String snippet) {
+        Path entry = entry(snippet);
+        try {
+            String formatted = new String(Files.readAllBytes(entry), StandardCharsets.UTF_8);
+            usedEntries.add(entry);
+            return formatted;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Caches the formatted form of a snippet. Failures to write are ignored,
+     * since the snippet is then only formatted again on the next build.
+     *
+     * @param snippet
+     *            unformatted snippet
+     * @param formatted
+     *            formatted snippet
+     */
+    public void put(final String snippet, final String formatted) {
+        Path entry = entry(snippet);
+        usedEntries.add(entry);
+        try {
+            OutputFiles.writeIfChanged(entry.toFile(), formatted.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            // a missing entry only costs a reformat
+        }
+    }
+
+    /**
+     * Deletes every file of the cache directory that is not an entry used
+     * since this cache was created, including entries left over from other
+     * formatter settings and temporary files of interrupted writes. Only
+     * call it after the samples of every service were generated with this
+     * cache, or the entries of the other services are lost.
+     *
+     * @return number of files deleted
+     * @throws IOException
+     *             if the cache directory cannot be listed
+     */
+    public int prune() throws IOException {
+        if (!Files.isDirectory(cacheDir)) {
+            return 0;
+        }
+
+        int deleted = 0;
+        try (Stream<Path> files = Files.list(cacheDir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (!usedEntries.contains(file) && Files.deleteIfExists(file)) {
+                    deleted++;
+                }
+            }
+        }
+        return deleted;
+    }
+
+    private Path entry(final String snippet) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        digest.update(FORMAT_VERSION.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(formatterSettings.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        byte[] bytes = digest.digest(snippet.getBytes(StandardCharsets.UTF_8));
+
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[2 * i] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+            hex[2 * i + 1] = HEX_DIGITS[bytes[i] & 0xf];
+        }
+        return cacheDir.resolve(new String(hex) + ".snippet");
+    }
+}
@@ -14,25 +14,52 @@
  */
 package com.amazonaws.samples.util;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.JarURLConnection;
 import java.net.URL;
-import java.util.ArrayList;
+import java.net.URLConnection;
+import java.util.Collections;
 import java.util.Enumeration;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Predicate;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import com.amazonaws.codegen.model.intermediate.IntermediateModel;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 
 /**
  * Uses Jackson to materialize a serialized intermediate model.
  */
 public class IntermediateModelRetriever {
 
+    private static final String MODEL_SUFFIX = "-intermediate.json";
+
+    private static final String EXAMPLES_FIELD = "examples";
+
+    /**
+     * Shared by all threads; reusing one mapper keeps the deserializers it
+     * builds for the model classes instead of introspecting them per model.
+     */
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private static final ObjectReader MODEL_READER = MAPPER.reader(IntermediateModel.class);
+
     /**
      * Returns a list of materialized intermediate models from SDK dependencies
      * on the classpath.
@@ -43,25 +70,84 @@ public class IntermediateModelRetriever {
      */
     public static List<IntermediateModel> getDependencyIntermediateModels()
             throws IOException {
-        List<IntermediateModel> intermediateModels = new ArrayList<>();
-        Enumeration<URL> en = IntermediateModelRetriever.class.getClassLoader().getResources(
-                "META-INF");
-
-        while (en.hasMoreElements()) {
-            URL url = en.nextElement();
-            JarURLConnection urlcon = (JarURLConnection) (url.openConnection());
-            try (JarFile jar = urlcon.getJarFile()) {
-                Enumeration<JarEntry> entries = jar.entries();
-                while (entries.hasMoreElements()) {
-                    JarEntry entry = entries.nextElement();
-                    if (entry.getName().endsWith("-intermediate.json")) {
-                        intermediateModels.add(deserializeIntermediateModel(jar
-                                .getInputStream(entry)));
-                    }
-                }
-            }
+        try (Stream<IntermediateModel> models = streamDependencyIntermediateModels()) {
+            return models.collect(Collectors.toList());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
         }
-        return intermediateModels;
+    }
+
+    /**
+     * Returns a lazy stream of the intermediate models of SDK dependencies on
+     * the classpath. Each model is deserialized only when the stream reaches
+     * it, and jar entries are selected by name without being opened, so only
+     * the models a consumer holds on to stay on the heap. The stream keeps
+     * one jar open at a time and must be closed.
+     *
+     * @return stream of materialized intermediate models; read failures are
+     *         thrown as {@link UncheckedIOException}
+     * @throws IOException
+     *             if the classpath cannot be searched
+     */
+    public static Stream<IntermediateModel> streamDependencyIntermediateModels()
+            throws IOException {
+        return streamDependencyIntermediateModels(false);
+    }
+
+    /**
+     * Returns a lazy stream of the intermediate models of SDK dependencies on
+     * the classpath, optionally leaving out models without examples. Those
+     * are recognized with a streaming pass over the JSON that skips the
+     * shapes and operations subtrees, so they are never materialized.
+     *
+     * @param examplesOnly
+     *            whether to leave out models without operation examples
+     * @return stream of materialized intermediate models; read failures are
+     *         thrown as {@link UncheckedIOException}
+     * @throws IOException
+     *             if the classpath cannot be searched
+     * @see #streamDependencyIntermediateModels()
+     */
+    public static Stream<IntermediateModel> streamDependencyIntermediateModels(
+            final boolean examplesOnly) throws IOException {
+        return streamDependencyIntermediateModels(examplesOnly, modelName -> true);
+    }
+
+    /**
+     * Returns a lazy stream of the intermediate models of SDK dependencies on
+     * the classpath whose file names are accepted by the given filter,
+     * optionally leaving out models without examples. File names, such as
+     * {@code s3-2006-03-01-intermediate.json}, are tested before the entry is
+     * opened, so rejected models are never read.
+     *
+     * @param examplesOnly
+     *            whether to leave out models without operation examples
+     * @param modelNameFilter
+     *            accepts the file names of the models to stream
+     * @return stream of materialized intermediate models; read failures are
+     *         thrown as {@link UncheckedIOException}
+     * @throws IOException
+     *             if the classpath cannot be searched
+     * @see #streamDependencyIntermediateModels(boolean)
+     */
+    public static Stream<IntermediateModel> streamDependencyIntermediateModels(
+            final boolean examplesOnly, final Predicate<String> modelNameFilter) throws IOException {
+        return streamIntermediateModels(IntermediateModelRetriever.class.getClassLoader(), examplesOnly,
+                                        modelNameFilter);
+    }
+
+    /**
+     * Returns a lazy stream of the intermediate models in the jars the given
+     * class loader finds META-INF directories in.
+     *
+     * @see #streamDependencyIntermediateModels(boolean, Predicate)
+     */
+    static Stream<IntermediateModel> streamIntermediateModels(final ClassLoader classLoader,
+            final boolean examplesOnly, final Predicate<String> modelNameFilter) throws IOException {
+        ModelIterator models = new ModelIterator(Collections.list(classLoader.getResources("META-INF")).iterator(),
+                                                 examplesOnly, modelNameFilter);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(models,
+                Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(models::close);
     }
 
     /**
@@ -75,9 +161,159 @@ public class IntermediateModelRetriever {
      */
     public static IntermediateModel deserializeIntermediateModel(
             final InputStream in) throws IOException {
-        ObjectMapper mapper = new ObjectMapper();
-        mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-        return mapper.readValue(in, IntermediateModel.class);
+        return MODEL_READER.readValue(in);
+    }
+
+    /**
+     * Checks whether a serialized intermediate model has any operation
+     * examples without materializing it. Only the top level fields are
+     * visited; every subtree other than the examples is skipped unread.
+     *
+     * @param in
+     *            stream containing JSON serialized intermediate model
+     * @return true if the model has at least one operation example
+     * @throws IOException
+     *             if intermediate model cannot be read
+     */
+    public static boolean hasOperationExamples(final InputStream in)
+            throws IOException {
+        try (JsonParser parser = MAPPER.getFactory().createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return false;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if (EXAMPLES_FIELD.equals(field) && value == JsonToken.START_OBJECT) {
+                    return hasNonEmptyObjectField(parser);
+                }
+                parser.skipChildren();
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Returns whether the object the parser is positioned on has a field
+     * holding a non-empty object, as the operation examples map does once
+     * any operation has examples.
+     */
+    private static boolean hasNonEmptyObjectField(final JsonParser parser)
+            throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            if (parser.nextToken() == JsonToken.START_OBJECT) {
+                if (parser.nextToken() != JsonToken.END_OBJECT) {
+                    return true;
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return false;
     }
 
+    /**
+     * Walks the intermediate model entries of the jars containing the given
+     * META-INF directories, deserializing one model per call to next.
+     */
+    private static final class ModelIterator implements Iterator<IntermediateModel>, Closeable {
+
+        private final Iterator<URL> metaInfUrls;
+        private final boolean examplesOnly;
+        private final Predicate<String> modelNameFilter;
+        private JarFile jar;
+        private Enumeration<JarEntry> entries;
+        private JarEntry nextEntry;
+
+        ModelIterator(final Iterator<URL> metaInfUrls, final boolean examplesOnly,
+                      final Predicate<String> modelNameFilter) {
+            this.metaInfUrls = metaInfUrls;
+            this.examplesOnly = examplesOnly;
+            this.modelNameFilter = modelNameFilter;
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                return advance();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public IntermediateModel next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            JarEntry entry = nextEntry;
+            nextEntry = null;
+            try (InputStream in = jar.getInputStream(entry)) {
+                return deserializeIntermediateModel(in);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read intermediate model " + entry.getName(), e);
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                closeJar();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private boolean advance() throws IOException {
+            while (nextEntry == null) {
+                if (entries != null && entries.hasMoreElements()) {
+                    JarEntry entry = entries.nextElement();
+                    if (isSelected(entry) && (!examplesOnly || hasOperationExamples(entry))) {
+                        nextEntry = entry;
+                    }
+                    continue;
+                }
+
+                closeJar();
+                if (!metaInfUrls.hasNext()) {
+                    return false;
+                }
+
+                URLConnection connection = metaInfUrls.next().openConnection();
+                if (!(connection instanceof JarURLConnection)) {
+                    // META-INF directories outside jars hold no models
+                    continue;
+                }
+                // an uncached jar is ours to close
+                connection.setUseCaches(false);
+                jar = ((JarURLConnection) connection).getJarFile();
+                entries = jar.entries();
+            }
+            return true;
+        }
+
+        private boolean isSelected(final JarEntry entry) {
+            String name = entry.getName();
+            return name.endsWith(MODEL_SUFFIX)
+                   && modelNameFilter.test(name.substring(name.lastIndexOf('/') + 1));
+        }
+
+        private boolean hasOperationExamples(final JarEntry entry) throws IOException {
+            try (InputStream in = jar.getInputStream(entry)) {
+                return IntermediateModelRetriever.hasOperationExamples(in);
+            } catch (IOException e) {
+                throw new IOException("Failed to read intermediate model " + entry.getName(), e);
+            }
+        }
+
+        private void closeJar() throws IOException {
+            entries = null;
+            if (jar != null) {
+                JarFile current = jar;
+                jar = null;
+                current.close();
+            }
+        }
+    }
 }
@@ -0,0 +1,212 @@
+package com.amazonaws.samples;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterators;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.apache.maven.plugin.MojoFailureException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.amazonaws.codegen.model.intermediate.IntermediateModel;
+import com.amazonaws.codesamples.IncrementalSampleExtractor;
+import com.amazonaws.samples.util.IntermediateModelRetriever;
+
+public class SampleGenerationRunnerTest {
+
+    private static final String FOO = "foo-2015-01-01-intermediate.json";
+    private static final String BAR = "bar-2015-01-01-intermediate.json";
+    private static final String BROKEN = "broken-2015-01-01-intermediate.json";
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void inProcessExtractionMatchesExtractSamples() throws Exception {
+        File sourceRun = tempFolder.newFolder("source");
+        runner(sourceRun, 1, false).generateSamples(models(FOO, BAR));
+        File sampleSources = new File(sourceRun, "src/samples");
+        new IncrementalSampleExtractor("java", new File(sourceRun, "classes/samples").getPath(), 1, false, true, true)
+                .extract(new File[] { sampleSources }, new File(sourceRun, "target/samples.manifest"));
+
+        File inProcessRun = tempFolder.newFolder("inProcess");
+        SampleGenerationRunner runner = runner(inProcessRun, 1, true);
+        runner.writeSamples(runner.generateSamples(models(FOO, BAR)));
+
+        assertFalse(new File(inProcessRun, "src/samples").exists());
+        assertSameFiles(new File(sourceRun, "classes/samples"), new File(inProcessRun, "classes/samples"));
+        String fooSamples = new String(Files.readAllBytes(new File(inProcessRun, "classes/samples/AmazonFoo.xml")
+                .toPath()), "UTF-8");
+        assertTrue(fooSamples.contains("title=\"null\""));
+        assertTrue(fooSamples.contains("description=\"  An untitled example with a padded description\""));
+        assertTrue(fooSamples.contains("description=\"DeleteBar\""));
+    }
+
+    @Test
+    public void parallelGenerationMatchesSerialGeneration() throws Exception {
+        File serialRun = tempFolder.newFolder("serial");
+        SampleGenerationRunner serial = runner(serialRun, 1, true);
+        setField(serial, "writeGeneratedSources", true);
+        serial.writeSamples(serial.generateSamples(models(FOO, BAR, FOO)));
+
+        File parallelRun = tempFolder.newFolder("parallel");
+        SampleGenerationRunner parallel = runner(parallelRun, 4, true);
+        setField(parallel, "writeGeneratedSources", true);
+        setField(parallel, "parallelFormatting", true);
+        parallel.writeSamples(parallel.generateSamples(models(FOO, BAR, FOO)));
+
+        assertSameFiles(new File(serialRun, "src/samples"), new File(parallelRun, "src/samples"));
+        assertSameFiles(new File(serialRun, "classes/samples"), new File(parallelRun, "classes/samples"));
+    }
+
+    @Test
+    public void failingServiceLeavesOtherServicesIntact() throws Exception {
+        File expectedRun = tempFolder.newFolder("expected");
+        runner(expectedRun, 1, false).generateSamples(models(FOO, BAR));
+
+        File failingRun = tempFolder.newFolder("failing");
+        try {
+            runner(failingRun, 4, false).generateSamples(models(FOO, BROKEN, BAR));
+            fail("Expected the broken service to fail");
+        } catch (MojoFailureException e) {
+            assertTrue(e.getMessage().contains("AmazonBroken"));
+            assertFalse(e.getMessage().contains("AmazonFoo"));
+        }
+
+        assertSameFiles(new File(expectedRun, "src/samples"), new File(failingRun, "src/samples"));
+    }
+
+    @Test
+    public void streamIsOnlyAdvancedOnceAThreadIsFree() throws Exception {
+        File root = tempFolder.newFolder("bounded");
+        File sourceDir = new File(root, "src/samples");
+        List<IntermediateModel> models = models(FOO, BAR).collect(Collectors.toList());
+        List<String> unfinishedServices = new ArrayList<>();
+        Iterator<IntermediateModel> iterator = new Iterator<IntermediateModel>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                // with one thread, the previous model must be done with
+                for (int i = 0; i < next; i++) {
+                    String serviceName = models.get(i).getMetadata().getSyncInterface();
+                    if (!new File(sourceDir, serviceName + "GeneratedSamples.java").isFile()) {
+                        unfinishedServices.add(serviceName);
+                    }
+                }
+                return next < models.size();
+            }
+
+            @Override
+            public IntermediateModel next() {
+                return models.get(next++);
+            }
+        };
+
+        runner(root, 1, false).generateSamples(StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, 0),
+                                                                    false));
+        assertEquals(Collections.emptyList(), unfinishedServices);
+    }
+
+    @Test
+    public void noServiceGlobsSelectEveryModel() throws Exception {
+        Predicate<String> filter = new SampleGenerationRunner().modelNameFilter();
+
+        assertTrue(filter.test(FOO));
+        assertTrue(filter.test(BAR));
+    }
+
+    @Test
+    public void includeServicesSelectsMatchingModels() throws Exception {
+        SampleGenerationRunner runner = new SampleGenerationRunner();
+        setField(runner, "includeServices", Arrays.asList("s3-*", " foo-* ", ""));
+        Predicate<String> filter = runner.modelNameFilter();
+
+        assertTrue(filter.test("s3-2006-03-01-intermediate.json"));
+        assertTrue(filter.test(FOO));
+        assertFalse(filter.test(BAR));
+        assertFalse(filter.test("s3control-2018-08-20-intermediate.json"));
+    }
+
+    @Test
+    public void excludeServicesApplyAfterIncludeServices() throws Exception {
+        SampleGenerationRunner runner = new SampleGenerationRunner();
+        setField(runner, "includeServices", Arrays.asList("s3*"));
+        setField(runner, "excludeServices", Arrays.asList("s3control-*"));
+        Predicate<String> filter = runner.modelNameFilter();
+
+        assertTrue(filter.test("s3-2006-03-01-intermediate.json"));
+        assertFalse(filter.test("s3control-2018-08-20-intermediate.json"));
+        assertFalse(filter.test(FOO));
+    }
+
+    @Test
+    public void excludeServicesAloneKeepOtherModels() throws Exception {
+        SampleGenerationRunner runner = new SampleGenerationRunner();
+        setField(runner, "excludeServices", Arrays.asList("bar-*"));
+        Predicate<String> filter = runner.modelNameFilter();
+
+        assertTrue(filter.test(FOO));
+        assertFalse(filter.test(BAR));
+    }
+
+    private static SampleGenerationRunner runner(final File root, final int threads, final boolean inProcess)
+            throws Exception {
+        SampleGenerationRunner runner = new SampleGenerationRunner();
+        setField(runner, "projectSourceDir", new File(root, "src").getPath());
+        setField(runner, "projectOutputDir", new File(root, "classes").getPath());
+        setField(runner, "projectBuildDir", new File(root, "target").getPath());
+        setField(runner, "generationThreads", threads);
+        setField(runner, "extractInProcess", inProcess);
+        setField(runner, "writeBinaryIndex", true);
+        setField(runner, "writeKeyFilter", true);
+        return runner;
+    }
+
+    private static void setField(final Object target, final String name, final Object value) throws Exception {
+        Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+
+    private static Stream<IntermediateModel> models(final String... names) throws Exception {
+        List<IntermediateModel> models = new ArrayList<>();
+        for (String name : names) {
+            try (InputStream in = SampleGenerationRunnerTest.class.getResourceAsStream("/models/" + name)) {
+                models.add(IntermediateModelRetriever.deserializeIntermediateModel(in));
+            }
+        }
+        return models.stream();
+    }
+
+    private static void assertSameFiles(final File expectedDir, final File actualDir) throws Exception {
+        String[] expected = expectedDir.list();
+        String[] actual = actualDir.list();
+        Arrays.sort(expected);
+        Arrays.sort(actual);
+        assertEquals(Arrays.asList(expected), Arrays.asList(actual));
+        assertTrue(expected.length > 0);
+        for (String name : expected) {
+            assertArrayEquals(name, Files.readAllBytes(new File(expectedDir, name).toPath()),
+                              Files.readAllBytes(new File(actualDir, name).toPath()));
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.amazonaws.samples;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.amazonaws.codegen.model.intermediate.IntermediateModel;
+import com.amazonaws.samples.util.FormattedSnippetCache;
+import com.amazonaws.samples.util.IntermediateModelRetriever;
+
+public class SamplesGeneratorTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void formattingSamplesSeparatelyMatchesFormattingTheClass() throws Exception {
+        for (String name : new String[] { "foo-2015-01-01-intermediate.json", "bar-2015-01-01-intermediate.json" }) {
+            SamplesGenerator generator = new SamplesGenerator(model(name));
+            String wholeClass = SamplesGenerator.newFormatter().apply(generator.getUnformattedSamples());
+            assertEquals(name, wholeClass, generator.getGeneratedSamples());
+        }
+    }
+
+    @Test
+    public void cachedFormattingMatchesUncachedFormatting() throws Exception {
+        String expected = new SamplesGenerator(model("foo-2015-01-01-intermediate.json")).getGeneratedSamples();
+
+        FormattedSnippetCache cache = new FormattedSnippetCache(tempFolder.getRoot(),
+                                                                SamplesGenerator.getFormatterSettings());
+        for (int run = 0; run < 2; run++) {
+            String actual = new SamplesGenerator(model("foo-2015-01-01-intermediate.json"), cache, true)
+                    .getGeneratedSamples();
+            assertEquals(expected, actual);
+        }
+        assertTrue(tempFolder.getRoot().list().length > 0);
+    }
+
+    @Test
+    public void unformattableSampleIsOmittedAndReported() throws Exception {
+        UnaryOperator<String> formatter = source -> {
+            // rejects the DeleteBar statements, but not the whole class
+            if (source.contains("deleteBar(") && !source.contains("listBars(")) {
+                throw new IllegalArgumentException("Unparsable sample");
+            }
+            return source;
+        };
+        SamplesGenerator generator = new SamplesGenerator(model("foo-2015-01-01-intermediate.json"), null, true,
+                                                          formatter);
+
+        String samples = generator.getGeneratedSamples();
+        assertFalse(samples.contains("deleteBar("));
+        assertTrue(samples.contains("listBars("));
+        List<String> failures = generator.getFormattingFailures();
+        assertEquals(1, failures.size());
+        assertTrue(failures.get(0), failures.get(0).contains("'DeleteBar'"));
+        assertTrue(failures.get(0), failures.get(0).contains("Unparsable sample"));
+    }
+
+    @Test
+    public void formattedSamplesReportNoFailures() throws Exception {
+        SamplesGenerator generator = new SamplesGenerator(model("foo-2015-01-01-intermediate.json"));
+
+        assertEquals(Collections.emptyList(), generator.getFormattingFailures());
+    }
+
+    private static IntermediateModel model(final String name) throws Exception {
+        try (InputStream in = SamplesGeneratorTest.class.getResourceAsStream("/models/" + name)) {
+            return IntermediateModelRetriever.deserializeIntermediateModel(in);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.amazonaws.samples.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FormattedSnippetCacheTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void cachedSnippetIsFoundWithSameSettings() {
+        new FormattedSnippetCache(tempFolder.getRoot(), "settings").put("a=1;", "a = 1;");
+
+        assertEquals("a = 1;", new FormattedSnippetCache(tempFolder.getRoot(), "settings").get("a=1;"));
+    }
+
+    @Test
+    public void cachedSnippetIsMissedWithOtherSettings() {
+        new FormattedSnippetCache(tempFolder.getRoot(), "settings").put("a=1;", "a = 1;");
+
+        assertNull(new FormattedSnippetCache(tempFolder.getRoot(), "other settings").get("a=1;"));
+    }
+
+    @Test
+    public void pruneKeepsOnlyEntriesUsedSinceCreation() throws Exception {
+        FormattedSnippetCache previousRun = new FormattedSnippetCache(tempFolder.getRoot(), "settings");
+        previousRun.put("a=1;", "a = 1;");
+        previousRun.put("b=2;", "b = 2;");
+        new FormattedSnippetCache(tempFolder.getRoot(), "old settings").put("a=1;", "a = 1;");
+        File leftover = new File(tempFolder.getRoot(), "interrupted.snippet123.tmp");
+        Files.write(leftover.toPath(), new byte[] { 1 });
+
+        FormattedSnippetCache cache = new FormattedSnippetCache(tempFolder.getRoot(), "settings");
+        assertEquals("a = 1;", cache.get("a=1;"));
+        cache.put("c=3;", "c = 3;");
+
+        assertEquals(3, cache.prune());
+        assertEquals(2, tempFolder.getRoot().list().length);
+        assertFalse(leftover.exists());
+        assertEquals("a = 1;", cache.get("a=1;"));
+        assertEquals("c = 3;", cache.get("c=3;"));
+        assertNull(cache.get("b=2;"));
+    }
+
+    @Test
+    public void pruneOfMissingDirectoryDeletesNothing() throws Exception {
+        File cacheDir = new File(tempFolder.getRoot(), "missing");
+
+        assertEquals(0, new FormattedSnippetCache(cacheDir, "settings").prune());
+        assertFalse(cacheDir.exists());
+    }
+}
@@ -0,0 +1,156 @@
+package com.amazonaws.samples.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.amazonaws.codegen.model.intermediate.IntermediateModel;
+
+public class IntermediateModelRetrieverTest {
+
+    private static final String FOO = "foo-2015-01-01-intermediate.json";
+    private static final String BAR = "bar-2015-01-01-intermediate.json";
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void nonModelEntriesAreSkipped() throws Exception {
+        File jar = tempFolder.newFile("models.jar");
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar))) {
+            // class loaders only find META-INF through its directory entry
+            putEntry(out, "META-INF/", new byte[0]);
+            putEntry(out, "META-INF/MANIFEST.MF", "Manifest-Version: 1.0\n".getBytes(StandardCharsets.UTF_8));
+            putEntry(out, "META-INF/" + FOO, model(FOO));
+            putEntry(out, "META-INF/foo-2015-01-01-customization.config", "{".getBytes(StandardCharsets.UTF_8));
+            putEntry(out, "META-INF/" + FOO + ".bak", "{".getBytes(StandardCharsets.UTF_8));
+            putEntry(out, "META-INF/models/", new byte[0]);
+            putEntry(out, "META-INF/models/" + BAR, model(BAR));
+            putEntry(out, "com/amazonaws/Foo.class", new byte[] { (byte) 0xca, (byte) 0xfe });
+        }
+
+        assertEquals(Arrays.asList("AmazonFoo", "AmazonBar"), serviceNames(jar, false, name -> true));
+    }
+
+    @Test
+    public void metaInfDirectoriesOutsideJarsAreSkipped() throws Exception {
+        File dir = tempFolder.newFolder("classes");
+        File metaInf = new File(dir, "META-INF");
+        metaInf.mkdirs();
+        Files.write(new File(metaInf, FOO).toPath(), model(FOO));
+
+        assertEquals(Collections.emptyList(), serviceNames(dir, false, name -> true));
+    }
+
+    @Test
+    public void modelWithOperationExamplesHasExamples() throws Exception {
+        assertTrue(hasOperationExamples("{\"metadata\":{},\"examples\":{\"operationExamples\":"
+                + "{\"ListBars\":[{\"title\":\"To list bars\"}]}}}"));
+        assertTrue(IntermediateModelRetriever.hasOperationExamples(new ByteArrayInputStream(model(FOO))));
+    }
+
+    @Test
+    public void examplesAfterLargeSubtreesAreFound() throws Exception {
+        assertTrue(hasOperationExamples("{\"shapes\":{\"Bar\":{\"members\":[{\"examples\":{}}]}},"
+                + "\"operations\":[1,2,3],\"examples\":{\"operationExamples\":{\"ListBars\":[{}]}}}"));
+    }
+
+    @Test
+    public void modelWithoutExamplesFieldHasNoExamples() throws Exception {
+        assertFalse(hasOperationExamples("{\"metadata\":{},\"shapes\":{\"examples\":{\"a\":{\"b\":1}}}}"));
+    }
+
+    @Test
+    public void modelWithEmptyExamplesHasNoExamples() throws Exception {
+        assertFalse(hasOperationExamples("{\"examples\":{}}"));
+        assertFalse(hasOperationExamples("{\"examples\":{\"operationExamples\":{}}}"));
+        assertFalse(hasOperationExamples("{\"examples\":{\"operationExamples\":null}}"));
+        assertFalse(hasOperationExamples("{\"examples\":null}"));
+        assertFalse(hasOperationExamples("[]"));
+    }
+
+    @Test
+    public void examplesOnlyStreamLeavesOutModelsWithoutExamples() throws Exception {
+        File jar = tempFolder.newFile("models.jar");
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar))) {
+            putEntry(out, "META-INF/", new byte[0]);
+            putEntry(out, "META-INF/" + FOO, model(FOO));
+            putEntry(out, "META-INF/empty-2015-01-01-intermediate.json",
+                     "{\"metadata\":{\"syncInterface\":\"AmazonEmpty\"},\"examples\":{\"operationExamples\":{}}}"
+                             .getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertEquals(Arrays.asList("AmazonFoo", "AmazonEmpty"), serviceNames(jar, false, name -> true));
+        assertEquals(Arrays.asList("AmazonFoo"), serviceNames(jar, true, name -> true));
+    }
+
+    @Test
+    public void modelNameFilterSeesFileNamesOnly() throws Exception {
+        File jar = tempFolder.newFile("models.jar");
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar))) {
+            putEntry(out, "META-INF/", new byte[0]);
+            putEntry(out, "META-INF/" + FOO, model(FOO));
+            putEntry(out, "META-INF/models/", new byte[0]);
+            putEntry(out, "META-INF/models/" + BAR, model(BAR));
+        }
+        List<String> testedNames = new ArrayList<>();
+
+        assertEquals(Arrays.asList("AmazonBar"), serviceNames(jar, false, name -> {
+            testedNames.add(name);
+            return name.startsWith("bar-");
+        }));
+        assertEquals(Arrays.asList(FOO, BAR), testedNames);
+    }
+
+    /**
+     * Streams the models found in a single jar or directory, without the
+     * models of the test classpath.
+     */
+    private static List<String> serviceNames(final File root, final boolean examplesOnly,
+            final Predicate<String> modelNameFilter) throws Exception {
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[] { root.toURI().toURL() }, null);
+             Stream<IntermediateModel> models = IntermediateModelRetriever.streamIntermediateModels(classLoader,
+                     examplesOnly, modelNameFilter)) {
+            return models.map(model -> model.getMetadata().getSyncInterface()).collect(Collectors.toList());
+        }
+    }
+
+    private static boolean hasOperationExamples(final String json) throws Exception {
+        return IntermediateModelRetriever.hasOperationExamples(new ByteArrayInputStream(json
+                .getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static void putEntry(final JarOutputStream out, final String name, final byte[] content)
+            throws Exception {
+        out.putNextEntry(new JarEntry(name));
+        out.write(content);
+        out.closeEntry();
+    }
+
+    private static byte[] model(final String name) throws Exception {
+        return Files.readAllBytes(Paths.get(IntermediateModelRetrieverTest.class.getResource("/models/" + name)
+                .toURI()));
+    }
+}
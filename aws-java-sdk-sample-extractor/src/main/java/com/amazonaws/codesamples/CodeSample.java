@@ -21,6 +21,10 @@ import com.amazonaws.util.ParsingUtils;
 
 /**
  * Represents an individual code sample.
+ *
+ * A sample is built up line by line while its source is parsed and then
+ * sealed, which formats its code once and releases the raw lines. A sealed
+ * sample can no longer be modified.
  */
 public class CodeSample {
 
@@ -30,6 +34,7 @@ public class CodeSample {
     private String title;
     private String description;
     private List<String> codeLines;
+    private String formattedCode;
 
     /**
      * Ctor.
@@ -96,11 +101,36 @@ public class CodeSample {
      * @return formatted sample code
      */
     public String getFormattedCode() {
+        if (formattedCode != null) {
+            return formattedCode;
+        }
+
         int offset = ParsingUtils.getMinWhitespace(codeLines);
 
         return ParsingUtils.formatSampleText(codeLines, offset);
     }
 
+    /**
+     * Seals this sample once all of its content has been provided, caching
+     * its formatted code and releasing the raw code lines. Sealing a sealed
+     * sample has no effect.
+     */
+    public void seal() {
+        if (formattedCode == null) {
+            formattedCode = getFormattedCode();
+            codeLines = null;
+        }
+    }
+
+    /**
+     * Returns true if this sample has been sealed.
+     *
+     * @return true if sealed
+     */
+    public boolean isSealed() {
+        return formattedCode != null;
+    }
+
     /**
      * Set the title for this sample.
      *
@@ -108,6 +138,7 @@ public class CodeSample {
      *            sample title
      */
     public void setTitle(final String title) {
+        assertNotSealed();
         this.title = title;
     }
 
@@ -118,6 +149,7 @@ public class CodeSample {
      *            sample description
      */
     public void setDescription(final String description) {
+        assertNotSealed();
         this.description = description;
     }
 
@@ -128,7 +160,14 @@ public class CodeSample {
      *            line of code
      */
     public void appendLine(final String line) {
+        assertNotSealed();
         codeLines.add(line);
     }
 
+    private void assertNotSealed() {
+        if (isSealed()) {
+            throw new IllegalStateException("Sample " + id + " is sealed");
+        }
+    }
+
 }
@@ -0,0 +1,346 @@
+/*
+ * Copyright 2013-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.codesamples;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Record of the source files seen by the last sample extraction and the
+ * samples each one produced, used to skip unchanged files on the next run.
+ *
+ * The manifest is a UTF-8 text file. After a header line and a settings line,
+ * each line describes one source file as tab separated path, size, last
+ * modified time, SHA-256 content hash and a comma separated list of the
+ * "service.id" keys of its samples. Backslashes, tabs, commas and line breaks
+ * in paths and keys are escaped with a backslash, so any sample id can be
+ * recorded.
+ */
+public class ExtractionManifest {
+
+    private static final String HEADER = "# aws-java-sdk-sample-extractor manifest v2";
+    private static final String SETTINGS_PREFIX = "settings\t";
+    private static final char FIELD_SEPARATOR = '\t';
+    private static final char KEY_SEPARATOR = ',';
+    private static final char ESCAPE = '\\';
+
+    private final String settings;
+    private final Map<String, Entry> entries;
+
+    /**
+     * Ctor.
+     *
+     * @param settings
+     *            description of the extraction settings; a manifest is only
+     *            reused by runs with identical settings
+     */
+    public ExtractionManifest(final String settings) {
+        this.settings = settings;
+        this.entries = new TreeMap<String, Entry>();
+    }
+
+    /**
+     * Loads a manifest, returning an empty one if the file does not exist,
+     * cannot be read or was written with different settings.
+     *
+     * @param file
+     *            manifest file
+     * @param settings
+     *            settings of the current run
+     * @return loaded or empty manifest
+     */
+    public static ExtractionManifest load(final File file,
+            final String settings) {
+        ExtractionManifest manifest = load(file);
+        if (manifest == null || !settings.equals(manifest.getSettings())) {
+            return new ExtractionManifest(settings);
+        }
+        return manifest;
+    }
+
+    /**
+     * Loads a manifest whatever settings it was written with, so that the
+     * outputs it records can be cleaned up after the settings change.
+     *
+     * @param file
+     *            manifest file
+     * @return loaded manifest, or null if the file does not exist or cannot
+     *         be read
+     */
+    public static ExtractionManifest load(final File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(),
+                StandardCharsets.UTF_8)) {
+            String settingsLine = HEADER.equals(reader.readLine()) ? reader
+                    .readLine() : null;
+            if (settingsLine == null
+                    || !settingsLine.startsWith(SETTINGS_PREFIX)) {
+                return null;
+            }
+
+            ExtractionManifest manifest = new ExtractionManifest(
+                    settingsLine.substring(SETTINGS_PREFIX.length()));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                List<String> fields = split(line, FIELD_SEPARATOR);
+                List<String> keys = new ArrayList<String>();
+                for (String key : split(fields.get(4), KEY_SEPARATOR)) {
+                    keys.add(unescape(key));
+                }
+                manifest.put(new Entry(unescape(fields.get(0)), Long
+                        .parseLong(fields.get(1)), Long.parseLong(fields
+                        .get(2)), fields.get(3), keys));
+            }
+            return manifest;
+        } catch (Exception e) {
+            // an unreadable manifest only costs a full extraction
+            System.err.println("Ignoring unreadable sample extraction manifest "
+                    + file + ": " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Writes this manifest to a file.
+     *
+     * @param file
+     *            manifest file
+     * @throws IOException
+     *             if the manifest cannot be written
+     */
+    public void save(final File file) throws IOException {
+        file.getParentFile().mkdirs();
+        try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(),
+                StandardCharsets.UTF_8)) {
+            writer.write(HEADER);
+            writer.newLine();
+            writer.write(SETTINGS_PREFIX + settings);
+            writer.newLine();
+            for (Entry entry : entries.values()) {
+                writer.write(escape(entry.getPath()) + FIELD_SEPARATOR
+                        + entry.getSize() + FIELD_SEPARATOR
+                        + entry.getLastModified() + FIELD_SEPARATOR
+                        + entry.getHash() + FIELD_SEPARATOR
+                        + join(entry.getSampleKeys()));
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Returns the description of the settings this manifest was written
+     * with.
+     *
+     * @return extraction settings
+     */
+    public String getSettings() {
+        return settings;
+    }
+
+    /**
+     * Returns the entry for a source file.
+     *
+     * @param path
+     *            absolute path of source file
+     * @return entry, or null if the file is not in the manifest
+     */
+    public Entry get(final String path) {
+        return entries.get(path);
+    }
+
+    /**
+     * Adds or replaces the entry for a source file.
+     *
+     * @param entry
+     *            entry to add
+     */
+    public void put(final Entry entry) {
+        entries.put(entry.getPath(), entry);
+    }
+
+    /**
+     * Returns all entries, ordered by path.
+     *
+     * @return manifest entries
+     */
+    public Collection<Entry> getEntries() {
+        return Collections.unmodifiableCollection(entries.values());
+    }
+
+    private static String join(final List<String> values) {
+        StringBuilder sb = new StringBuilder();
+        for (String value : values) {
+            if (sb.length() > 0) {
+                sb.append(KEY_SEPARATOR);
+            }
+            sb.append(escape(value));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Escapes the characters that would otherwise end a key, field or line.
+     */
+    static String escape(final String value) {
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+            case '\t':
+                sb.append(ESCAPE).append('t');
+                break;
+            case '\n':
+                sb.append(ESCAPE).append('n');
+                break;
+            case '\r':
+                sb.append(ESCAPE).append('r');
+                break;
+            case KEY_SEPARATOR:
+            case ESCAPE:
+                sb.append(ESCAPE).append(c);
+                break;
+            default:
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    static String unescape(final String value) {
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c != ESCAPE) {
+                sb.append(c);
+                continue;
+            }
+            if (++i == value.length()) {
+                throw new IllegalArgumentException("Dangling escape in "
+                        + value);
+            }
+            c = value.charAt(i);
+            sb.append(c == 't' ? '\t' : c == 'n' ? '\n' : c == 'r' ? '\r' : c);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Splits a line at the separators that are not escaped, keeping the
+     * parts escaped. An empty line has no parts.
+     */
+    private static List<String> split(final String line, final char separator) {
+        List<String> parts = new ArrayList<String>();
+        if (line.isEmpty()) {
+            return parts;
+        }
+        int start = 0;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == ESCAPE) {
+                i++;
+            } else if (c == separator) {
+                parts.add(line.substring(start, i));
+                start = i + 1;
+            }
+        }
+        parts.add(line.substring(start));
+        return parts;
+    }
+
+    /**
+     * Manifest record of a single source file.
+     */
+    public static class Entry {
+
+        private final String path;
+        private final long size;
+        private final long lastModified;
+        private final String hash;
+        private final List<String> sampleKeys;
+
+        /**
+         * Ctor.
+         *
+         * @param path
+         *            absolute path of source file
+         * @param size
+         *            file size in bytes
+         * @param lastModified
+         *            file modification time in milliseconds
+         * @param hash
+         *            hex encoded SHA-256 hash of the file content
+         * @param sampleKeys
+         *            "service.id" keys of the samples parsed from the file
+         */
+        public Entry(final String path, final long size,
+                final long lastModified, final String hash,
+                final List<String> sampleKeys) {
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.hash = hash;
+            this.sampleKeys = Collections.unmodifiableList(new ArrayList<String>(
+                    sampleKeys));
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        public String getHash() {
+            return hash;
+        }
+
+        public List<String> getSampleKeys() {
+            return sampleKeys;
+        }
+
+        /**
+         * Returns the names of the services the file has samples for.
+         *
+         * @return service names
+         */
+        public Set<String> getServices() {
+            Set<String> services = new LinkedHashSet<String>();
+            for (String key : sampleKeys) {
+                services.add(key.substring(0, key.indexOf('.')));
+            }
+            return services;
+        }
+    }
+}
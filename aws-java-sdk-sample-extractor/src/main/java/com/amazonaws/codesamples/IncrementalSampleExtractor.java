@@ -0,0 +1,449 @@
+/*
+ * Copyright 2013-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.codesamples;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.amazonaws.codesamples.ExtractionManifest.Entry;
+import com.amazonaws.codesamples.exception.SampleParsingException;
+
+/**
+ * Sample extraction that only reparses source files changed since the last
+ * run, as recorded in an {@link ExtractionManifest}, and only rewrites the
+ * outputs of services whose samples may have changed.
+ *
+ * A file is unchanged if its size and modification time match the manifest,
+ * or failing that if its content hash does. A service is affected if a file
+ * contributing samples to it was changed, added or removed, or if its output
+ * is missing. Every file that contributes to an affected service is reparsed
+ * so that the service output is complete, and the outputs of services that no
+ * longer have samples are deleted. Samples are ordered as a full parse with
+ * the same parallelism orders them: in directory listing order when parsing
+ * serially, and by source file path when parsing in parallel.
+ */
+public class IncrementalSampleExtractor {
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final String targetExtension;
+    private final String outputDir;
+    private final int parallelism;
+    private final boolean streamingWriter;
+    private final boolean writeBinaryIndex;
+    private final boolean writeKeyFilter;
+    private final boolean renderSamples;
+
+    /**
+     * Ctor.
+     *
+     * @param targetExtension
+     *            extension of files to parse
+     * @param outputDir
+     *            sample output directory
+     * @param parallelism
+     *            number of files to parse concurrently
+     * @param streamingWriter
+     *            whether to write XML through a {@link SamplesStreamWriter}
+     * @param writeBinaryIndex
+     *            whether to write a binary index for each service
+     */
+    public IncrementalSampleExtractor(final String targetExtension,
+            final String outputDir, final int parallelism,
+            final boolean streamingWriter, final boolean writeBinaryIndex) {
+        this(targetExtension, outputDir, parallelism, streamingWriter,
+                writeBinaryIndex, false);
+    }
+
+    /**
+     * Ctor.
+     *
+     * @param targetExtension
+     *            extension of files to parse
+     * @param outputDir
+     *            sample output directory
+     * @param parallelism
+     *            number of files to parse concurrently
+     * @param streamingWriter
+     *            whether to write XML through a {@link SamplesStreamWriter}
+     * @param writeBinaryIndex
+     *            whether to write a binary index for each service
+     * @param writeKeyFilter
+     *            whether to write a {@link SampleKeyFilterWriter sample key
+     *            filter} of every sample in the output directory
+     */
+    public IncrementalSampleExtractor(final String targetExtension,
+            final String outputDir, final int parallelism,
+            final boolean streamingWriter, final boolean writeBinaryIndex,
+            final boolean writeKeyFilter) {
+        this(targetExtension, outputDir, parallelism, streamingWriter,
+                writeBinaryIndex, writeKeyFilter, false);
+    }
+
+    /**
+     * Ctor.
+     *
+     * @param targetExtension
+     *            extension of files to parse
+     * @param outputDir
+     *            sample output directory
+     * @param parallelism
+     *            number of files to parse concurrently
+     * @param streamingWriter
+     *            whether to write XML through a {@link SamplesStreamWriter}
+     * @param writeBinaryIndex
+     *            whether to write a binary index for each service
+     * @param writeKeyFilter
+     *            whether to write a {@link SampleKeyFilterWriter sample key
+     *            filter} of every sample in the output directory
+     * @param renderSamples
+     *            whether to write a {@link RenderedSampleBundleWriter
+     *            rendered sample bundle} for each service
+     */
+    public IncrementalSampleExtractor(final String targetExtension,
+            final String outputDir, final int parallelism,
+            final boolean streamingWriter, final boolean writeBinaryIndex,
+            final boolean writeKeyFilter, final boolean renderSamples) {
+        this.targetExtension = targetExtension;
+        this.outputDir = outputDir;
+        this.parallelism = parallelism;
+        this.streamingWriter = streamingWriter;
+        this.writeBinaryIndex = writeBinaryIndex;
+        this.writeKeyFilter = writeKeyFilter;
+        this.renderSamples = renderSamples;
+    }
+
+    /**
+     * Extracts samples from input files, reusing the results of the run
+     * recorded in the manifest file and then updating it.
+     *
+     * @param files
+     *            input files
+     * @param manifestFile
+     *            manifest of the previous run
+     * @return names of services whose outputs were rewritten or deleted
+     * @throws Exception
+     *             if an error occurs while extracting samples
+     */
+    public Set<String> extract(final File[] files, final File manifestFile)
+            throws Exception {
+        if (files == null) {
+            throw new SampleParsingException(
+                    "Must provide a non-null set of files to parse");
+        }
+
+        String settings = getSettings();
+        ExtractionManifest previous = ExtractionManifest.load(manifestFile);
+        ExtractionManifest current = new ExtractionManifest(settings);
+        Set<String> affectedServices = new TreeSet<String>();
+        if (previous != null && !settings.equals(previous.getSettings())) {
+            // every output is rewritten, and those of services that no
+            // longer have samples must still be deleted
+            for (Entry entry : previous.getEntries()) {
+                affectedServices.addAll(entry.getServices());
+            }
+            previous = null;
+        }
+        if (previous == null) {
+            previous = new ExtractionManifest(settings);
+        }
+        List<File> changedFiles = new ArrayList<File>();
+        Map<File, String> changedHashes = new HashMap<File, String>();
+
+        List<File> sourceFiles = SamplesParser.getSourceFiles(files,
+                targetExtension, parallelism);
+        Set<String> sourcePaths = new HashSet<String>();
+        for (File file : sourceFiles) {
+            String path = file.getAbsolutePath();
+            sourcePaths.add(path);
+
+            Entry entry = previous.get(path);
+            if (entry != null && entry.getSize() == file.length()
+                    && entry.getLastModified() == file.lastModified()) {
+                current.put(entry);
+                continue;
+            }
+
+            String hash = hash(file);
+            if (entry != null && entry.getHash().equals(hash)) {
+                current.put(new Entry(path, file.length(), file
+                        .lastModified(), hash, entry.getSampleKeys()));
+                continue;
+            }
+
+            if (entry != null) {
+                affectedServices.addAll(entry.getServices());
+            }
+            changedFiles.add(file);
+            changedHashes.put(file, hash);
+        }
+
+        for (Entry entry : previous.getEntries()) {
+            if (!sourcePaths.contains(entry.getPath())) {
+                affectedServices.addAll(entry.getServices());
+            }
+        }
+
+        // the streaming writer parses changed files again as it writes them,
+        // so that only their keys are held meanwhile
+        final Map<File, List<CodeSample>> parsedSamples = new HashMap<File, List<CodeSample>>();
+        final Map<File, List<String>> changedKeys = new HashMap<File, List<String>>();
+        SamplesParser.visitSamples(changedFiles, parallelism,
+                new SamplesParser.FileSamplesVisitor() {
+                    public void visit(final File file,
+                            final List<CodeSample> samples) {
+                        List<String> keys = new ArrayList<String>();
+                        for (CodeSample sample : samples) {
+                            keys.add(sample.getServiceName() + "."
+                                    + sample.getId());
+                        }
+                        changedKeys.put(file, keys);
+                        if (!streamingWriter) {
+                            parsedSamples.put(file, samples);
+                        }
+                    }
+                });
+        for (File file : changedFiles) {
+            Entry entry = new Entry(file.getAbsolutePath(), file.length(),
+                    file.lastModified(), changedHashes.get(file),
+                    changedKeys.get(file));
+            affectedServices.addAll(entry.getServices());
+            current.put(entry);
+        }
+
+        for (Entry entry : current.getEntries()) {
+            for (String service : entry.getServices()) {
+                if (!outputsExist(service)) {
+                    affectedServices.add(service);
+                }
+            }
+        }
+
+        // every file contributing to an affected service is written, so that
+        // the service output is complete
+        List<File> contributingFiles = new ArrayList<File>();
+        Set<String> writtenServices = new LinkedHashSet<String>();
+        for (File file : sourceFiles) {
+            Set<String> services = current.get(file.getAbsolutePath())
+                    .getServices();
+            if (!Collections.disjoint(affectedServices, services)) {
+                contributingFiles.add(file);
+                services.retainAll(affectedServices);
+                writtenServices.addAll(services);
+            }
+        }
+
+        for (String service : affectedServices) {
+            if (!writtenServices.contains(service)) {
+                deleteOutputs(service);
+            }
+        }
+        if (streamingWriter) {
+            writeSamplesStreaming(contributingFiles, writtenServices);
+        } else {
+            writeSamples(contributingFiles, writtenServices, parsedSamples);
+        }
+        writeKeyFilter(current);
+
+        current.save(manifestFile);
+        return affectedServices;
+    }
+
+    private Map<File, List<CodeSample>> parseFiles(final List<File> files)
+            throws Exception {
+        Map<File, List<CodeSample>> parsed = new HashMap<File, List<CodeSample>>();
+        if (parallelism > 1) {
+            List<List<CodeSample>> results = SamplesParser
+                    .parseFilesInParallel(files, parallelism);
+            for (int i = 0; i < files.size(); i++) {
+                parsed.put(files.get(i), results.get(i));
+            }
+        } else {
+            for (File file : files) {
+                parsed.put(file, SamplesParser.getSamples(file));
+            }
+        }
+        return parsed;
+    }
+
+    /**
+     * Writes the samples of the given services in the given files through the
+     * DOM writer, parsing the files not parsed yet.
+     */
+    private void writeSamples(final List<File> contributingFiles,
+            final Set<String> services, final Map<File, List<CodeSample>> parsedSamples) throws Exception {
+        deleteDisabledOutputs();
+
+        List<File> unparsedFiles = new ArrayList<File>();
+        for (File file : contributingFiles) {
+            if (!parsedSamples.containsKey(file)) {
+                unparsedFiles.add(file);
+            }
+        }
+        parsedSamples.putAll(parseFiles(unparsedFiles));
+
+        List<CodeSample> samples = new ArrayList<CodeSample>();
+        for (File file : contributingFiles) {
+            for (CodeSample sample : parsedSamples.get(file)) {
+                if (services.contains(sample.getServiceName())) {
+                    samples.add(sample);
+                }
+            }
+        }
+        if (samples.isEmpty()) {
+            return;
+        }
+        SamplesWriter.writeSamples(samples, outputDir);
+        if (writeBinaryIndex) {
+            SampleIndexWriter.writeIndexes(samples, outputDir);
+        }
+        if (renderSamples) {
+            RenderedSampleBundleWriter.writeBundles(samples, outputDir);
+        }
+    }
+
+    /**
+     * Writes the samples of the given services as the files contributing to
+     * them are parsed, then indexes and renders the written XML files one
+     * service at a time.
+     */
+    private void writeSamplesStreaming(final List<File> contributingFiles,
+            final Set<String> services) throws Exception {
+        deleteDisabledOutputs();
+        if (services.isEmpty()) {
+            return;
+        }
+        SamplesWriter.writeSamplesStreaming(contributingFiles, parallelism,
+                services, outputDir);
+        if (writeBinaryIndex) {
+            SampleIndexWriter.writeServiceIndexes(services, outputDir);
+        }
+        if (renderSamples) {
+            RenderedSampleBundleWriter.writeServiceBundles(services, outputDir);
+        }
+    }
+
+    private void deleteDisabledOutputs() throws IOException {
+        if (!writeBinaryIndex) {
+            // readers prefer an index, so a stale one would hide new samples
+            SampleIndexWriter.deleteIndexes(outputDir);
+        }
+        if (!renderSamples) {
+            RenderedSampleBundleWriter.deleteBundles(outputDir);
+        }
+    }
+
+    /**
+     * Writes the key filter of the samples of every source file, including
+     * unchanged ones, since it covers the whole output directory. A filter
+     * left from an earlier run is deleted when filters are disabled, as it
+     * would no longer cover new samples.
+     */
+    private void writeKeyFilter(final ExtractionManifest manifest)
+            throws IOException {
+        File filterFile = new File(outputDir,
+                SampleKeyFilterWriter.FILTER_FILE);
+        if (!writeKeyFilter) {
+            Files.deleteIfExists(filterFile.toPath());
+            return;
+        }
+
+        List<String> keys = new ArrayList<String>();
+        for (Entry entry : manifest.getEntries()) {
+            keys.addAll(entry.getSampleKeys());
+        }
+        SampleKeyFilterWriter.writeFilterForKeys(keys, outputDir);
+    }
+
+    private boolean outputsExist(final String service) {
+        return getXmlFile(service).isFile()
+                && (!writeBinaryIndex || getIndexFile(service).isFile())
+                && (!renderSamples || RenderedSampleBundleWriter
+                        .getBundleFile(outputDir, service).isFile());
+    }
+
+    private void deleteOutputs(final String service) throws IOException {
+        Files.deleteIfExists(getXmlFile(service).toPath());
+        Files.deleteIfExists(getIndexFile(service).toPath());
+        Files.deleteIfExists(RenderedSampleBundleWriter.getBundleFile(
+                outputDir, service).toPath());
+    }
+
+    private File getXmlFile(final String service) {
+        return new File(String.format("%s/%s.xml", outputDir, service));
+    }
+
+    private File getIndexFile(final String service) {
+        return new File(String.format("%s/%s.%s", outputDir, service,
+                SampleIndexWriter.INDEX_EXTENSION));
+    }
+
+    /**
+     * Describes the settings that affect extraction output; a manifest
+     * written with other settings is only used to delete the outputs of its
+     * services. Parallel parsing changes the sample order of the outputs,
+     * and rendering includes the stamp of the sample template, so bundles
+     * are rendered again when the template changes.
+     */
+    private String getSettings() {
+        return "extension=" + targetExtension + ",outputDir="
+                + new File(outputDir).getAbsolutePath() + ",binaryIndex="
+                + writeBinaryIndex + ",parallel=" + (parallelism > 1)
+                + ",render=" + (renderSamples ? Long
+                        .toHexString(RenderedSampleBundleWriter
+                                .getRenderStamp()) : "off");
+    }
+
+    /**
+     * Returns the hex encoded SHA-256 hash of a file's content.
+     */
+    static String hash(final File file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+
+        byte[] buffer = new byte[8192];
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+
+        byte[] bytes = digest.digest();
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[2 * i] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+            hex[2 * i + 1] = HEX_DIGITS[bytes[i] & 0xf];
+        }
+        return new String(hex);
+    }
+}
@@ -0,0 +1,324 @@
+/*
+ * Copyright 2013-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.codesamples;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.DefaultHandler;
+
+import com.amazonaws.util.OutputFiles;
+
+/**
+ * Pre-renders the HTML sample block of every sample of a service into a
+ * rendered sample bundle next to its XML file, so that the sample taglet only
+ * has to look samples up while Javadocs are generated.
+ *
+ * Bundles are named after the service with the {@value #BUNDLE_EXTENSION}
+ * extension and use the layout of {@link SampleIndexWriter} with a single
+ * field per entry, holding the rendered sample block. Samples are read back
+ * from the written XML file, so that bundles hold exactly the samples a
+ * reader of the XML file sees. The source stamp of a bundle is that of the
+ * XML file and its render stamp is that of the sample template, so readers
+ * ignore bundles left from earlier builds or rendered with other templates.
+ *
+ * The format is mirrored by BinarySampleIndex in the aws-java-sdk-samples
+ * module; changes here must be reflected there.
+ */
+public class RenderedSampleBundleWriter {
+
+    /**
+     * File extension of rendered sample bundles.
+     */
+    static final String BUNDLE_EXTENSION = "html.idx";
+
+    private static final int FIELD_COUNT = 1;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * Writes the rendered sample bundle of each service of the given samples,
+     * whose XML files must already be written to the output directory, and
+     * deletes bundles of services that no longer have an XML file there.
+     *
+     * @param samples
+     *            samples to render
+     * @param outputDir
+     *            sample output directory
+     * @throws Exception
+     *             if an XML file cannot be parsed or a bundle cannot be
+     *             written
+     */
+    public static void writeBundles(final List<CodeSample> samples,
+            final String outputDir) throws Exception {
+        Set<String> services = new LinkedHashSet<String>();
+        for (CodeSample sample : samples) {
+            services.add(sample.getServiceName());
+        }
+        writeServiceBundles(services, outputDir);
+    }
+
+    /**
+     * Writes the rendered sample bundles of services whose XML files are in
+     * the output directory, and deletes bundles of services that no longer
+     * have an XML file there. A bundle that is already up to date is left
+     * untouched.
+     *
+     * @param services
+     *            names of services to render
+     * @param outputDir
+     *            sample output directory
+     * @throws Exception
+     *             if an XML file cannot be parsed or a bundle cannot be
+     *             written
+     */
+    public static void writeServiceBundles(final Collection<String> services,
+            final String outputDir) throws Exception {
+        SampleHTMLRenderer renderer = SampleHTMLRenderer.create();
+        long renderStamp = renderer.getTemplateStamp();
+        SAXParser saxParser = SAXParserFactory.newInstance().newSAXParser();
+
+        for (String service : services) {
+            File xmlFile = new File(outputDir, service + ".xml");
+            if (!xmlFile.isFile()) {
+                continue;
+            }
+
+            BundleXMLHandler handler = new BundleXMLHandler(renderer);
+            saxParser.parse(xmlFile, handler);
+            saxParser.reset();
+
+            ByteArrayOutputStream bundle = new ByteArrayOutputStream();
+            writeBundle(handler.getRenderedSamples(),
+                    SampleIndexWriter.sourceStamp(xmlFile), renderStamp,
+                    bundle);
+            OutputFiles.writeIfChanged(getBundleFile(outputDir, service),
+                    bundle.toByteArray());
+        }
+        deleteOrphanBundles(outputDir);
+    }
+
+    /**
+     * Deletes every rendered sample bundle in a sample output directory.
+     * Readers prefer a bundle over rendering samples themselves, so bundles
+     * left from an earlier run must go when bundles are no longer written.
+     *
+     * @param outputDir
+     *            sample output directory
+     * @throws IOException
+     *             if a bundle cannot be deleted
+     */
+    public static void deleteBundles(final String outputDir)
+            throws IOException {
+        for (File bundle : listBundles(outputDir)) {
+            Files.deleteIfExists(bundle.toPath());
+        }
+    }
+
+    /**
+     * Returns the rendered sample bundle file of a service.
+     *
+     * @param outputDir
+     *            sample output directory
+     * @param service
+     *            name of service
+     * @return bundle file
+     */
+    static File getBundleFile(final String outputDir, final String service) {
+        return new File(outputDir, service + "." + BUNDLE_EXTENSION);
+    }
+
+    /**
+     * Returns the stamp of the sample template bundles are rendered with.
+     *
+     * @return render stamp
+     */
+    static long getRenderStamp() {
+        return SampleHTMLRenderer.create().getTemplateStamp();
+    }
+
+    /**
+     * Writes a rendered sample bundle.
+     *
+     * @param renderedSamples
+     *            rendered sample blocks of a single service, keyed by id
+     * @param sourceStamp
+     *            stamp of the service XML file the samples were read from
+     * @param renderStamp
+     *            stamp of the template the samples were rendered with
+     * @param out
+     *            stream to write the bundle to
+     * @throws IOException
+     *             if an error occurs while writing the bundle
+     */
+    static void writeBundle(final Map<String, String> renderedSamples,
+            final long sourceStamp, final long renderStamp,
+            final OutputStream out) throws IOException {
+        List<byte[]> ids = new ArrayList<byte[]>();
+        for (String id : renderedSamples.keySet()) {
+            ids.add(id.getBytes(UTF8));
+        }
+        Collections.sort(ids, SampleIndexWriter.UNSIGNED_BYTES_ORDER);
+
+        List<byte[]> htmls = new ArrayList<byte[]>();
+        for (byte[] id : ids) {
+            htmls.add(renderedSamples.get(new String(id, UTF8)).getBytes(UTF8));
+        }
+
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(SampleIndexWriter.MAGIC);
+        data.writeInt(SampleIndexWriter.VERSION);
+        data.writeInt(FIELD_COUNT);
+        data.writeInt(ids.size());
+        data.writeLong(sourceStamp);
+        data.writeLong(renderStamp);
+
+        int offset = SampleIndexWriter.HEADER_SIZE + 4 * ids.size();
+        for (int i = 0; i < ids.size(); i++) {
+            data.writeInt(offset);
+            offset += 8 + ids.get(i).length + htmls.get(i).length;
+        }
+
+        for (int i = 0; i < ids.size(); i++) {
+            data.writeInt(ids.get(i).length);
+            data.write(ids.get(i));
+            data.writeInt(htmls.get(i).length);
+            data.write(htmls.get(i));
+        }
+        data.flush();
+    }
+
+    /**
+     * Deletes the bundles of services without an XML file.
+     */
+    private static void deleteOrphanBundles(final String outputDir)
+            throws IOException {
+        for (File bundle : listBundles(outputDir)) {
+            String name = bundle.getName();
+            String service = name.substring(0, name.length()
+                    - BUNDLE_EXTENSION.length() - 1);
+            if (!new File(outputDir, service + ".xml").isFile()) {
+                Files.deleteIfExists(bundle.toPath());
+            }
+        }
+    }
+
+    private static File[] listBundles(final String outputDir) {
+        final String suffix = "." + BUNDLE_EXTENSION;
+        File[] bundles = new File(outputDir).listFiles(new FilenameFilter() {
+            public boolean accept(final File dir, final String name) {
+                return name.endsWith(suffix);
+            }
+        });
+        return bundles == null ? new File[0] : bundles;
+    }
+
+    /**
+     * SAX handler that renders every complete sample of a service XML file,
+     * reading samples the way SampleIndexXMLParser in the
+     * aws-java-sdk-samples module does: later definitions of an id replace
+     * earlier ones, and incomplete samples are dropped.
+     */
+    private static final class BundleXMLHandler extends DefaultHandler {
+
+        private final SampleHTMLRenderer renderer;
+        private final Map<String, String> renderedSamples = new LinkedHashMap<String, String>();
+        private final StringBuilder contentBuffer = new StringBuilder();
+
+        private boolean inSample;
+        private boolean inContent;
+        private String sampleId;
+        private String sampleTitle;
+        private String sampleDescription;
+        private String sampleContent;
+
+        BundleXMLHandler(final SampleHTMLRenderer renderer) {
+            this.renderer = renderer;
+        }
+
+        @Override
+        public void startElement(final String uri, final String localName,
+                final String qName, final Attributes attributes) {
+            if (qName.equals("sample")) {
+                inSample = true;
+                sampleId = attributes.getValue("id");
+                sampleTitle = attributes.getValue("title");
+                sampleDescription = attributes.getValue("description");
+                sampleContent = null;
+            } else if (qName.equals("content") && inSample) {
+                inContent = true;
+                contentBuffer.setLength(0);
+            }
+        }
+
+        @Override
+        public void characters(final char[] ch, final int start,
+                final int length) {
+            if (inContent) {
+                contentBuffer.append(ch, start, length);
+            }
+        }
+
+        @Override
+        public void endElement(final String uri, final String localName,
+                final String qName) {
+            if (qName.equals("content") && inContent) {
+                sampleContent = contentBuffer.toString();
+                inContent = false;
+            } else if (qName.equals("sample") && inSample) {
+                addSample();
+                inSample = false;
+            }
+        }
+
+        Map<String, String> getRenderedSamples() {
+            return renderedSamples;
+        }
+
+        private void addSample() {
+            if (isNullOrEmpty(sampleId)) {
+                return;
+            }
+            if (isNullOrEmpty(sampleTitle) || isNullOrEmpty(sampleDescription)
+                    || isNullOrEmpty(sampleContent)) {
+                renderedSamples.remove(sampleId);
+            } else {
+                renderedSamples.put(sampleId, renderer.render(sampleTitle,
+                        sampleDescription, sampleContent));
+            }
+        }
+
+        private static boolean isNullOrEmpty(final String value) {
+            return value == null || value.isEmpty();
+        }
+    }
+}
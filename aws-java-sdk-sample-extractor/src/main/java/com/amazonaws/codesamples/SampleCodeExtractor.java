@@ -15,7 +15,9 @@
 package com.amazonaws.codesamples;
 
 import java.io.File;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
@@ -26,7 +28,8 @@ import org.apache.maven.plugins.annotations.Parameter;
 /**
  * Maven mojo that is responsible for scanning input source files and extracting
  * sections marked up as code samples. Output are generated XML files containing
- * the samples.
+ * the samples and, optionally, a binary index and a rendered sample bundle of
+ * each XML file and a filter of the keys of all samples.
  */
 @Mojo(name = "ExtractSamples")
 public class SampleCodeExtractor extends AbstractMojo {
@@ -43,6 +46,56 @@ public class SampleCodeExtractor extends AbstractMojo {
     @Parameter(defaultValue = "${project.build.outputDirectory}")
     private String projectOutputDir;
 
+    @Parameter(defaultValue = "${project.build.directory}")
+    private String projectBuildDir;
+
+    /**
+     * Number of source files to parse concurrently. One parses files serially
+     * in directory order; larger values parse on a fork-join pool and order
+     * samples by source file path. Zero or less uses one thread per available
+     * processor.
+     */
+    @Parameter(property = "scanThreads", defaultValue = "1")
+    private int scanThreads;
+
+    /**
+     * Whether to stream samples to their service XML files with StAX instead
+     * of building a DOM for every service before writing.
+     */
+    @Parameter(property = "streamingWriter", defaultValue = "false")
+    private boolean streamingWriter;
+
+    /**
+     * Whether to write a binary sample index next to each service XML file.
+     */
+    @Parameter(property = "writeBinaryIndex", defaultValue = "true")
+    private boolean writeBinaryIndex;
+
+    /**
+     * Whether to write a Bloom filter of the keys of every sample in the
+     * output directory, so that readers can reject lookups of missing samples
+     * without opening any sample file.
+     */
+    @Parameter(property = "writeKeyFilter", defaultValue = "true")
+    private boolean writeKeyFilter;
+
+    /**
+     * Whether to pre-render the HTML block of every sample into a rendered
+     * sample bundle next to each service XML file, so that the sample taglet
+     * only looks samples up. Bundles left from earlier runs are deleted when
+     * disabled.
+     */
+    @Parameter(property = "renderSamples", defaultValue = "false")
+    private boolean renderSamples;
+
+    /**
+     * Whether to keep a manifest of parsed source files in the build directory
+     * and only reparse files, and rewrite service outputs, that changed since
+     * the previous run. Samples keep the order a full run would give them.
+     */
+    @Parameter(property = "incremental", defaultValue = "true")
+    private boolean incremental;
+
     /**
      * Plugin entry point.
      */
@@ -63,13 +116,106 @@ public class SampleCodeExtractor extends AbstractMojo {
         }
         File[] sourceFiles = new File(projectSourceDir).listFiles();
         String samplesOutputDir = projectOutputDir + sampleSubDir;
+        File manifestFile = incremental ? getManifestFile() : null;
 
         try {
-            List<CodeSample> samples = SamplesParser.getSamples(sourceFiles,
-                    sourceExtension);
-            SamplesWriter.writeSamples(samples, samplesOutputDir);
+            int parallelism = scanThreads > 0 ? scanThreads : Runtime
+                    .getRuntime().availableProcessors();
+            if (incremental) {
+                Set<String> services = new IncrementalSampleExtractor(
+                        sourceExtension, samplesOutputDir, parallelism,
+                        streamingWriter, writeBinaryIndex, writeKeyFilter,
+                        renderSamples)
+                        .extract(sourceFiles, manifestFile);
+                getLog().info(
+                        "Updated samples of " + services.size()
+                                + " service(s)");
+                return;
+            }
+
+            if (streamingWriter) {
+                writeSamplesStreaming(sourceFiles, parallelism,
+                        samplesOutputDir);
+            } else {
+                writeSamples(SamplesParser.getSamples(sourceFiles,
+                        sourceExtension, parallelism), samplesOutputDir);
+            }
         } catch (Exception e) {
             throw new MojoFailureException("Failed to extract samples", e);
         }
     }
+
+    /**
+     * Writes samples through the DOM writer, which needs every sample at
+     * once.
+     */
+    private void writeSamples(final List<CodeSample> samples,
+            final String samplesOutputDir) throws Exception {
+        SamplesWriter.writeSamples(samples, samplesOutputDir);
+        if (writeBinaryIndex) {
+            SampleIndexWriter.writeIndexes(samples, samplesOutputDir);
+        } else {
+            // readers prefer an index, so a stale one would hide new samples
+            SampleIndexWriter.deleteIndexes(samplesOutputDir);
+        }
+        if (renderSamples) {
+            RenderedSampleBundleWriter.writeBundles(samples, samplesOutputDir);
+        } else {
+            RenderedSampleBundleWriter.deleteBundles(samplesOutputDir);
+        }
+        if (writeKeyFilter) {
+            SampleKeyFilterWriter.writeFilter(samples, samplesOutputDir);
+        } else {
+            deleteKeyFilter(samplesOutputDir);
+        }
+    }
+
+    /**
+     * Writes samples as source files are parsed, keeping only the keys of
+     * written samples, and indexes and renders the written XML files one
+     * service at a time.
+     */
+    private void writeSamplesStreaming(final File[] sourceFiles,
+            final int parallelism, final String samplesOutputDir)
+            throws Exception {
+        List<String> keys = SamplesWriter.writeSamplesStreaming(SamplesParser
+                .getSourceFiles(sourceFiles, sourceExtension, parallelism),
+                parallelism, null, samplesOutputDir);
+        Set<String> services = new LinkedHashSet<String>();
+        for (String key : keys) {
+            services.add(key.substring(0, key.indexOf('.')));
+        }
+
+        if (writeBinaryIndex) {
+            SampleIndexWriter.writeServiceIndexes(services, samplesOutputDir);
+        } else {
+            // readers prefer an index, so a stale one would hide new samples
+            SampleIndexWriter.deleteIndexes(samplesOutputDir);
+        }
+        if (renderSamples) {
+            RenderedSampleBundleWriter.writeServiceBundles(services,
+                    samplesOutputDir);
+        } else {
+            RenderedSampleBundleWriter.deleteBundles(samplesOutputDir);
+        }
+        if (writeKeyFilter) {
+            SampleKeyFilterWriter.writeFilterForKeys(keys, samplesOutputDir);
+        } else {
+            deleteKeyFilter(samplesOutputDir);
+        }
+    }
+
+    private static void deleteKeyFilter(final String samplesOutputDir) {
+        // a stale filter would reject samples added since
+        new File(samplesOutputDir, SampleKeyFilterWriter.FILTER_FILE).delete();
+    }
+
+    private File getManifestFile() throws MojoFailureException {
+        if (projectBuildDir == null || projectBuildDir.isEmpty()) {
+            throw new MojoFailureException(
+                    "Unable to determine project build dir!");
+        }
+        return new File(projectBuildDir, "sample-extraction/"
+                + sampleSubDir.replaceAll("[^A-Za-z0-9]+", "_") + ".manifest");
+    }
 }
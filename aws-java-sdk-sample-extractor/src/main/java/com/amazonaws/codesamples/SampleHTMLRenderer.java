@@ -0,0 +1,208 @@
+/*
+ * Copyright 2013-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.codesamples;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Renders the HTML sample block of a sample for rendered sample bundles.
+ *
+ * This mirrors the sample template of SampleHTMLTemplates in the
+ * aws-java-sdk-samples module, which does not depend on this module: the same
+ * built-in template, the same override resource named by the
+ * {@value #TEMPLATES_PROPERTY} system property, the same fallback when the
+ * override does not compile, and the same HTML escaping. Bundles are stamped
+ * with {@link #getTemplateStamp()}, and the sample taglet ignores bundles
+ * whose stamp differs from that of the template it renders with itself.
+ */
+class SampleHTMLRenderer {
+
+    static final String TEMPLATES_PROPERTY = "com.amazonaws.codesamples.templates";
+    static final String DEFAULT_TEMPLATES_RESOURCE = "sample-templates.properties";
+
+    private static final String TEMPLATE_KEY = "sample";
+    private static final String SLOT_START = "${";
+    private static final String SLOT_END = "}";
+    private static final String[] SLOT_NAMES = { "TITLE", "DESCRIPTION",
+            "CONTENT" };
+
+    private static final String SAMPLE = "<h5>${TITLE}</h5>"
+            + "<div class=\"block\">${DESCRIPTION}<br/>"
+            + " <pre class=\"brush: java\">${CONTENT}</pre></div>";
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final String template;
+    private final List<String> literals = new ArrayList<String>();
+    private final List<Integer> slots = new ArrayList<Integer>();
+
+    /**
+     * Creates a renderer of the sample template in effect: the override from
+     * the classpath resource named by {@value #TEMPLATES_PROPERTY} if there is
+     * one that compiles, and the built-in template otherwise.
+     *
+     * @return renderer of the sample template
+     */
+    static SampleHTMLRenderer create() {
+        String override = loadOverride(System.getProperty(TEMPLATES_PROPERTY,
+                DEFAULT_TEMPLATES_RESOURCE));
+        if (override != null) {
+            try {
+                return new SampleHTMLRenderer(override);
+            } catch (IllegalArgumentException e) {
+                System.err.println("Could not compile the sample template,"
+                        + " using the built-in template: " + e.getMessage());
+            }
+        }
+        return new SampleHTMLRenderer(SAMPLE);
+    }
+
+    /**
+     * Ctor.
+     *
+     * @param template
+     *            sample template using the TITLE, DESCRIPTION and CONTENT
+     *            slots
+     * @throws IllegalArgumentException
+     *             if the template uses an unknown or unterminated slot
+     */
+    SampleHTMLRenderer(final String template) {
+        this.template = template;
+        int literalStart = 0;
+        int slotStart;
+        while ((slotStart = template.indexOf(SLOT_START, literalStart)) >= 0) {
+            int slotEnd = template.indexOf(SLOT_END, slotStart);
+            if (slotEnd < 0) {
+                throw new IllegalArgumentException(
+                        "Unterminated template slot at " + slotStart);
+            }
+            literals.add(template.substring(literalStart, slotStart));
+            slots.add(slotIndex(template.substring(slotStart
+                    + SLOT_START.length(), slotEnd)));
+            literalStart = slotEnd + SLOT_END.length();
+        }
+        literals.add(template.substring(literalStart));
+    }
+
+    /**
+     * Returns the stamp of the template: the first 8 bytes of the SHA-256
+     * hash of its UTF-8 text.
+     *
+     * @return template stamp
+     */
+    long getTemplateStamp() {
+        try {
+            return SampleIndexWriter.stamp(new ByteArrayInputStream(template
+                    .getBytes(UTF8)));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Renders the HTML sample block of a sample.
+     *
+     * @param title
+     *            sample title
+     * @param description
+     *            sample description
+     * @param content
+     *            sample content
+     * @return rendered sample block
+     */
+    String render(final String title, final String description,
+            final String content) {
+        String[] values = { title, description, content };
+        StringBuilder html = new StringBuilder();
+        for (int i = 0; i < slots.size(); i++) {
+            html.append(literals.get(i));
+            escape(values[slots.get(i)], html);
+        }
+        return html.append(literals.get(slots.size())).toString();
+    }
+
+    /**
+     * HTML escapes text the way HtmlEscapingAppendable in the
+     * aws-java-sdk-samples module does.
+     */
+    private static void escape(final String text, final StringBuilder out) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+            case '<':
+                out.append("&lt;");
+                break;
+            case '>':
+                out.append("&gt;");
+                break;
+            case '&':
+                out.append("&amp;");
+                break;
+            case '"':
+                out.append("&quot;");
+                break;
+            case '\'':
+                out.append("&#39;");
+                break;
+            default:
+                out.append(c);
+            }
+        }
+    }
+
+    private static int slotIndex(final String name) {
+        for (int i = 0; i < SLOT_NAMES.length; i++) {
+            if (SLOT_NAMES[i].equals(name)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unknown template slot: " + name);
+    }
+
+    /**
+     * Loads the sample template override from a classpath resource; a
+     * missing or unreadable resource leaves the built-in template in place.
+     */
+    private static String loadOverride(final String resourceName) {
+        InputStream in = SampleHTMLRenderer.class.getClassLoader()
+                .getResourceAsStream(resourceName);
+        if (in == null) {
+            return null;
+        }
+
+        Properties templates = new Properties();
+        try {
+            templates.load(in);
+        } catch (IOException e) {
+            System.err.println("Could not load sample templates from "
+                    + resourceName + ", using the built-in templates.");
+            e.printStackTrace();
+            return null;
+        } finally {
+            try {
+                in.close();
+            } catch (IOException e) {
+                // nothing left to read
+            }
+        }
+        return templates.getProperty(TEMPLATE_KEY);
+    }
+}
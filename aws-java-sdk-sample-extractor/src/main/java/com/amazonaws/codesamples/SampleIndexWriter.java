@@ -0,0 +1,391 @@
+/*
+ * Copyright 2013-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.codesamples;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import com.amazonaws.util.OutputFiles;
+
+/**
+ * Writes a compact binary index of a service's samples, allowing readers to
+ * resolve a sample with a binary search instead of parsing the service XML.
+ *
+ * Layout (all integers are big-endian 32-bit, stamps 64-bit, all offsets are
+ * absolute):
+ *
+ * <pre>
+ * header:  MAGIC, VERSION, field count (3), entry count, source stamp,
+ *          render stamp (0)
+ * table:   entry offset for each entry, sorted by unsigned UTF-8 id bytes
+ * entries: length-prefixed UTF-8 id, title, description and content
+ * </pre>
+ *
+ * The source stamp is the first 8 bytes of the SHA-256 hash of the service
+ * XML file the index was written next to, so readers can tell an index that
+ * no longer matches its XML file and ignore it. Rendered sample bundles of
+ * {@link RenderedSampleBundleWriter} use the same layout.
+ *
+ * The format is mirrored by BinarySampleIndex in the aws-java-sdk-samples
+ * module; changes here must be reflected there.
+ */
+public class SampleIndexWriter {
+
+    /**
+     * Binary index constants.
+     */
+    static final String INDEX_EXTENSION = "idx";
+    static final int MAGIC = 0x41575353;
+    static final int VERSION = 2;
+    static final int FIELD_COUNT = 3;
+    static final int HEADER_SIZE = 32;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * Writes a binary index file for each service in the given samples,
+     * stamped with the service XML file, which must already be written to
+     * the output directory. An index file that is already up to date is left
+     * untouched.
+     *
+     * @param samples
+     *            list of samples to index
+     * @param outputDir
+     *            sample output directory
+     * @throws IOException
+     *             if an error occurs while writing an index
+     */
+    public static void writeIndexes(final List<CodeSample> samples,
+            final String outputDir) throws IOException {
+        Map<String, List<CodeSample>> serviceSamples = new LinkedHashMap<String, List<CodeSample>>();
+        for (CodeSample sample : samples) {
+            List<CodeSample> list = serviceSamples.get(sample.getServiceName());
+            if (list == null) {
+                list = new ArrayList<CodeSample>();
+                serviceSamples.put(sample.getServiceName(), list);
+            }
+            list.add(sample);
+        }
+
+        new File(outputDir).mkdirs();
+
+        for (Map.Entry<String, List<CodeSample>> entry : serviceSamples
+                .entrySet()) {
+            File outputFile = new File(String.format("%s/%s.%s", outputDir,
+                    entry.getKey(), INDEX_EXTENSION));
+            long sourceStamp = sourceStamp(new File(String.format(
+                    "%s/%s.xml", outputDir, entry.getKey())));
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            writeIndex(entry.getValue(), sourceStamp, out);
+            OutputFiles.writeIfChanged(outputFile, out.toByteArray());
+        }
+    }
+
+    /**
+     * Writes the binary index file of each of the given services from its
+     * XML file in the output directory, reading one service at a time, so
+     * that samples written by {@link SamplesStreamWriter} can be indexed
+     * without holding every sample. The indexes match those
+     * {@link #writeIndexes(List, String)} writes for the same samples.
+     * Services without an XML file are skipped, and an index file that is
+     * already up to date is left untouched.
+     *
+     * @param services
+     *            names of services to index
+     * @param outputDir
+     *            sample output directory
+     * @throws Exception
+     *             if an XML file cannot be parsed or an index cannot be
+     *             written
+     */
+    public static void writeServiceIndexes(final Collection<String> services,
+            final String outputDir) throws Exception {
+        SAXParser saxParser = SAXParserFactory.newInstance().newSAXParser();
+        for (String service : services) {
+            File xmlFile = new File(String.format("%s/%s.xml", outputDir,
+                    service));
+            if (!xmlFile.isFile()) {
+                continue;
+            }
+
+            IndexXMLHandler handler = new IndexXMLHandler();
+            saxParser.parse(xmlFile, handler);
+            saxParser.reset();
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            writeIndex(handler.getEntries(), sourceStamp(xmlFile), out);
+            OutputFiles.writeIfChanged(new File(String.format("%s/%s.%s",
+                    outputDir, service, INDEX_EXTENSION)), out.toByteArray());
+        }
+    }
+
+    /**
+     * Deletes every binary index file in a sample output directory, leaving
+     * rendered sample bundles alone. Readers prefer an index over the XML
+     * file, so indexes left from an earlier run must go when indexes are no
+     * longer written.
+     *
+     * @param outputDir
+     *            sample output directory
+     * @throws IOException
+     *             if an index file cannot be deleted
+     */
+    public static void deleteIndexes(final String outputDir)
+            throws IOException {
+        final String suffix = "." + INDEX_EXTENSION;
+        File[] indexes = new File(outputDir).listFiles(new FilenameFilter() {
+            public boolean accept(final File dir, final String name) {
+                String service = name.substring(0,
+                        Math.max(0, name.length() - suffix.length()));
+                return name.endsWith(suffix) && service.indexOf('.') < 0;
+            }
+        });
+        if (indexes == null) {
+            return;
+        }
+        for (File index : indexes) {
+            Files.deleteIfExists(index.toPath());
+        }
+    }
+
+    /**
+     * Returns the stamp of a service XML file: the first 8 bytes of the
+     * SHA-256 hash of its content.
+     *
+     * @param xmlFile
+     *            service XML file
+     * @return stamp of the file
+     * @throws IOException
+     *             if the file cannot be read
+     */
+    static long sourceStamp(final File xmlFile) throws IOException {
+        try (InputStream in = Files.newInputStream(xmlFile.toPath())) {
+            return stamp(in);
+        }
+    }
+
+    /**
+     * Returns the first 8 bytes of the SHA-256 hash of some content.
+     *
+     * @param in
+     *            content to stamp
+     * @return stamp of the content
+     * @throws IOException
+     *             if the content cannot be read
+     */
+    static long stamp(final InputStream in) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) > 0) {
+            digest.update(buffer, 0, read);
+        }
+        return ByteBuffer.wrap(digest.digest()).getLong();
+    }
+
+    /**
+     * Writes a binary index of the given samples. If a sample id occurs more
+     * than once the last occurrence wins, as it does for XML readers.
+     *
+     * @param samples
+     *            samples of a single service
+     * @param sourceStamp
+     *            stamp of the service XML file holding the same samples
+     * @param out
+     *            stream to write the index to
+     * @throws IOException
+     *             if an error occurs while writing the index
+     */
+    static void writeIndex(final List<CodeSample> samples,
+            final long sourceStamp, final OutputStream out) throws IOException {
+        Map<String, byte[]> entries = new LinkedHashMap<String, byte[]>();
+        for (CodeSample sample : samples) {
+            entries.put(sample.getId(), encodeEntry(sample.getId(),
+                    sample.getTitle(), sample.getDescription(),
+                    sample.getFormattedCode()));
+        }
+        writeIndex(entries, sourceStamp, out);
+    }
+
+    /**
+     * Writes a binary index of encoded entries keyed by sample id.
+     */
+    private static void writeIndex(final Map<String, byte[]> entries,
+            final long sourceStamp, final OutputStream out) throws IOException {
+        List<byte[]> ids = new ArrayList<byte[]>();
+        for (String id : entries.keySet()) {
+            ids.add(id.getBytes(UTF8));
+        }
+        Collections.sort(ids, UNSIGNED_BYTES_ORDER);
+
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(FIELD_COUNT);
+        data.writeInt(ids.size());
+        data.writeLong(sourceStamp);
+        data.writeLong(0L);
+
+        int offset = HEADER_SIZE + 4 * ids.size();
+        List<byte[]> sortedEntries = new ArrayList<byte[]>();
+        for (byte[] id : ids) {
+            byte[] entry = entries.get(new String(id, UTF8));
+            sortedEntries.add(entry);
+            data.writeInt(offset);
+            offset += entry.length;
+        }
+
+        for (byte[] entry : sortedEntries) {
+            data.write(entry);
+        }
+        data.flush();
+    }
+
+    private static byte[] encodeEntry(final String id, final String title,
+            final String description, final String content)
+            throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(bytes);
+        writeField(data, id);
+        writeField(data, title);
+        writeField(data, description);
+        writeField(data, content);
+        data.flush();
+        return bytes.toByteArray();
+    }
+
+    private static void writeField(final DataOutputStream data,
+            final String value) throws IOException {
+        byte[] bytes = value.getBytes(UTF8);
+        data.writeInt(bytes.length);
+        data.write(bytes);
+    }
+
+    /**
+     * Orders UTF-8 ids by their unsigned bytes, as BinarySampleIndex in the
+     * aws-java-sdk-samples module searches them.
+     */
+    static final Comparator<byte[]> UNSIGNED_BYTES_ORDER = new Comparator<byte[]>() {
+        public int compare(final byte[] left, final byte[] right) {
+            int length = Math.min(left.length, right.length);
+            for (int i = 0; i < length; i++) {
+                int diff = (left[i] & 0xff) - (right[i] & 0xff);
+                if (diff != 0) {
+                    return diff;
+                }
+            }
+            return left.length - right.length;
+        }
+    };
+
+    /**
+     * SAX handler that encodes every sample of a service XML file as written
+     * by the sample writers. As in {@link #writeIndex}, later definitions of
+     * an id replace earlier ones.
+     */
+    private static final class IndexXMLHandler extends DefaultHandler {
+
+        private final Map<String, byte[]> entries = new LinkedHashMap<String, byte[]>();
+        private final StringBuilder contentBuffer = new StringBuilder();
+
+        private boolean inSample;
+        private boolean inContent;
+        private String sampleId;
+        private String sampleTitle;
+        private String sampleDescription;
+        private String sampleContent;
+
+        @Override
+        public void startElement(final String uri, final String localName,
+                final String qName, final Attributes attributes) {
+            if (qName.equals(SamplesWriter.SAMPLE_ELEMENT)) {
+                inSample = true;
+                sampleId = attributes.getValue(SamplesWriter.ID_ATTRIBUTE);
+                sampleTitle = attributes
+                        .getValue(SamplesWriter.TITLE_ATTRIBUTE);
+                sampleDescription = attributes
+                        .getValue(SamplesWriter.DESC_ATTRIBUTE);
+                sampleContent = "";
+            } else if (qName.equals(SamplesWriter.CONTENT_ELEMENT) && inSample) {
+                inContent = true;
+                contentBuffer.setLength(0);
+            }
+        }
+
+        @Override
+        public void characters(final char[] ch, final int start,
+                final int length) {
+            if (inContent) {
+                contentBuffer.append(ch, start, length);
+            }
+        }
+
+        @Override
+        public void endElement(final String uri, final String localName,
+                final String qName) throws SAXException {
+            if (qName.equals(SamplesWriter.CONTENT_ELEMENT) && inContent) {
+                sampleContent = contentBuffer.toString();
+                inContent = false;
+            } else if (qName.equals(SamplesWriter.SAMPLE_ELEMENT) && inSample) {
+                inSample = false;
+                if (sampleId == null || sampleTitle == null
+                        || sampleDescription == null) {
+                    throw new SAXException("Sample element is missing an "
+                            + "attribute written by the sample writers");
+                }
+                try {
+                    entries.put(sampleId, encodeEntry(sampleId, sampleTitle,
+                            sampleDescription, sampleContent));
+                } catch (IOException e) {
+                    throw new SAXException(e);
+                }
+            }
+        }
+
+        Map<String, byte[]> getEntries() {
+            return entries;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2013-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.codesamples;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.amazonaws.util.OutputFiles;
+
+/**
+ * Writes a Bloom filter of the <code>service.id</code> keys of every sample
+ * in a sample output directory, allowing readers to reject lookups of
+ * samples that do not exist without opening any sample file.
+ *
+ * Layout (all integers are big-endian, ints 32-bit and words 64-bit):
+ *
+ * <pre>
+ * header:   MAGIC, VERSION, hash count, service count
+ * services: length-prefixed UTF-8 name of each covered service, sorted
+ * bits:     word count, then the filter words
+ * </pre>
+ *
+ * A key sets the bits <code>(h1 + i * h2) mod bits</code> for each i below
+ * the hash count, where h1 and h2 are the low and high halves of the 64-bit
+ * FNV-1a hash of the key's chars, each char hashed as its low then its high
+ * byte, and the sum is taken as a non-negative int. Readers may only trust
+ * the filter for the services it covers.
+ *
+ * The format is mirrored by SampleKeyFilter in the aws-java-sdk-samples
+ * module; changes here must be reflected there.
+ */
+public class SampleKeyFilterWriter {
+
+    /**
+     * Name of the filter file in the sample output directory.
+     */
+    public static final String FILTER_FILE = "sample-keys.bloom";
+
+    /**
+     * Bloom filter constants. Ten bits per key and seven hashes give a false
+     * positive rate of about one percent.
+     */
+    static final int MAGIC = 0x4157534B;
+    static final int VERSION = 1;
+    static final int HASH_COUNT = 7;
+    static final int BITS_PER_KEY = 10;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * Writes the filter of the given samples to the sample output directory.
+     * A filter file that is already up to date is left untouched.
+     *
+     * @param samples
+     *            every sample written to the output directory
+     * @param outputDir
+     *            sample output directory
+     * @throws IOException
+     *             if an error occurs while writing the filter
+     */
+    public static void writeFilter(final List<CodeSample> samples,
+            final String outputDir) throws IOException {
+        List<String> keys = new ArrayList<String>();
+        for (CodeSample sample : samples) {
+            keys.add(sample.getServiceName() + "." + sample.getId());
+        }
+        writeFilterForKeys(keys, outputDir);
+    }
+
+    /**
+     * Writes the filter of the given sample keys to the sample output
+     * directory. A filter file that is already up to date is left untouched.
+     *
+     * @param sampleKeys
+     *            <code>service.id</code> key of every sample written to the
+     *            output directory
+     * @param outputDir
+     *            sample output directory
+     * @throws IOException
+     *             if an error occurs while writing the filter
+     */
+    public static void writeFilterForKeys(final Collection<String> sampleKeys,
+            final String outputDir) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeFilter(sampleKeys, out);
+        OutputFiles.writeIfChanged(new File(outputDir, FILTER_FILE),
+                out.toByteArray());
+    }
+
+    /**
+     * Writes a filter of the given sample keys.
+     *
+     * @param sampleKeys
+     *            <code>service.id</code> sample keys
+     * @param out
+     *            stream to write the filter to
+     * @throws IOException
+     *             if an error occurs while writing the filter
+     */
+    static void writeFilter(final Collection<String> sampleKeys,
+            final OutputStream out) throws IOException {
+        Set<String> keys = new TreeSet<String>(sampleKeys);
+        Set<String> services = new TreeSet<String>();
+        for (String key : keys) {
+            services.add(key.substring(0, key.indexOf('.')));
+        }
+
+        int words = Math.max(1, (keys.size() * BITS_PER_KEY + 63) / 64);
+        long[] bits = new long[words];
+        int bitCount = words * 64;
+        for (String key : keys) {
+            long hash = hash(key);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 0; i < HASH_COUNT; i++) {
+                int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % bitCount;
+                bits[bit >>> 6] |= 1L << bit;
+            }
+        }
+
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(HASH_COUNT);
+        data.writeInt(services.size());
+        for (String service : services) {
+            byte[] bytes = service.getBytes(UTF8);
+            data.writeInt(bytes.length);
+            data.write(bytes);
+        }
+        data.writeInt(words);
+        for (long word : bits) {
+            data.writeLong(word);
+        }
+        data.flush();
+    }
+
+    /**
+     * Returns the 64-bit FNV-1a hash of a key's chars.
+     */
+    static long hash(final String key) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            hash = (hash ^ (c & 0xff)) * FNV_PRIME;
+            hash = (hash ^ (c >>> 8)) * FNV_PRIME;
+        }
+        return hash;
+    }
+}
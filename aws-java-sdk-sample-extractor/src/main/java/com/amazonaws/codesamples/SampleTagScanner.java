@@ -0,0 +1,235 @@
+/*
+ * Copyright 2013-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.codesamples;
+
+/**
+ * Recognizes sample markup comments in source lines without regular
+ * expressions. Lines without a "//" marker are rejected with a single
+ * {@link String#indexOf(String)}, and no objects are allocated unless a tag
+ * value is requested.
+ *
+ * A line is matched as if it were trimmed and then searched with each of the
+ * following patterns in turn, the first pattern that is found anywhere in the
+ * line winning:
+ *
+ * <pre>
+ * //\s*BEGIN_SAMPLE:([^.]+)\.([^.]+)$
+ * //\s*END_SAMPLE
+ * //\s*BEGIN_HIDDEN
+ * //\s*END_HIDDEN
+ * //\s*TITLE:(.*)$
+ * //\s*DESCRIPTION:(.*)$
+ * </pre>
+ *
+ * Instances are reusable but not thread-safe.
+ */
+public final class SampleTagScanner {
+
+    /**
+     * Sample markup tags, in order of precedence.
+     */
+    public enum Tag {
+        BEGIN_SAMPLE("BEGIN_SAMPLE:"),
+        END_SAMPLE("END_SAMPLE"),
+        BEGIN_HIDDEN("BEGIN_HIDDEN"),
+        END_HIDDEN("END_HIDDEN"),
+        TITLE("TITLE:"),
+        DESCRIPTION("DESCRIPTION:"),
+        NONE(null);
+
+        private final String keyword;
+
+        private Tag(final String keyword) {
+            this.keyword = keyword;
+        }
+    }
+
+    private static final String MARKER = "//";
+    private static final Tag[] TAGS = Tag.values();
+
+    private String line;
+    private Tag tag = Tag.NONE;
+    private int valueStart;
+    private int valueEnd;
+    private int separator;
+
+    /**
+     * Scans a line for sample markup.
+     *
+     * @param line
+     *            untrimmed source line, without line terminator
+     * @return tag found on the line, or {@link Tag#NONE}
+     */
+    public Tag scan(final String line) {
+        this.line = line;
+        this.tag = Tag.NONE;
+
+        int marker = line.indexOf(MARKER);
+        if (marker < 0) {
+            return tag;
+        }
+
+        int end = trimmedEnd(line);
+        int found = TAGS.length - 1;
+        int foundStart = 0;
+        int foundEnd = 0;
+        int foundSeparator = 0;
+
+        for (; marker >= 0 && marker + 1 < end; marker = line.indexOf(
+                MARKER, marker + 1)) {
+            int start = skipWhitespace(line, marker + 2, end);
+
+            // only tags of higher precedence than the best match so far
+            // can change the outcome
+            for (int i = 0; i < found; i++) {
+                String keyword = TAGS[i].keyword;
+                if (!line.startsWith(keyword, start)) {
+                    continue;
+                }
+
+                int valueStart = start + keyword.length();
+                int valueEnd = end;
+                int separator = 0;
+                if (TAGS[i] == Tag.BEGIN_SAMPLE) {
+                    separator = findSampleSeparator(line, valueStart, end);
+                    if (separator < 0) {
+                        continue;
+                    }
+                } else if (TAGS[i] == Tag.TITLE
+                        || TAGS[i] == Tag.DESCRIPTION) {
+                    valueEnd = lineValueEnd(line, valueStart, end);
+                    if (valueEnd < 0) {
+                        continue;
+                    }
+                }
+
+                found = i;
+                foundStart = valueStart;
+                foundEnd = valueEnd;
+                foundSeparator = separator;
+                break;
+            }
+
+            if (found == 0) {
+                break;
+            }
+        }
+
+        this.tag = TAGS[found];
+        this.valueStart = foundStart;
+        this.valueEnd = foundEnd;
+        this.separator = foundSeparator;
+        return tag;
+    }
+
+    /**
+     * Returns the value of the last scanned TITLE or DESCRIPTION tag.
+     *
+     * @return tag value
+     */
+    public String getValue() {
+        assertTag(Tag.TITLE, Tag.DESCRIPTION);
+        return line.substring(valueStart, valueEnd);
+    }
+
+    /**
+     * Returns the service name of the last scanned BEGIN_SAMPLE tag.
+     *
+     * @return service name
+     */
+    public String getServiceName() {
+        assertTag(Tag.BEGIN_SAMPLE, Tag.BEGIN_SAMPLE);
+        return line.substring(valueStart, separator);
+    }
+
+    /**
+     * Returns the sample id of the last scanned BEGIN_SAMPLE tag.
+     *
+     * @return sample id
+     */
+    public String getSampleId() {
+        assertTag(Tag.BEGIN_SAMPLE, Tag.BEGIN_SAMPLE);
+        return line.substring(separator + 1, valueEnd);
+    }
+
+    private void assertTag(final Tag first, final Tag second) {
+        if (tag != first && tag != second) {
+            throw new IllegalStateException("Last scanned tag was " + tag);
+        }
+    }
+
+    /**
+     * Returns the end of the line once trailing characters that
+     * {@link String#trim()} would remove are dropped.
+     */
+    private static int trimmedEnd(final String line) {
+        int end = line.length();
+        while (end > 0 && line.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    /**
+     * Skips characters matched by the regular expression class \s.
+     */
+    private static int skipWhitespace(final String line, int pos,
+            final int end) {
+        while (pos < end) {
+            char c = line.charAt(pos);
+            if (c != ' ' && c != '\t' && c != '\n' && c != '\u000B'
+                    && c != '\f' && c != '\r') {
+                break;
+            }
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * Matches ([^.]+)\.([^.]+)$ against the rest of the line, returning the
+     * position of the separating dot or -1 if it does not match.
+     */
+    private static int findSampleSeparator(final String line,
+            final int start, final int end) {
+        int dot = line.indexOf('.', start);
+        if (dot <= start || dot >= end - 1) {
+            return -1;
+        }
+        int next = line.indexOf('.', dot + 1);
+        if (next >= 0 && next < end) {
+            return -1;
+        }
+        return dot;
+    }
+
+    /**
+     * Matches (.*)$ against the rest of the line, returning the end of the
+     * captured value or -1 if it does not match. As with the regular
+     * expression, the value cannot span a line terminator other than one
+     * that ends the line.
+     */
+    private static int lineValueEnd(final String line, final int start,
+            final int end) {
+        for (int pos = start; pos < end; pos++) {
+            char c = line.charAt(pos);
+            if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028'
+                    || c == '\u2029') {
+                return pos == end - 1 ? pos : -1;
+            }
+        }
+        return end;
+    }
+}
@@ -16,12 +16,23 @@ package com.amazonaws.codesamples;
 
 import java.io.File;
 import java.io.FileReader;
+import java.io.IOException;
 import java.io.LineNumberReader;
+import java.io.Reader;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
+import com.amazonaws.codesamples.SampleTagScanner.Tag;
 import com.amazonaws.codesamples.exception.SampleParsingException;
 import com.amazonaws.util.ParsingUtils;
 
@@ -32,23 +43,29 @@ import com.amazonaws.util.ParsingUtils;
  */
 public class SamplesParser {
 
-    /*
-     * Matching patterns for parsing source files.
+    /**
+     * Files per thread in each batch of {@link #visitSamples}, so that
+     * threads finishing a small file early find another one.
      */
-    private static final Pattern BEGIN_SAMPLE_PATTERN = Pattern
-            .compile("//\\s*BEGIN_SAMPLE:([^.]+)\\.([^.]+)$");
-    private static final Pattern END_SAMPLE_PATTERN = Pattern
-            .compile("//\\s*END_SAMPLE");
+    private static final int FILES_PER_THREAD = 4;
 
-    private static final Pattern BEGIN_HIDDEN_PATTERN = Pattern
-            .compile("//\\s*BEGIN_HIDDEN");
-    private static final Pattern END_HIDDEN_PATTERN = Pattern
-            .compile("//\\s*END_HIDDEN");
+    /**
+     * Receives the samples of source files as they are parsed.
+     */
+    public interface FileSamplesVisitor {
 
-    private static final Pattern TITLE_PATTERN = Pattern
-            .compile("//\\s*TITLE:(.*)$");
-    private static final Pattern DESCRIPTION_PATTERN = Pattern
-            .compile("//\\s*DESCRIPTION:(.*)$");
+        /**
+         * Handles the samples of one source file.
+         *
+         * @param sourceFile
+         *            parsed source file
+         * @param samples
+         *            samples of the file, in file order
+         * @throws Exception
+         *             if the samples cannot be handled
+         */
+        void visit(File sourceFile, List<CodeSample> samples) throws Exception;
+    }
 
     /**
      * Returns a list of samples parsed from input files.
@@ -73,6 +90,46 @@ public class SamplesParser {
         return samples;
     }
 
+    /**
+     * Returns a list of samples parsed from input files, parsing files
+     * concurrently on a fork-join pool when parallelism is greater than one.
+     *
+     * In parallel mode the input trees are walked up front and samples are
+     * returned ordered by source file path, so the result does not depend on
+     * thread scheduling. Parse errors are reported for the first failing file
+     * in that order, exactly as a serial parse of that file reports them.
+     *
+     * @param files
+     *            input files
+     * @param targetExtension
+     *            extension of files to parse
+     * @param parallelism
+     *            number of files to parse concurrently
+     * @return list of samples
+     * @throws Exception
+     *             if an error occurs while getting samples
+     */
+    public static List<CodeSample> getSamples(final File[] files,
+            final String targetExtension, final int parallelism)
+            throws Exception {
+        if (parallelism <= 1) {
+            return getSamples(files, targetExtension);
+        }
+
+        if (files == null) {
+            throw new SampleParsingException(
+                    "Must provide a non-null set of files to parse");
+        }
+
+        List<File> sourceFiles = findSourceFiles(files, targetExtension);
+        List<CodeSample> samples = new ArrayList<CodeSample>();
+        for (List<CodeSample> fileSamples : parseFilesInParallel(sourceFiles,
+                parallelism)) {
+            samples.addAll(fileSamples);
+        }
+        return samples;
+    }
+
     /**
      * Returns a list of samples parsed from a file.
      *
@@ -94,15 +151,217 @@ public class SamplesParser {
         return samples;
     }
 
+    /**
+     * Returns a list of samples parsed from source text that was not read
+     * from a file, such as generated source, exactly as they would be parsed
+     * from a file with that content.
+     *
+     * @param source
+     *            source text; closed once parsed
+     * @param sourceFile
+     *            file the source would be read from, named in parse errors
+     * @return list of samples
+     * @throws Exception
+     *             if an error occurs while getting samples
+     */
+    public static List<CodeSample> getSamples(final Reader source,
+            final File sourceFile) throws Exception {
+        List<CodeSample> samples = new ArrayList<CodeSample>();
+        parse(new LineNumberReader(source), sourceFile, samples);
+        return samples;
+    }
+
+    /**
+     * Parses source files in order, handing the samples of each file to a
+     * visitor before later files are parsed, so that only the samples of the
+     * files being parsed are held in memory. With parallelism greater than
+     * one, files are parsed concurrently a batch at a time and visited in
+     * input order; a failure is rethrown for the first failing file in input
+     * order once the files before it were visited.
+     *
+     * @param sourceFiles
+     *            files to parse, as returned by
+     *            {@link #getSourceFiles(File[], String, int)}
+     * @param parallelism
+     *            number of files to parse concurrently
+     * @param visitor
+     *            receives the samples of each file
+     * @throws Exception
+     *             if a file cannot be parsed or the visitor fails
+     */
+    static void visitSamples(final List<File> sourceFiles,
+            final int parallelism, final FileSamplesVisitor visitor)
+            throws Exception {
+        if (parallelism <= 1) {
+            for (File file : sourceFiles) {
+                List<CodeSample> samples = new ArrayList<CodeSample>();
+                parseFile(file, samples);
+                visitor.visit(file, samples);
+            }
+            return;
+        }
+
+        int batchSize = parallelism * FILES_PER_THREAD;
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            for (int start = 0; start < sourceFiles.size(); start += batchSize) {
+                List<File> batch = sourceFiles.subList(start,
+                        Math.min(start + batchSize, sourceFiles.size()));
+                List<List<CodeSample>> results = parseFilesInParallel(pool,
+                        batch);
+                for (int i = 0; i < batch.size(); i++) {
+                    visitor.visit(batch.get(i), results.get(i));
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Returns all files with the target extension in the order a parse with
+     * the given parallelism returns their samples.
+     */
+    static List<File> getSourceFiles(final File[] files,
+            final String targetExtension, final int parallelism)
+            throws IOException {
+        return parallelism > 1 ? findSourceFiles(files, targetExtension)
+                : listSourceFiles(files, targetExtension);
+    }
+
     private static void parseFiles(final File[] files,
             final String targetExtension, final List<CodeSample> samples)
             throws Exception {
+        for (File file : listSourceFiles(files, targetExtension)) {
+            parseFile(file, samples);
+        }
+    }
+
+    /**
+     * Returns all files with the target extension in the order a serial
+     * parse visits them: depth first, in directory listing order.
+     */
+    static List<File> listSourceFiles(final File[] files,
+            final String targetExtension) {
+        List<File> sourceFiles = new ArrayList<File>();
+        listSourceFiles(files, targetExtension, sourceFiles);
+        return sourceFiles;
+    }
+
+    private static void listSourceFiles(final File[] files,
+            final String targetExtension, final List<File> sourceFiles) {
         for (File file : files) {
             if (file.isDirectory()) {
-                parseFiles(file.listFiles(), targetExtension, samples);
+                listSourceFiles(file.listFiles(), targetExtension, sourceFiles);
             } else {
                 if (ParsingUtils.fileMatchesExtension(file, targetExtension)) {
-                    parseFile(file, samples);
+                    sourceFiles.add(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Walks the input trees and returns all files with the target extension,
+     * sorted by path.
+     */
+    static List<File> findSourceFiles(final File[] files,
+            final String targetExtension) throws IOException {
+        final List<File> sourceFiles = new ArrayList<File>();
+        for (File file : files) {
+            Files.walkFileTree(file.toPath(),
+                    EnumSet.of(FileVisitOption.FOLLOW_LINKS),
+                    Integer.MAX_VALUE, new SimpleFileVisitor<Path>() {
+                        @Override
+                        public FileVisitResult visitFile(final Path path,
+                                final BasicFileAttributes attrs) {
+                            File sourceFile = path.toFile();
+                            if (attrs.isRegularFile()
+                                    && ParsingUtils.fileMatchesExtension(
+                                            sourceFile, targetExtension)) {
+                                sourceFiles.add(sourceFile);
+                            }
+                            return FileVisitResult.CONTINUE;
+                        }
+                    });
+        }
+        Collections.sort(sourceFiles);
+        return sourceFiles;
+    }
+
+    /**
+     * Parses files on a fork-join pool, returning the samples of each file in
+     * input order. If any file fails to parse, the failure of the first such
+     * file in input order is rethrown unchanged.
+     */
+    static List<List<CodeSample>> parseFilesInParallel(
+            final List<File> sourceFiles, final int parallelism)
+            throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            return parseFilesInParallel(pool, sourceFiles);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static List<List<CodeSample>> parseFilesInParallel(
+            final ForkJoinPool pool, final List<File> sourceFiles)
+            throws Exception {
+        List<List<CodeSample>> results = new ArrayList<List<CodeSample>>(
+                Collections.<List<CodeSample>> nCopies(sourceFiles.size(),
+                        null));
+        Exception[] failures = new Exception[sourceFiles.size()];
+
+        pool.invoke(new ParseFilesTask(sourceFiles, results, failures, 0,
+                sourceFiles.size()));
+
+        for (Exception failure : failures) {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Splits a range of files in half until a single file remains, then
+     * parses it into its slot of the shared result list.
+     */
+    private static final class ParseFilesTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<File> sourceFiles;
+        private final List<List<CodeSample>> results;
+        private final Exception[] failures;
+        private final int start;
+        private final int end;
+
+        ParseFilesTask(final List<File> sourceFiles,
+                final List<List<CodeSample>> results,
+                final Exception[] failures, final int start, final int end) {
+            this.sourceFiles = sourceFiles;
+            this.results = results;
+            this.failures = failures;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start > 1) {
+                int mid = (start + end) >>> 1;
+                invokeAll(new ParseFilesTask(sourceFiles, results, failures,
+                        start, mid), new ParseFilesTask(sourceFiles, results,
+                        failures, mid, end));
+            } else if (end > start) {
+                List<CodeSample> fileSamples = new ArrayList<CodeSample>();
+                try {
+                    parseFile(sourceFiles.get(start), fileSamples);
+                    results.set(start, fileSamples);
+                } catch (Exception e) {
+                    failures[start] = e;
                 }
             }
         }
@@ -110,44 +369,34 @@ public class SamplesParser {
 
     private static void parseFile(final File sourceFile,
             List<CodeSample> samples) throws Exception {
+        parse(new LineNumberReader(new FileReader(sourceFile)), sourceFile,
+                samples);
+    }
+
+    private static void parse(final LineNumberReader reader,
+            final File sourceFile, List<CodeSample> samples) throws Exception {
         String line = null;
 
         CodeSample curSample = null;
         boolean inSample = false;
         boolean hidden = false;
 
-        LineNumberReader reader = null;
+        SampleTagScanner scanner = new SampleTagScanner();
         try {
-            reader = new LineNumberReader(new FileReader(sourceFile));
-
             while ((line = reader.readLine()) != null) {
-                String trimmedLine = line.trim();
-                Matcher beginSampleMatcher = BEGIN_SAMPLE_PATTERN
-                        .matcher(trimmedLine);
-                Matcher endSampleMatcher = END_SAMPLE_PATTERN
-                        .matcher(trimmedLine);
-
-                Matcher beginHiddenMatcher = BEGIN_HIDDEN_PATTERN
-                        .matcher(trimmedLine);
-                Matcher endHiddenMatcher = END_HIDDEN_PATTERN
-                        .matcher(trimmedLine);
-
-                Matcher titleMatcher = TITLE_PATTERN
-                        .matcher(trimmedLine);
-                Matcher descriptionMatcher = DESCRIPTION_PATTERN
-                        .matcher(trimmedLine);
-
-                if (beginSampleMatcher.find()) {
+                Tag tag = scanner.scan(line);
+
+                if (tag == Tag.BEGIN_SAMPLE) {
                     if (inSample) {
                         throw new SampleParsingException(
                                 "Found a BEGIN_SAMPLE tag while already within a sample block",
                                 sourceFile, reader.getLineNumber());
                     }
                     inSample = true;
-                    String serviceName = beginSampleMatcher.group(1);
-                    String sampleId = beginSampleMatcher.group(2);
+                    String serviceName = scanner.getServiceName();
+                    String sampleId = scanner.getSampleId();
                     curSample = new CodeSample(sampleId, serviceName);
-                } else if (endSampleMatcher.find()) {
+                } else if (tag == Tag.END_SAMPLE) {
                     if (inSample) {
                         if (hidden) {
                             throw new SampleParsingException(
@@ -156,6 +405,7 @@ public class SamplesParser {
                         }
 
                         String sampleId = curSample.getId();
+                        curSample.seal();
 
                         boolean valid = !ParsingUtils.checkAndLogIfNoContent(sampleId, "title", curSample.getTitle())
                                 && !ParsingUtils.checkAndLogIfNoContent(sampleId, "description", curSample.getDescription())
@@ -173,7 +423,7 @@ public class SamplesParser {
                                 "Found a END_SAMPLE tag while not within a sample block",
                                 sourceFile, reader.getLineNumber());
                     }
-                } else if (beginHiddenMatcher.find()) {
+                } else if (tag == Tag.BEGIN_HIDDEN) {
                     if (hidden == true) {
                         throw new SampleParsingException(
                                 "Found a BEGIN_HIDDEN tag while already within a hidden block",
@@ -181,7 +431,7 @@ public class SamplesParser {
                     }
 
                     hidden = true;
-                } else if (endHiddenMatcher.find()) {
+                } else if (tag == Tag.END_HIDDEN) {
                     if (hidden == false) {
                         throw new SampleParsingException(
                                 "Found a END_HIDDEN tag while not within a hidden block",
@@ -189,20 +439,20 @@ public class SamplesParser {
                     }
 
                     hidden = false;
-                } else if (titleMatcher.find()) {
+                } else if (tag == Tag.TITLE) {
                     if (!inSample) {
                         throw new SampleParsingException(
                                 "Found a TITLE tag while not within a sample block",
                                 sourceFile, reader.getLineNumber());
                     }
-                    curSample.setTitle(titleMatcher.group(1));
-                } else if (descriptionMatcher.find()) {
+                    curSample.setTitle(scanner.getValue());
+                } else if (tag == Tag.DESCRIPTION) {
                     if (!inSample) {
                         throw new SampleParsingException(
                                 "Found a DESCRIPTION tag while not within a sample block",
                                 sourceFile, reader.getLineNumber());
                     }
-                    curSample.setDescription(descriptionMatcher.group(1));
+                    curSample.setDescription(scanner.getValue());
                 } else if (inSample && !hidden) {
                     curSample.appendLine(line);
                 }
@@ -215,9 +465,7 @@ public class SamplesParser {
                         reader.getLineNumber());
             }
         } finally {
-            if (reader != null) {
-                reader.close();
-            }
+            reader.close();
         }
     }
 }
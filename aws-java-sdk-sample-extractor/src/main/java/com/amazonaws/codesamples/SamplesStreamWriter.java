@@ -0,0 +1,219 @@
+/*
+ * Copyright 2013-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.codesamples;
+
+import static com.amazonaws.codesamples.SamplesWriter.CONTENT_ELEMENT;
+import static com.amazonaws.codesamples.SamplesWriter.DESC_ATTRIBUTE;
+import static com.amazonaws.codesamples.SamplesWriter.ID_ATTRIBUTE;
+import static com.amazonaws.codesamples.SamplesWriter.ROOT_ELEMENT;
+import static com.amazonaws.codesamples.SamplesWriter.SAMPLE_ELEMENT;
+import static com.amazonaws.codesamples.SamplesWriter.TITLE_ATTRIBUTE;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import com.amazonaws.util.OutputFiles;
+
+/**
+ * Streaming sample writer which writes each sample to its service XML file as
+ * it arrives, so that memory use does not grow with the number of samples.
+ *
+ * Each service document is written to a temporary file next to its service
+ * file and only one of them is open at a time. Samples are expected to arrive
+ * grouped by service; when a service recurs after another service its
+ * temporary file is reopened for appending. When the writer is closed each
+ * document is completed and replaces its service file through
+ * {@link OutputFiles#replaceIfChanged(File, File)}, so service files are
+ * never seen half written and are left untouched when their content did not
+ * change. If writing a sample fails, closing the writer discards the
+ * temporary files instead, as {@link #discard()} does.
+ *
+ * The files hold the same samples as those written by
+ * {@link SamplesWriter#writeSamples(java.util.List, String)}, one element per
+ * line with attributes in alphabetical order. They match its output byte for
+ * byte only where the JDK's Transformer indents the same way, as the JDK 8
+ * one does; later JDKs indent the DOM writer's output differently.
+ */
+public class SamplesStreamWriter implements Closeable {
+
+    private static final XMLOutputFactory outputFactory = XMLOutputFactory
+            .newInstance();
+
+    private static final String ENCODING = "UTF-8";
+    private static final String DOCUMENT_START = "<?xml version=\"1.0\" encoding=\""
+            + ENCODING + "\" standalone=\"no\"?>\n<" + ROOT_ELEMENT + ">\n";
+    private static final String DOCUMENT_END = "</" + ROOT_ELEMENT + ">\n";
+
+    private final String outputDir;
+    private final Map<String, File> startedServices;
+
+    private String currentService;
+    private OutputStream currentStream;
+    private XMLStreamWriter currentWriter;
+    private boolean failed;
+
+    /**
+     * Ctor.
+     *
+     * @param outputDir
+     *            sample output directory
+     */
+    public SamplesStreamWriter(final String outputDir) {
+        this.outputDir = outputDir;
+        this.startedServices = new LinkedHashMap<String, File>();
+        new File(outputDir).mkdirs();
+    }
+
+    /**
+     * Writes a sample to the XML file of its service.
+     *
+     * @param sample
+     *            sample to write
+     * @throws IOException
+     *             if the sample cannot be written
+     */
+    public void write(final CodeSample sample) throws IOException {
+        boolean written = false;
+        try {
+            XMLStreamWriter writer = getWriter(sample.getServiceName());
+            writer.writeStartElement(SAMPLE_ELEMENT);
+            writer.writeAttribute(DESC_ATTRIBUTE, sample.getDescription());
+            writer.writeAttribute(ID_ATTRIBUTE, sample.getId());
+            writer.writeAttribute(TITLE_ATTRIBUTE, sample.getTitle());
+            writer.writeCharacters("\n");
+            writer.writeStartElement(CONTENT_ELEMENT);
+            writer.writeCharacters(sample.getFormattedCode());
+            writer.writeEndElement();
+            writer.writeCharacters("\n");
+            writer.writeEndElement();
+            writer.writeCharacters("\n");
+            written = true;
+        } catch (XMLStreamException e) {
+            throw new IOException("Failed to write sample " + sample.getId(),
+                    e);
+        } finally {
+            failed |= !written;
+        }
+    }
+
+    /**
+     * Completes every service document written to and replaces the service
+     * files whose content changed, or discards the documents if writing a
+     * sample failed.
+     *
+     * @throws IOException
+     *             if a document cannot be completed
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            closeCurrent();
+            for (Entry<String, File> entry : startedServices.entrySet()) {
+                File tempFile = entry.getValue();
+                if (failed) {
+                    tempFile.delete();
+                    continue;
+                }
+
+                OutputStream out = new FileOutputStream(tempFile, true);
+                try {
+                    out.write(DOCUMENT_END.getBytes(StandardCharsets.UTF_8));
+                } finally {
+                    out.close();
+                }
+                OutputFiles.replaceIfChanged(getOutputFile(entry.getKey()),
+                        tempFile);
+            }
+        } finally {
+            for (File tempFile : startedServices.values()) {
+                tempFile.delete();
+            }
+            startedServices.clear();
+        }
+    }
+
+    /**
+     * Discards every service document written to, leaving the service files
+     * untouched, as when the samples being written turn out to be
+     * incomplete.
+     *
+     * @throws IOException
+     *             if the current document cannot be closed
+     */
+    public void discard() throws IOException {
+        failed = true;
+        close();
+    }
+
+    private XMLStreamWriter getWriter(final String serviceName)
+            throws IOException, XMLStreamException {
+        if (serviceName.equals(currentService)) {
+            return currentWriter;
+        }
+
+        closeCurrent();
+
+        File tempFile = startedServices.get(serviceName);
+        boolean started = tempFile != null;
+        if (!started) {
+            tempFile = OutputFiles.createTempFile(getOutputFile(serviceName));
+            startedServices.put(serviceName, tempFile);
+        }
+        currentStream = new BufferedOutputStream(new FileOutputStream(
+                tempFile, started));
+        if (!started) {
+            currentStream.write(DOCUMENT_START.getBytes(StandardCharsets.UTF_8));
+        }
+        currentWriter = outputFactory.createXMLStreamWriter(currentStream,
+                ENCODING);
+        currentService = serviceName;
+        return currentWriter;
+    }
+
+    private void closeCurrent() throws IOException {
+        if (currentStream == null) {
+            return;
+        }
+
+        try {
+            currentWriter.flush();
+            currentWriter.close();
+        } catch (XMLStreamException e) {
+            throw new IOException("Failed to write samples for "
+                    + currentService, e);
+        } finally {
+            currentStream.close();
+            currentStream = null;
+            currentWriter = null;
+            currentService = null;
+        }
+    }
+
+    private File getOutputFile(final String serviceName) {
+        return new File(String.format("%s/%s.xml", outputDir, serviceName));
+    }
+}
@@ -14,7 +14,10 @@
  */
 package com.amazonaws.codesamples;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -32,6 +35,8 @@ import javax.xml.transform.stream.StreamResult;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
+import com.amazonaws.util.OutputFiles;
+
 /**
  * Sample writer which takes samples and writes them out to XML files.
  */
@@ -50,7 +55,8 @@ public class SamplesWriter {
     /**
      * Writes samples. Samples are split up by service, injected into a service
      * specific DOM, and finally written out to XML files split up by service.
-     * Sample DOMs are held in memory until being written to file.
+     * Sample DOMs are held in memory until being written to file. A file that
+     * already has the content it would be written with is left untouched.
      *
      * @param samples
      *            list of samples to write
@@ -74,9 +80,93 @@ public class SamplesWriter {
             DOMSource source = new DOMSource(entry.getValue());
             File outputFile = new File(String.format("%s/%s.xml", outputDir,
                     entry.getKey()));
-            StreamResult result = new StreamResult(outputFile);
-            transformer.transform(source, result);
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            transformer.transform(source, new StreamResult(content));
+            OutputFiles.writeIfChanged(outputFile, content.toByteArray());
+        }
+    }
+
+    /**
+     * Writes samples through a {@link SamplesStreamWriter}, writing each
+     * sample to its service file as it is visited instead of building a DOM
+     * per service. Writes the same samples as
+     * {@link #writeSamples(List, String)}, and like it leaves files whose
+     * content did not change untouched.
+     *
+     * @param samples
+     *            list of samples to write
+     * @param outputDir
+     *            sample output directory
+     * @throws Exception
+     *             if an error occurs while writing samples
+     */
+    public static void writeSamplesStreaming(final List<CodeSample> samples,
+            final String outputDir) throws Exception {
+        SamplesStreamWriter writer = new SamplesStreamWriter(outputDir);
+        try {
+            for (CodeSample sample : samples) {
+                writer.write(sample);
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Parses source files and writes their samples through a
+     * {@link SamplesStreamWriter} as each file is parsed, so that only the
+     * samples of the files being parsed are held in memory rather than every
+     * sample. Files are parsed with {@link SamplesParser#visitSamples}, and
+     * samples are written in the order
+     * {@link SamplesParser#getSamples(File[], String, int)} returns them. If
+     * a file cannot be parsed, no service file is changed.
+     *
+     * @param sourceFiles
+     *            files to parse, in the order their samples are written
+     * @param parallelism
+     *            number of files to parse concurrently
+     * @param services
+     *            services whose samples are written, or null to write the
+     *            samples of every service
+     * @param outputDir
+     *            sample output directory
+     * @return "service.id" keys of the written samples, in written order
+     * @throws Exception
+     *             if an error occurs while parsing or writing samples
+     */
+    public static List<String> writeSamplesStreaming(
+            final List<File> sourceFiles, final int parallelism,
+            final Collection<String> services, final String outputDir)
+            throws Exception {
+        final SamplesStreamWriter writer = new SamplesStreamWriter(outputDir);
+        final List<String> keys = new ArrayList<String>();
+        boolean written = false;
+        try {
+            SamplesParser.visitSamples(sourceFiles, parallelism,
+                    new SamplesParser.FileSamplesVisitor() {
+                        public void visit(final File sourceFile,
+                                final List<CodeSample> samples)
+                                throws Exception {
+                            for (CodeSample sample : samples) {
+                                if (services == null
+                                        || services.contains(sample
+                                                .getServiceName())) {
+                                    writer.write(sample);
+                                    keys.add(sample.getServiceName() + "."
+                                            + sample.getId());
+                                }
+                            }
+                        }
+                    });
+            written = true;
+        } finally {
+            if (written) {
+                writer.close();
+            } else {
+                writer.discard();
+            }
         }
+        return keys;
     }
 
     static Map<String, Document> generateSampleDocuments(
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2013-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.util;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.Arrays;
+
+/**
+ * Utility methods to write generated output files without disturbing
+ * downstream build steps.
+ *
+ * New content is written to a temporary file and renamed over the output, so
+ * the output ends up with the permissions of the temporary file. Temporary
+ * files are therefore created with the default permissions rather than the
+ * owner-only ones of {@link Files#createTempFile}, and take the permissions
+ * of the file they replace before the rename.
+ */
+public final class OutputFiles {
+
+    private OutputFiles() {
+    }
+
+    /**
+     * Writes content to a file unless the file already holds exactly that
+     * content, in which case it is left untouched along with its
+     * modification time. New content is written to a temporary file in the
+     * same directory and renamed over the target, so readers never see a
+     * partially written file.
+     *
+     * @param file
+     *            file to write
+     * @param content
+     *            complete file content
+     * @return true if the file was written, false if it was unchanged
+     * @throws IOException
+     *             if the file cannot be read or written
+     */
+    public static boolean writeIfChanged(final File file, final byte[] content)
+            throws IOException {
+        Path target = file.toPath();
+        if (hasContent(target, content)) {
+            return false;
+        }
+
+        Path temp = createTempFile(file).toPath();
+        try {
+            Files.write(temp, content);
+            moveOver(temp, target);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return true;
+    }
+
+    /**
+     * Replaces a file with a complete copy written elsewhere, such as a
+     * temporary file from {@link #createTempFile(File)}, unless both already
+     * hold the same content, in which case the file is left untouched along
+     * with its modification time. The copy is renamed over the file, so
+     * readers never see a partially written file, and is gone afterwards in
+     * either case. The files are compared without reading either into
+     * memory.
+     *
+     * @param file
+     *            file to replace
+     * @param written
+     *            complete new content of the file, in the same directory
+     * @return true if the file was replaced, false if it was unchanged
+     * @throws IOException
+     *             if either file cannot be read or the file cannot be
+     *             replaced
+     */
+    public static boolean replaceIfChanged(final File file, final File written)
+            throws IOException {
+        Path target = file.toPath();
+        Path temp = written.toPath();
+        try {
+            if (hasContent(target, temp)) {
+                return false;
+            }
+            moveOver(temp, target);
+            return true;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Creates an empty temporary file next to a file, for its new content to
+     * be written to before it is passed to
+     * {@link #replaceIfChanged(File, File)}.
+     *
+     * @param file
+     *            file the temporary file will replace
+     * @return new temporary file
+     * @throws IOException
+     *             if the file cannot be created
+     */
+    public static File createTempFile(final File file) throws IOException {
+        File dir = file.getAbsoluteFile().getParentFile();
+        Files.createDirectories(dir.toPath());
+        // unlike Files.createTempFile, this applies the default permissions
+        return File.createTempFile("." + file.getName() + ".", ".tmp", dir);
+    }
+
+    private static void moveOver(final Path temp, final Path target)
+            throws IOException {
+        if (Files.isRegularFile(target)
+                && Files.getFileAttributeView(target,
+                        PosixFileAttributeView.class) != null) {
+            Files.setPosixFilePermissions(temp,
+                    Files.getPosixFilePermissions(target));
+        }
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Returns true if the file exists and holds exactly the given content.
+     * Files of another size are rejected without being read.
+     */
+    private static boolean hasContent(final Path file, final byte[] content)
+            throws IOException {
+        if (!Files.isRegularFile(file) || Files.size(file) != content.length) {
+            return false;
+        }
+        return Arrays.equals(Files.readAllBytes(file), content);
+    }
+
+    /**
+     * Returns true if the file exists and holds exactly the content of
+     * another file, comparing both a buffer at a time.
+     */
+    private static boolean hasContent(final Path file, final Path other)
+            throws IOException {
+        if (!Files.isRegularFile(file) || Files.size(file) != Files.size(other)) {
+            return false;
+        }
+
+        InputStream left = new BufferedInputStream(Files.newInputStream(file));
+        try {
+            InputStream right = new BufferedInputStream(
+                    Files.newInputStream(other));
+            try {
+                int b;
+                while ((b = left.read()) != -1) {
+                    if (b != right.read()) {
+                        return false;
+                    }
+                }
+                return right.read() == -1;
+            } finally {
+                right.close();
+            }
+        } finally {
+            left.close();
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.amazonaws.codesamples;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
 
@@ -65,4 +67,31 @@ public class CodeSampleTest {
         assertEquals(sample.getFormattedCode(), "One\nTwo\nThree");
     }
 
+    @Test
+    public void sealCachesFormattedCode() {
+        CodeSample sample = new CodeSample("ID", "Service");
+        sample.appendLine("    One");
+        sample.appendLine("      Two");
+        sample.seal();
+
+        assertTrue(sample.isSealed());
+        assertEquals(sample.getFormattedCode(), "One\n  Two");
+        assertSame(sample.getFormattedCode(), sample.getFormattedCode());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void sealedSampleRejectsLines() {
+        CodeSample sample = new CodeSample("ID", "Service");
+        sample.appendLine("One");
+        sample.seal();
+        sample.appendLine("Two");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void sealedSampleRejectsTitle() {
+        CodeSample sample = new CodeSample("ID", "Service");
+        sample.seal();
+        sample.setTitle("Title");
+    }
+
 }
@@ -0,0 +1,69 @@
+package com.amazonaws.codesamples;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.amazonaws.codesamples.ExtractionManifest.Entry;
+
+public class ExtractionManifestTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void separatorsInKeysAndPathsSurviveReload() throws Exception {
+        File file = new File(tempFolder.getRoot(), "samples.manifest");
+        ExtractionManifest manifest = new ExtractionManifest("settings");
+        manifest.put(new Entry("/src/a\tb,c\\d.java", 1, 2, "hash",
+                Arrays.asList("Foo.a,b", "Foo.c\td", "Foo.e\\,f", "Foo.g\nh")));
+        manifest.put(new Entry("/src/Empty.java", 3, 4, "hash",
+                Collections.<String> emptyList()));
+        manifest.save(file);
+
+        ExtractionManifest loaded = ExtractionManifest.load(file, "settings");
+        assertEquals(loaded.getEntries().size(), 2);
+        Entry entry = loaded.get("/src/a\tb,c\\d.java");
+        assertEquals(entry.getSampleKeys(), Arrays.asList("Foo.a,b",
+                "Foo.c\td", "Foo.e\\,f", "Foo.g\nh"));
+        assertEquals(entry.getSize(), 1);
+        assertEquals(entry.getLastModified(), 2);
+        assertEquals(loaded.get("/src/Empty.java").getSampleKeys(),
+                Collections.<String> emptyList());
+    }
+
+    @Test
+    public void otherSettingsDiscardManifest() throws Exception {
+        File file = new File(tempFolder.getRoot(), "samples.manifest");
+        ExtractionManifest manifest = new ExtractionManifest("settings");
+        manifest.put(new Entry("/src/A.java", 1, 2, "hash",
+                Arrays.asList("Foo.a")));
+        manifest.save(file);
+
+        assertEquals(ExtractionManifest.load(file, "other").getEntries()
+                .size(), 0);
+    }
+
+    @Test
+    public void manifestLoadsWithoutSettings() throws Exception {
+        File file = new File(tempFolder.getRoot(), "samples.manifest");
+        ExtractionManifest manifest = new ExtractionManifest("settings");
+        manifest.put(new Entry("/src/A.java", 1, 2, "hash",
+                Arrays.asList("Foo.a")));
+        manifest.save(file);
+
+        ExtractionManifest loaded = ExtractionManifest.load(file);
+        assertEquals(loaded.getSettings(), "settings");
+        assertEquals(loaded.get("/src/A.java").getServices(),
+                Collections.singleton("Foo"));
+        assertNull(ExtractionManifest.load(new File(tempFolder.getRoot(),
+                "missing.manifest")));
+    }
+}
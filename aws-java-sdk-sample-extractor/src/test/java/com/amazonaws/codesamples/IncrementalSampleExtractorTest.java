@@ -0,0 +1,264 @@
+package com.amazonaws.codesamples;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static com.amazonaws.codesamples.SampleExtractorTestUtils.readSamples;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class IncrementalSampleExtractorTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private File sourceDir;
+    private File outputDir;
+    private File manifestFile;
+    private IncrementalSampleExtractor extractor;
+
+    @Before
+    public void setUp() throws Exception {
+        sourceDir = tempFolder.newFolder("src");
+        outputDir = tempFolder.newFolder("out");
+        manifestFile = new File(tempFolder.getRoot(), "target/samples.manifest");
+        extractor = new IncrementalSampleExtractor("java",
+                outputDir.getPath(), 1, false, true);
+
+        writeSource("A.java", sample("Foo", "FooSample"));
+        writeSource("B.java", sample("Foo", "OtherFooSample")
+                + sample("Bar", "BarSample"));
+    }
+
+    @Test
+    public void firstRunWritesAllServices() throws Exception {
+        assertEquals(extract(), services("Bar", "Foo"));
+        assertTrue(manifestFile.isFile());
+        assertTrue(outputContains("Foo", "FooSample"));
+        assertTrue(outputContains("Foo", "OtherFooSample"));
+        assertTrue(outputContains("Bar", "BarSample"));
+        assertTrue(new File(outputDir, "Foo.idx").isFile());
+    }
+
+    @Test
+    public void unchangedTreeRewritesNothing() throws Exception {
+        extract();
+        long fooModified = new File(outputDir, "Foo.xml").lastModified();
+
+        assertEquals(extract(), services());
+        assertEquals(new File(outputDir, "Foo.xml").lastModified(),
+                fooModified);
+    }
+
+    @Test
+    public void touchedButUnchangedFileIsNotReparsed() throws Exception {
+        extract();
+        File source = new File(sourceDir, "A.java");
+        source.setLastModified(source.lastModified() + 10000);
+
+        assertEquals(extract(), services());
+        assertEquals(extract(), services());
+    }
+
+    @Test
+    public void changedFileRewritesOnlyItsServices() throws Exception {
+        extract();
+        writeSource("A.java", sample("Foo", "RenamedSample"));
+
+        assertEquals(extract(), services("Foo"));
+        assertFalse(outputContains("Foo", "FooSample"));
+        assertTrue(outputContains("Foo", "RenamedSample"));
+        assertTrue(outputContains("Foo", "OtherFooSample"));
+        assertTrue(outputContains("Bar", "BarSample"));
+    }
+
+    @Test
+    public void sampleMovedToAnotherService() throws Exception {
+        extract();
+        writeSource("A.java", sample("Baz", "FooSample"));
+
+        assertEquals(extract(), services("Baz", "Foo"));
+        assertFalse(outputContains("Foo", "FooSample"));
+        assertTrue(outputContains("Baz", "FooSample"));
+    }
+
+    @Test
+    public void deletedFileRemovesItsSamples() throws Exception {
+        extract();
+        assertTrue(new File(sourceDir, "B.java").delete());
+
+        assertEquals(extract(), services("Bar", "Foo"));
+        assertFalse(new File(outputDir, "Bar.xml").exists());
+        assertFalse(new File(outputDir, "Bar.idx").exists());
+        assertTrue(outputContains("Foo", "FooSample"));
+        assertFalse(outputContains("Foo", "OtherFooSample"));
+    }
+
+    @Test
+    public void missingOutputIsRegenerated() throws Exception {
+        extract();
+        assertTrue(new File(outputDir, "Bar.idx").delete());
+
+        assertEquals(extract(), services("Bar"));
+        assertTrue(new File(outputDir, "Bar.idx").isFile());
+    }
+
+    @Test
+    public void changedSettingsDiscardManifest() throws Exception {
+        extract();
+        extractor = new IncrementalSampleExtractor("java",
+                outputDir.getPath(), 1, false, false);
+
+        assertEquals(extract(), services("Bar", "Foo"));
+    }
+
+    @Test
+    public void changedSettingsDeleteRemovedServices() throws Exception {
+        extract();
+        assertTrue(new File(sourceDir, "B.java").delete());
+        extractor = new IncrementalSampleExtractor("java",
+                outputDir.getPath(), 2, false, true);
+
+        assertEquals(extract(), services("Bar", "Foo"));
+        assertFalse(new File(outputDir, "Bar.xml").exists());
+        assertFalse(new File(outputDir, "Bar.idx").exists());
+        assertTrue(outputContains("Foo", "FooSample"));
+    }
+
+    @Test
+    public void disabledIndexesAreDeleted() throws Exception {
+        extract();
+        assertTrue(new File(outputDir, "Foo.idx").isFile());
+        extractor = new IncrementalSampleExtractor("java",
+                outputDir.getPath(), 1, false, false);
+
+        extract();
+        assertFalse(new File(outputDir, "Foo.idx").exists());
+        assertFalse(new File(outputDir, "Bar.idx").exists());
+    }
+
+    @Test
+    public void renderedBundlesFollowServices() throws Exception {
+        extractor = new IncrementalSampleExtractor("java",
+                outputDir.getPath(), 1, false, true, false, true);
+        extract();
+        assertTrue(new File(outputDir, "Foo.html.idx").isFile());
+        assertTrue(new File(outputDir, "Bar.html.idx").isFile());
+
+        assertTrue(new File(sourceDir, "B.java").delete());
+        extract();
+        assertFalse(new File(outputDir, "Bar.html.idx").exists());
+
+        extractor = new IncrementalSampleExtractor("java",
+                outputDir.getPath(), 1, false, true, false, false);
+        extract();
+        assertFalse(new File(outputDir, "Foo.html.idx").exists());
+    }
+
+    @Test
+    public void parallelRunMatchesParallelParse() throws Exception {
+        extractor = new IncrementalSampleExtractor("java",
+                outputDir.getPath(), 4, true, true);
+        assertEquals(extract(), services("Bar", "Foo"));
+
+        File fullDir = tempFolder.newFolder("full");
+        SamplesWriter.writeSamples(SamplesParser.getSamples(
+                new File[] { sourceDir }, "java", 4), fullDir.getPath());
+        assertEquals(readSamples(new File(outputDir, "Foo.xml")),
+                readSamples(new File(fullDir, "Foo.xml")));
+    }
+
+    @Test
+    public void serialRunKeepsParseOrder() throws Exception {
+        writeSource("C.java", sample("Foo", "ThirdFooSample"));
+        extract();
+
+        File fullDir = tempFolder.newFolder("full");
+        SamplesWriter.writeSamples(SamplesParser.getSamples(
+                new File[] { sourceDir }, "java"), fullDir.getPath());
+        assertEquals(readSamples(new File(outputDir, "Foo.xml")),
+                readSamples(new File(fullDir, "Foo.xml")));
+    }
+
+    @Test
+    public void commaInSampleIdSurvivesIncrementalRun() throws Exception {
+        writeSource("C.java", sample("Foo", "Comma,Sample"));
+        extract();
+        writeSource("A.java", sample("Foo", "RenamedSample"));
+
+        assertEquals(extract(), services("Foo"));
+        assertTrue(outputContains("Foo", "Comma,Sample"));
+        assertEquals(extract(), services());
+    }
+
+    @Test
+    public void keyFilterCoversUnchangedServices() throws Exception {
+        extractor = new IncrementalSampleExtractor("java",
+                outputDir.getPath(), 1, false, true, true);
+        extract();
+        writeSource("A.java", sample("Foo", "RenamedSample"));
+        extract();
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        SampleKeyFilterWriter.writeFilter(Arrays.asList("Foo.RenamedSample",
+                "Foo.OtherFooSample", "Bar.BarSample"), expected);
+        File filterFile = new File(outputDir,
+                SampleKeyFilterWriter.FILTER_FILE);
+        assertTrue(Arrays.equals(Files.readAllBytes(filterFile.toPath()),
+                expected.toByteArray()));
+
+        extractor = new IncrementalSampleExtractor("java",
+                outputDir.getPath(), 1, false, true, false);
+        extract();
+        assertFalse(filterFile.exists());
+    }
+
+    private Set<String> extract() throws Exception {
+        return extractor.extract(new File[] { sourceDir }, manifestFile);
+    }
+
+    private static Set<String> services(final String... names) {
+        Set<String> services = new HashSet<String>();
+        Collections.addAll(services, names);
+        return services;
+    }
+
+    private boolean outputContains(final String service, final String id)
+            throws Exception {
+        File output = new File(outputDir, service + ".xml");
+        return new String(Files.readAllBytes(output.toPath()),
+                StandardCharsets.UTF_8).contains("id=\"" + id + "\"");
+    }
+
+    private void writeSource(final String name, final String body)
+            throws Exception {
+        File file = new File(sourceDir, name);
+        long previousModified = file.lastModified();
+        String source = "public class Samples {\n" + body + "}\n";
+        Files.write(file.toPath(), source.getBytes(StandardCharsets.UTF_8));
+        // make sure a rewrite is visible even with coarse timestamps
+        file.setLastModified(Math.max(System.currentTimeMillis(),
+                previousModified + 2000));
+    }
+
+    private static String sample(final String service, final String id) {
+        return "    //BEGIN_SAMPLE:" + service + "." + id + "\n"
+                + "    //TITLE:" + id + " title\n"
+                + "    //DESCRIPTION:" + id + " description\n"
+                + "    String s = \"" + id + "\";\n"
+                + "    //END_SAMPLE\n";
+    }
+}
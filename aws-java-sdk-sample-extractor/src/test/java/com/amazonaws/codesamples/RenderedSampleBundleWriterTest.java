@@ -0,0 +1,120 @@
+package com.amazonaws.codesamples;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class RenderedSampleBundleWriterTest {
+
+    private static final String SERVICE_NAME = "FooService";
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void bundleHoldsCompleteSamplesOfXmlFile() throws Exception {
+        File xmlFile = tempFolder.newFile(SERVICE_NAME + ".xml");
+        Files.write(xmlFile.toPath(), ("<codeSamples>"
+                + "<sample title=\"Foo\" description=\"A foo sample\" id=\"b\">"
+                + "<content>first();</content></sample>"
+                + "<sample title=\"Foo\" description=\"A foo sample\" id=\"a\">"
+                + "<content>foo(\"&lt;a&gt;\");</content></sample>"
+                + "<sample title=\"Foo\" description=\"A foo sample\" id=\"b\">"
+                + "<content>last();</content></sample>"
+                + "<sample title=\"\" description=\"Untitled\" id=\"c\">"
+                + "<content>c();</content></sample>"
+                + "</codeSamples>").getBytes("UTF-8"));
+
+        String outputDir = tempFolder.getRoot().getPath();
+        RenderedSampleBundleWriter.writeServiceBundles(
+                Collections.singletonList(SERVICE_NAME), outputDir);
+
+        ByteBuffer bundle = readBundle(SERVICE_NAME);
+        assertEquals(SampleIndexWriter.MAGIC, bundle.getInt(0));
+        assertEquals(SampleIndexWriter.VERSION, bundle.getInt(4));
+        assertEquals(1, bundle.getInt(8));
+        assertEquals(2, bundle.getInt(12));
+        assertEquals(SampleIndexWriter.sourceStamp(xmlFile), bundle.getLong(16));
+        assertEquals(RenderedSampleBundleWriter.getRenderStamp(),
+                bundle.getLong(24));
+
+        SampleHTMLRenderer renderer = SampleHTMLRenderer.create();
+        int first = bundle.getInt(SampleIndexWriter.HEADER_SIZE);
+        int second = bundle.getInt(SampleIndexWriter.HEADER_SIZE + 4);
+        assertEquals("a", readString(bundle, first));
+        assertEquals(renderer.render("Foo", "A foo sample", "foo(\"<a>\");"),
+                readString(bundle, first + 4 + bundle.getInt(first)));
+        assertEquals("b", readString(bundle, second));
+        assertEquals(renderer.render("Foo", "A foo sample", "last();"),
+                readString(bundle, second + 4 + bundle.getInt(second)));
+    }
+
+    @Test
+    public void bundlesWithoutXmlFileAreDeleted() throws Exception {
+        tempFolder.newFile("FooService.xml");
+        File bundle = tempFolder.newFile("FooService.html.idx");
+        File orphan = tempFolder.newFile("BarService.html.idx");
+        File index = tempFolder.newFile("BarService.idx");
+
+        RenderedSampleBundleWriter.writeServiceBundles(
+                Collections.<String> emptyList(), tempFolder.getRoot()
+                        .getPath());
+
+        assertTrue(bundle.exists());
+        assertFalse(orphan.exists());
+        assertTrue(index.exists());
+    }
+
+    @Test
+    public void writeBundlesRendersServicesOfSamples() throws Exception {
+        CodeSample sample = new CodeSample("FooSample", SERVICE_NAME);
+        sample.setTitle("Foo");
+        sample.setDescription("A foo sample");
+        sample.appendLine("foo();");
+        String outputDir = tempFolder.getRoot().getPath();
+        SamplesWriter.writeSamples(Arrays.asList(sample), outputDir);
+
+        RenderedSampleBundleWriter.writeBundles(Arrays.asList(sample),
+                outputDir);
+        assertEquals(1, readBundle(SERVICE_NAME).getInt(12));
+    }
+
+    @Test
+    public void deleteBundlesKeepsOtherFiles() throws Exception {
+        File bundle = tempFolder.newFile("FooService.html.idx");
+        File index = tempFolder.newFile("FooService.idx");
+        File xml = tempFolder.newFile("FooService.xml");
+
+        RenderedSampleBundleWriter.deleteBundles(tempFolder.getRoot()
+                .getPath());
+
+        assertFalse(bundle.exists());
+        assertTrue(index.exists());
+        assertTrue(xml.exists());
+    }
+
+    private ByteBuffer readBundle(final String service) throws Exception {
+        return ByteBuffer.wrap(Files.readAllBytes(RenderedSampleBundleWriter
+                .getBundleFile(tempFolder.getRoot().getPath(), service)
+                .toPath()));
+    }
+
+    private static String readString(final ByteBuffer buffer, final int offset)
+            throws Exception {
+        byte[] bytes = new byte[buffer.getInt(offset)];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(offset + 4 + i);
+        }
+        return new String(bytes, "UTF-8");
+    }
+}
@@ -3,6 +3,13 @@ package com.amazonaws.codesamples;
 import java.io.File;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
 
 public final class SampleExtractorTestUtils {
 
@@ -13,4 +20,26 @@ public final class SampleExtractorTestUtils {
         return new File(url.toURI());
     }
 
+    /**
+     * Reads the samples of a service XML file as one string per sample, so
+     * that files can be compared regardless of how they are indented.
+     */
+    public static List<String> readSamples(final File serviceFile)
+            throws Exception {
+        NodeList sampleNodes = DocumentBuilderFactory.newInstance()
+                .newDocumentBuilder().parse(serviceFile)
+                .getElementsByTagName(SamplesWriter.SAMPLE_ELEMENT);
+        List<String> samples = new ArrayList<String>();
+        for (int i = 0; i < sampleNodes.getLength(); i++) {
+            Element sample = (Element) sampleNodes.item(i);
+            samples.add(sample.getAttribute(SamplesWriter.ID_ATTRIBUTE) + "|"
+                    + sample.getAttribute(SamplesWriter.TITLE_ATTRIBUTE) + "|"
+                    + sample.getAttribute(SamplesWriter.DESC_ATTRIBUTE) + "|"
+                    + sample.getElementsByTagName(
+                            SamplesWriter.CONTENT_ELEMENT).item(0)
+                            .getTextContent());
+        }
+        return samples;
+    }
+
 }
@@ -0,0 +1,45 @@
+package com.amazonaws.codesamples;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import org.junit.Test;
+
+public class SampleHTMLRendererTest {
+
+    @Test
+    public void builtInTemplateMatchesSampleTaglet() {
+        // the block SampleHTMLTemplates in aws-java-sdk-samples renders
+        assertEquals("<h5>Foo</h5><div class=\"block\">Foo sample<br/>"
+                + " <pre class=\"brush: java\">foo(&quot;&lt;a&gt;&quot;"
+                + " &amp;&amp; &#39;b&#39;);</pre></div>",
+                SampleHTMLRenderer.create().render("Foo", "Foo sample",
+                        "foo(\"<a>\" && 'b');"));
+    }
+
+    @Test
+    public void rendersSlotsInTemplateOrder() {
+        SampleHTMLRenderer renderer = new SampleHTMLRenderer(
+                "${CONTENT}|${TITLE}|${TITLE}");
+        assertEquals("c()|&lt;T&gt;|&lt;T&gt;", renderer.render("<T>",
+                "description", "c()"));
+    }
+
+    @Test
+    public void templateStampFollowsTemplate() {
+        assertEquals(new SampleHTMLRenderer("${TITLE}").getTemplateStamp(),
+                new SampleHTMLRenderer("${TITLE}").getTemplateStamp());
+        assertFalse(new SampleHTMLRenderer("${TITLE}").getTemplateStamp()
+                == new SampleHTMLRenderer("<b>${TITLE}</b>").getTemplateStamp());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownSlotIsRejected() {
+        new SampleHTMLRenderer("${NAME}");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unterminatedSlotIsRejected() {
+        new SampleHTMLRenderer("${TITLE");
+    }
+}
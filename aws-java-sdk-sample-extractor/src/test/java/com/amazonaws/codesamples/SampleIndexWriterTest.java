@@ -0,0 +1,139 @@
+package com.amazonaws.codesamples;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static com.amazonaws.codesamples.SampleExtractorTestUtils.getSampleFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SampleIndexWriterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void writeIndexHeader() throws Exception {
+        List<CodeSample> samples = SamplesParser
+                .getSamples(getSampleFile("TestSamples.java"));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SampleIndexWriter.writeIndex(samples, 42L, out);
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+                out.toByteArray()));
+        assertEquals(SampleIndexWriter.MAGIC, in.readInt());
+        assertEquals(SampleIndexWriter.VERSION, in.readInt());
+        assertEquals(SampleIndexWriter.FIELD_COUNT, in.readInt());
+        assertEquals(3, in.readInt());
+        assertEquals(42L, in.readLong());
+        assertEquals(0L, in.readLong());
+    }
+
+    @Test
+    public void writeIndexSortsIdsAndKeepsLastDuplicate() throws Exception {
+        List<CodeSample> samples = new ArrayList<CodeSample>();
+        samples.add(createSample("b", "first"));
+        samples.add(createSample("a", "second"));
+        samples.add(createSample("b", "third"));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SampleIndexWriter.writeIndex(samples, 0L, out);
+        ByteBuffer index = ByteBuffer.wrap(out.toByteArray());
+
+        assertEquals(2, index.getInt(12));
+        int firstEntry = index.getInt(SampleIndexWriter.HEADER_SIZE);
+        int secondEntry = index.getInt(SampleIndexWriter.HEADER_SIZE + 4);
+        assertTrue(firstEntry < secondEntry);
+        assertEquals("a", readString(index, firstEntry));
+        assertEquals("b", readString(index, secondEntry));
+
+        int titleOffset = secondEntry + 4 + index.getInt(secondEntry);
+        assertEquals("third", readString(index, titleOffset));
+    }
+
+    @Test
+    public void writeIndexesStampsIndexWithXmlFile() throws Exception {
+        List<CodeSample> samples = new ArrayList<CodeSample>();
+        samples.add(createSample("a", "title"));
+        String outputDir = folder.getRoot().getAbsolutePath();
+        SamplesWriter.writeSamples(samples, outputDir);
+        SampleIndexWriter.writeIndexes(samples, outputDir);
+
+        File xmlFile = new File(outputDir, "Service.xml");
+        ByteBuffer index = ByteBuffer.wrap(Files.readAllBytes(new File(
+                outputDir, "Service.idx").toPath()));
+        assertEquals(SampleIndexWriter.sourceStamp(xmlFile), index.getLong(16));
+
+        Files.write(xmlFile.toPath(), "<samples/>".getBytes("UTF-8"));
+        assertFalse(SampleIndexWriter.sourceStamp(xmlFile) == index
+                .getLong(16));
+    }
+
+    @Test
+    public void serviceIndexesMatchSampleIndexes() throws Exception {
+        List<CodeSample> samples = new ArrayList<CodeSample>(SamplesParser
+                .getSamples(getSampleFile("TestSamples.java")));
+        samples.add(createSample("b", "first"));
+        samples.add(createSample("a", "second"));
+        samples.add(createSample("b", "third"));
+        File sampleDir = folder.newFolder("samples");
+        File serviceDir = folder.newFolder("services");
+        SamplesWriter.writeSamples(samples, sampleDir.getPath());
+        SamplesWriter.writeSamples(samples, serviceDir.getPath());
+
+        SampleIndexWriter.writeIndexes(samples, sampleDir.getPath());
+        SampleIndexWriter.writeServiceIndexes(Arrays.asList("Service",
+                "Test1", "Test2", "Test3"), serviceDir.getPath());
+
+        for (String service : new String[] { "Service", "Test1", "Test2",
+                "Test3" }) {
+            assertArrayEquals(Files.readAllBytes(new File(sampleDir, service
+                    + ".idx").toPath()), Files.readAllBytes(new File(
+                    serviceDir, service + ".idx").toPath()));
+        }
+    }
+
+    @Test
+    public void deleteIndexesKeepsOtherFiles() throws Exception {
+        File index = folder.newFile("Service.idx");
+        File xml = folder.newFile("Service.xml");
+        File bundle = folder.newFile("Service.html.idx");
+
+        SampleIndexWriter.deleteIndexes(folder.getRoot().getAbsolutePath());
+
+        assertFalse(index.exists());
+        assertTrue(xml.exists());
+        assertTrue(bundle.exists());
+    }
+
+    private static CodeSample createSample(final String id, final String title) {
+        CodeSample sample = new CodeSample(id, "Service");
+        sample.setTitle(title);
+        sample.setDescription("Description");
+        sample.appendLine("content");
+        return sample;
+    }
+
+    private static String readString(final ByteBuffer buffer, final int offset)
+            throws Exception {
+        byte[] bytes = new byte[buffer.getInt(offset)];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(offset + 4 + i);
+        }
+        return new String(bytes, "UTF-8");
+    }
+}
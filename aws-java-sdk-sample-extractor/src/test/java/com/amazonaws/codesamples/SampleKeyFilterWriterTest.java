@@ -0,0 +1,43 @@
+package com.amazonaws.codesamples;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class SampleKeyFilterWriterTest {
+
+    @Test
+    public void writeFilterHeaderAndServices() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SampleKeyFilterWriter.writeFilter(Arrays.asList("Foo.B", "Bar.A",
+                "Foo.A", "Foo.B"), out);
+        ByteBuffer filter = ByteBuffer.wrap(out.toByteArray());
+
+        assertEquals(SampleKeyFilterWriter.MAGIC, filter.getInt(0));
+        assertEquals(SampleKeyFilterWriter.VERSION, filter.getInt(4));
+        assertEquals(SampleKeyFilterWriter.HASH_COUNT, filter.getInt(8));
+        assertEquals(2, filter.getInt(12));
+        assertEquals(3, filter.getInt(16));
+        assertEquals(3, filter.getInt(23));
+        int words = filter.getInt(30);
+        assertEquals(1, words);
+        assertEquals(34 + 8 * words, filter.capacity());
+    }
+
+    @Test
+    public void writeFilterSetsBitsOfEveryKey() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SampleKeyFilterWriter.writeFilter(Arrays.asList("Foo.A"), out);
+        long word = ByteBuffer.wrap(out.toByteArray()).getLong(27);
+
+        long hash = SampleKeyFilterWriter.hash("Foo.A");
+        for (int i = 0; i < SampleKeyFilterWriter.HASH_COUNT; i++) {
+            int bit = (((int) hash + i * (int) (hash >>> 32)) & Integer.MAX_VALUE) % 64;
+            assertEquals(1L, (word >>> bit) & 1L);
+        }
+    }
+}
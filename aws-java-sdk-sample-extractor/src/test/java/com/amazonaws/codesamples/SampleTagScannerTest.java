@@ -0,0 +1,117 @@
+package com.amazonaws.codesamples;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+import com.amazonaws.codesamples.SampleTagScanner.Tag;
+
+/**
+ * Checks the scanner against the regular expressions it replaced.
+ */
+public class SampleTagScannerTest {
+
+    private static final Pattern[] PATTERNS = {
+            Pattern.compile("//\\s*BEGIN_SAMPLE:([^.]+)\\.([^.]+)$"),
+            Pattern.compile("//\\s*END_SAMPLE"),
+            Pattern.compile("//\\s*BEGIN_HIDDEN"),
+            Pattern.compile("//\\s*END_HIDDEN"),
+            Pattern.compile("//\\s*TITLE:(.*)$"),
+            Pattern.compile("//\\s*DESCRIPTION:(.*)$") };
+
+    private static final String[] LINES = {
+            "",
+            "    String foo = \"foo!\";",
+            "//BEGIN_SAMPLE:Test1.Sample1",
+            "   //  BEGIN_SAMPLE:Test1.Sample1   ",
+            "//\tBEGIN_SAMPLE:Test1.Sample1\t",
+            "//BEGIN_SAMPLE:Test1Sample1",
+            "//BEGIN_SAMPLE:.Sample1",
+            "//BEGIN_SAMPLE:Test1.",
+            "//BEGIN_SAMPLE:Test1.Sample.1",
+            "//BEGIN_SAMPLE:a.b //BEGIN_SAMPLE:c.d",
+            "//BEGIN_SAMPLE:a.b.c //BEGIN_SAMPLE:d.e",
+            "///BEGIN_SAMPLE:S.I",
+            "foo(); //BEGIN_SAMPLE:S.I",
+            "//END_SAMPLE",
+            "//END_SAMPLES",
+            "foo(); // END_SAMPLE trailing",
+            "//TITLE:x //END_SAMPLE",
+            "//BEGIN_HIDDEN",
+            "//END_HIDDEN //BEGIN_HIDDEN",
+            "//TITLE:First sample",
+            "//TITLE:",
+            "  // TITLE:  padded title  ",
+            "//TITLE:a\u2028b",
+            "//TITLE:a\u2028",
+            "//TITLE:a\u2028 //TITLE:b",
+            "//DESCRIPTION:The first sample",
+            "//DESCRIPTION:x //TITLE:y",
+            "//TITLE:x //DESCRIPTION:y",
+            "// title:lowercase",
+            "/ /TITLE:not a tag",
+            "//",
+            "/",
+            "http://example.com/path //TITLE:url first" };
+
+    @Test
+    public void scanMatchesRegexForKnownLines() {
+        SampleTagScanner scanner = new SampleTagScanner();
+        for (String line : LINES) {
+            assertSameAsRegex(scanner, line);
+        }
+    }
+
+    @Test
+    public void scanMatchesRegexForRandomLines() {
+        String[] fragments = { "//", "/", " ", "\t", ".", "a", "B", ":",
+                "BEGIN_SAMPLE:", "END_SAMPLE", "BEGIN_HIDDEN", "END_HIDDEN",
+                "TITLE:", "DESCRIPTION:", "\u2028", "\u0085" };
+        Random random = new Random(42);
+        SampleTagScanner scanner = new SampleTagScanner();
+        for (int i = 0; i < 200000; i++) {
+            StringBuilder line = new StringBuilder();
+            int parts = random.nextInt(8);
+            for (int j = 0; j < parts; j++) {
+                line.append(fragments[random.nextInt(fragments.length)]);
+            }
+            assertSameAsRegex(scanner, line.toString());
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void valueRequiresValueTag() {
+        SampleTagScanner scanner = new SampleTagScanner();
+        scanner.scan("//END_SAMPLE");
+        scanner.getValue();
+    }
+
+    private static void assertSameAsRegex(final SampleTagScanner scanner,
+            final String line) {
+        String trimmed = line.trim();
+        Tag expected = Tag.NONE;
+        Matcher matcher = null;
+        for (int i = 0; i < PATTERNS.length; i++) {
+            matcher = PATTERNS[i].matcher(trimmed);
+            if (matcher.find()) {
+                expected = Tag.values()[i];
+                break;
+            }
+        }
+
+        Tag actual = scanner.scan(line);
+        assertEquals("Tag for [" + line + "]", expected, actual);
+
+        if (expected == Tag.BEGIN_SAMPLE) {
+            assertEquals(matcher.group(1), scanner.getServiceName());
+            assertEquals(matcher.group(2), scanner.getSampleId());
+        } else if (expected == Tag.TITLE || expected == Tag.DESCRIPTION) {
+            assertEquals("Value for [" + line + "]", matcher.group(1),
+                    scanner.getValue());
+        }
+    }
+}
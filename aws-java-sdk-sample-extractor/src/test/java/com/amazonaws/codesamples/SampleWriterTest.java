@@ -2,21 +2,31 @@ package com.amazonaws.codesamples;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
 import static org.hamcrest.Matchers.hasKey;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static com.amazonaws.codesamples.SampleExtractorTestUtils.getSampleFile;
+import static com.amazonaws.codesamples.SampleExtractorTestUtils.readSamples;
 
 import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
+import com.amazonaws.codesamples.exception.SampleParsingException;
+
 import static com.amazonaws.codesamples.SamplesWriter.ROOT_ELEMENT;
 import static com.amazonaws.codesamples.SamplesWriter.SAMPLE_ELEMENT;
 import static com.amazonaws.codesamples.SamplesWriter.ID_ATTRIBUTE;
@@ -26,6 +36,9 @@ import static com.amazonaws.codesamples.SamplesWriter.CONTENT_ELEMENT;
 
 public class SampleWriterTest {
 
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
     @Test
     public void generateAndRetrieveSamplesFunctionalTest() throws Exception {
         File sampleFile = getSampleFile("TestSamples.java");
@@ -72,4 +85,113 @@ public class SampleWriterTest {
         assertEquals(contentNode.getTextContent(), "String foo = \"foo!\";");
     }
 
+    @Test
+    public void streamingWriterMatchesDocumentWriter() throws Exception {
+        File sampleFile = getSampleFile("TestSamples.java");
+        List<CodeSample> samples = new ArrayList<CodeSample>(
+                SamplesParser.getSamples(sampleFile));
+
+        // interleave services and include characters that need escaping
+        CodeSample escaped = new CodeSample("Escaped", "Test1");
+        escaped.setTitle("a \"<&>' b");
+        escaped.setDescription("caf\u00e9 & <x>");
+        escaped.appendLine("if (a < b && c > d) {");
+        escaped.appendLine("    s = \"]]>\";");
+        escaped.appendLine("}");
+        samples.add(escaped);
+
+        File domDir = tempFolder.newFolder("dom");
+        File streamDir = tempFolder.newFolder("stream");
+        SamplesWriter.writeSamples(samples, domDir.getPath());
+        SamplesWriter.writeSamplesStreaming(samples, streamDir.getPath());
+
+        for (String service : new String[] { "Test1", "Test2", "Test3" }) {
+            assertEquals(readSamples(new File(domDir, service + ".xml")),
+                    readSamples(new File(streamDir, service + ".xml")));
+        }
+        assertEquals(readSamples(new File(streamDir, "Test1.xml")).size(), 2);
+    }
+
+    @Test
+    public void streamingWriterLeavesUnchangedFilesUntouched()
+            throws Exception {
+        List<CodeSample> samples = SamplesParser
+                .getSamples(getSampleFile("TestSamples.java"));
+        File streamDir = tempFolder.newFolder("stream");
+        SamplesWriter.writeSamplesStreaming(samples, streamDir.getPath());
+        File serviceFile = new File(streamDir, "Test1.xml");
+        serviceFile.setLastModified(10000);
+
+        SamplesWriter.writeSamplesStreaming(samples, streamDir.getPath());
+        assertEquals(serviceFile.lastModified(), 10000);
+        assertEquals(streamDir.list().length, 3);
+    }
+
+    @Test
+    public void fileStreamingWriterMatchesDocumentWriter() throws Exception {
+        File otherFile = tempFolder.newFile("OtherSamples.java");
+        Files.write(otherFile.toPath(), Arrays.asList(
+                "//BEGIN_SAMPLE:Test1.Sample4", "//TITLE:Fourth sample",
+                "//DESCRIPTION:The fourth sample", "int four = 4;",
+                "//END_SAMPLE", "//BEGIN_SAMPLE:Test4.Sample5",
+                "//TITLE:Fifth sample", "//DESCRIPTION:The fifth sample",
+                "int five = 5;", "//END_SAMPLE"), StandardCharsets.UTF_8);
+        List<File> sourceFiles = Arrays.asList(
+                getSampleFile("TestSamples.java"), otherFile);
+        List<CodeSample> samples = new ArrayList<CodeSample>();
+        for (File sourceFile : sourceFiles) {
+            samples.addAll(SamplesParser.getSamples(sourceFile));
+        }
+
+        File domDir = tempFolder.newFolder("dom");
+        SamplesWriter.writeSamples(samples, domDir.getPath());
+        for (int parallelism : new int[] { 1, 4 }) {
+            File streamDir = tempFolder.newFolder("stream" + parallelism);
+            List<String> keys = SamplesWriter.writeSamplesStreaming(
+                    sourceFiles, parallelism, null, streamDir.getPath());
+
+            assertEquals(Arrays.asList("Test1.Sample1", "Test2.Sample2",
+                    "Test3.Sample3", "Test1.Sample4", "Test4.Sample5"), keys);
+            for (String service : domDir.list()) {
+                assertEquals(readSamples(new File(domDir, service)),
+                        readSamples(new File(streamDir, service)));
+            }
+            assertEquals(streamDir.list().length, 4);
+        }
+    }
+
+    @Test
+    public void fileStreamingWriterWritesGivenServicesOnly() throws Exception {
+        File streamDir = tempFolder.newFolder("stream");
+        List<String> keys = SamplesWriter.writeSamplesStreaming(
+                Arrays.asList(getSampleFile("TestSamples.java")), 1,
+                Arrays.asList("Test2"), streamDir.getPath());
+
+        assertEquals(Arrays.asList("Test2.Sample2"), keys);
+        assertEquals(Arrays.asList("Test2.xml"),
+                Arrays.asList(streamDir.list()));
+    }
+
+    @Test
+    public void fileStreamingWriterChangesNothingIfAFileCannotBeParsed()
+            throws Exception {
+        File sampleFile = getSampleFile("TestSamples.java");
+        File streamDir = tempFolder.newFolder("stream");
+        SamplesWriter.writeSamplesStreaming(Arrays.asList(sampleFile), 1,
+                null, streamDir.getPath());
+        File serviceFile = new File(streamDir, "Test1.xml");
+        serviceFile.setLastModified(10000);
+
+        try {
+            SamplesWriter.writeSamplesStreaming(Arrays.asList(sampleFile,
+                    getSampleFile("BadEndTagSample.java")), 1, null,
+                    streamDir.getPath());
+            fail("Expected SampleParsingException");
+        } catch (SampleParsingException e) {
+            // expected
+        }
+        assertEquals(serviceFile.lastModified(), 10000);
+        assertEquals(streamDir.list().length, 3);
+    }
+
 }
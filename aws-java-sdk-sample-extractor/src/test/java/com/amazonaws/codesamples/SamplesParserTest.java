@@ -5,14 +5,22 @@ import static org.junit.Assert.assertTrue;
 import static com.amazonaws.codesamples.SampleExtractorTestUtils.getSampleFile;
 
 import java.io.File;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.List;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import com.amazonaws.codesamples.exception.SampleParsingException;
 
 public class SamplesParserTest {
 
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
     @Test
     public void parseSamples() throws Exception {
         File sampleFile = getSampleFile("TestSamples.java");
@@ -110,4 +118,64 @@ public class SamplesParserTest {
         assertTrue(SamplesParser.getSamples(sampleFile).isEmpty());
     }
 
+    @Test
+    public void parseSamplesInParallel() throws Exception {
+        File sampleFile = getSampleFile("TestSamples.java");
+        File root = tempFolder.newFolder("src");
+        for (String dir : new String[] { "b", "a/nested", "c" }) {
+            File target = new File(root, dir + "/TestSamples.java");
+            target.getParentFile().mkdirs();
+            Files.copy(sampleFile.toPath(), target.toPath());
+        }
+        Files.copy(getSampleFile("BadExtension.cpp").toPath(), new File(root,
+                "BadExtension.cpp").toPath());
+
+        List<CodeSample> samples = SamplesParser.getSamples(
+                new File[] { root }, "java", 4);
+        assertEquals(9, samples.size());
+        for (int i = 0; i < samples.size(); i++) {
+            assertEquals("Sample" + (i % 3 + 1), samples.get(i).getId());
+        }
+    }
+
+    @Test
+    public void parallelParseErrorMatchesSerialError() throws Exception {
+        File badFile = getSampleFile("BadBeginHiddenTagSample.java");
+
+        String serialMessage = null;
+        try {
+            SamplesParser.getSamples(badFile);
+        } catch (SampleParsingException e) {
+            serialMessage = e.getMessage();
+        }
+
+        try {
+            SamplesParser.getSamples(
+                    new File[] { badFile.getParentFile() }, "java", 4);
+        } catch (SampleParsingException e) {
+            assertEquals(serialMessage, e.getMessage());
+            return;
+        }
+        throw new AssertionError("Expected a SampleParsingException");
+    }
+
+    @Test
+    public void sourceTextParsesLikeItsFile() throws Exception {
+        File sampleFile = getSampleFile("TestSamples.java");
+        List<CodeSample> fromFile = SamplesParser.getSamples(sampleFile);
+        List<CodeSample> fromText = SamplesParser.getSamples(new StringReader(
+                new String(Files.readAllBytes(sampleFile.toPath()),
+                        StandardCharsets.UTF_8)), sampleFile);
+
+        assertEquals(fromText.size(), fromFile.size());
+        for (int i = 0; i < fromFile.size(); i++) {
+            assertEquals(fromText.get(i).getId(), fromFile.get(i).getId());
+            assertEquals(fromText.get(i).getTitle(), fromFile.get(i).getTitle());
+            assertEquals(fromText.get(i).getDescription(), fromFile.get(i)
+                    .getDescription());
+            assertEquals(fromText.get(i).getFormattedCode(), fromFile.get(i)
+                    .getFormattedCode());
+        }
+    }
+
 }
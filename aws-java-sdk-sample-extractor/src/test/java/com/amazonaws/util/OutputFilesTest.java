@@ -0,0 +1,122 @@
+package com.amazonaws.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Set;
+
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class OutputFilesTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void writesMissingFile() throws Exception {
+        File file = new File(tempFolder.getRoot(), "out/Foo.xml");
+
+        assertTrue(OutputFiles.writeIfChanged(file, bytes("foo")));
+        assertEquals(read(file), "foo");
+    }
+
+    @Test
+    public void leavesIdenticalFileUntouched() throws Exception {
+        File file = tempFolder.newFile("Foo.xml");
+        Files.write(file.toPath(), bytes("foo"));
+        file.setLastModified(10000);
+
+        assertFalse(OutputFiles.writeIfChanged(file, bytes("foo")));
+        assertEquals(file.lastModified(), 10000);
+    }
+
+    @Test
+    public void replacesChangedFile() throws Exception {
+        File file = tempFolder.newFile("Foo.xml");
+        Files.write(file.toPath(), bytes("foo"));
+
+        assertTrue(OutputFiles.writeIfChanged(file, bytes("bar")));
+        assertEquals(read(file), "bar");
+        assertTrue(OutputFiles.writeIfChanged(file, bytes("barbaz")));
+        assertEquals(read(file), "barbaz");
+        assertEquals(tempFolder.getRoot().list().length, 1);
+    }
+
+    @Test
+    public void replacesFileWithChangedCopy() throws Exception {
+        File file = tempFolder.newFile("Foo.xml");
+        Files.write(file.toPath(), bytes("foo"));
+        File copy = OutputFiles.createTempFile(file);
+        Files.write(copy.toPath(), bytes("bar"));
+
+        assertTrue(OutputFiles.replaceIfChanged(file, copy));
+        assertEquals(read(file), "bar");
+        assertFalse(copy.exists());
+    }
+
+    @Test
+    public void discardsIdenticalCopy() throws Exception {
+        File file = tempFolder.newFile("Foo.xml");
+        Files.write(file.toPath(), bytes("foo"));
+        file.setLastModified(10000);
+        File copy = OutputFiles.createTempFile(file);
+        Files.write(copy.toPath(), bytes("foo"));
+
+        assertFalse(OutputFiles.replaceIfChanged(file, copy));
+        assertEquals(file.lastModified(), 10000);
+        assertFalse(copy.exists());
+    }
+
+    @Test
+    public void newFileGetsDefaultPermissions() throws Exception {
+        File reference = tempFolder.newFile("Reference.xml");
+        Assume.assumeTrue(isPosix(reference));
+        File file = new File(tempFolder.getRoot(), "Foo.xml");
+
+        assertTrue(OutputFiles.writeIfChanged(file, bytes("foo")));
+        assertEquals(Files.getPosixFilePermissions(file.toPath()),
+                Files.getPosixFilePermissions(reference.toPath()));
+    }
+
+    @Test
+    public void replacedFileKeepsItsPermissions() throws Exception {
+        File file = tempFolder.newFile("Foo.xml");
+        Assume.assumeTrue(isPosix(file));
+        Set<PosixFilePermission> permissions = PosixFilePermissions
+                .fromString("rw-r-----");
+        Files.setPosixFilePermissions(file.toPath(), permissions);
+
+        assertTrue(OutputFiles.writeIfChanged(file, bytes("bar")));
+        assertEquals(Files.getPosixFilePermissions(file.toPath()),
+                permissions);
+
+        File copy = OutputFiles.createTempFile(file);
+        Files.write(copy.toPath(), bytes("baz"));
+        assertTrue(OutputFiles.replaceIfChanged(file, copy));
+        assertEquals(Files.getPosixFilePermissions(file.toPath()),
+                permissions);
+    }
+
+    private static boolean isPosix(final File file) {
+        return file.toPath().getFileSystem().supportedFileAttributeViews()
+                .contains("posix");
+    }
+
+    private static byte[] bytes(final String content) {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String read(final File file) throws Exception {
+        return new String(Files.readAllBytes(file.toPath()),
+                StandardCharsets.UTF_8);
+    }
+}
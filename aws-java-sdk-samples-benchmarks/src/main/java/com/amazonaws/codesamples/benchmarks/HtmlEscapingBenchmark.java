@@ -0,0 +1,127 @@
+/*
+ * Copyright 2013-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.codesamples.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.amazonaws.codesamples.RetrievedCodeSample;
+import com.amazonaws.codesamples.SampleCodeReader;
+import com.amazonaws.codesamples.util.HtmlEscapingAppendable;
+
+/**
+ * HTML escaping of the titles, descriptions and content of every sample of a
+ * generated service into a reused output buffer, with the table driven
+ * escaper used when rendering, a per char switch and chained String
+ * replacements.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HtmlEscapingBenchmark {
+
+    private File root;
+    private List<String> texts;
+    private StringBuilder out;
+
+    @Setup
+    public void setUp() throws Exception {
+        root = SyntheticCorpus.writeServices(false);
+        SampleCodeReader reader = SyntheticCorpus.newReader(root,
+                SampleCodeReader.DEFAULT_INDEX_CACHE_SIZE);
+        texts = new ArrayList<String>();
+        for (int i = 0; i < SyntheticCorpus.SAMPLES_PER_SERVICE; i++) {
+            RetrievedCodeSample sample = reader.readSample(
+                    SyntheticCorpus.serviceName(0), SyntheticCorpus.sampleId(i));
+            texts.add(sample.getTitle());
+            texts.add(sample.getDescription());
+            texts.add(sample.getContent());
+        }
+        out = new StringBuilder();
+    }
+
+    @TearDown
+    public void tearDown() {
+        SyntheticCorpus.delete(root);
+    }
+
+    @Benchmark
+    public int lookupTable() throws IOException {
+        out.setLength(0);
+        for (String text : texts) {
+            HtmlEscapingAppendable.escape(text, 0, text.length(), out);
+        }
+        return out.length();
+    }
+
+    @Benchmark
+    public int charSwitch() {
+        out.setLength(0);
+        for (String text : texts) {
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                switch (c) {
+                case '<':
+                    out.append("&lt;");
+                    break;
+                case '>':
+                    out.append("&gt;");
+                    break;
+                case '&':
+                    out.append("&amp;");
+                    break;
+                case '"':
+                    out.append("&quot;");
+                    break;
+                case '\'':
+                    out.append("&#39;");
+                    break;
+                default:
+                    out.append(c);
+                }
+            }
+        }
+        return out.length();
+    }
+
+    @Benchmark
+    public int stringReplace() {
+        out.setLength(0);
+        for (String text : texts) {
+            out.append(text.replace("&", "&amp;").replace("<", "&lt;")
+                    .replace(">", "&gt;").replace("\"", "&quot;")
+                    .replace("'", "&#39;"));
+        }
+        return out.length();
+    }
+}
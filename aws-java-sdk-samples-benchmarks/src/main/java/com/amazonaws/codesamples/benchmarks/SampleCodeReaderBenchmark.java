@@ -0,0 +1,138 @@
+/*
+ * Copyright 2013-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.codesamples.benchmarks;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.amazonaws.codesamples.RetrievedCodeSample;
+import com.amazonaws.codesamples.SampleCodeReader;
+
+/**
+ * Throughput of one SampleCodeReader shared by concurrent callers, looking up
+ * samples spread over every service of a corpus written by
+ * {@link SyntheticCorpus}. The variants run 1, 2, 4 and as many threads as
+ * there are cores; JMH reports the total over all threads, so dividing each
+ * score by the thread count gives the per-thread throughput at that level of
+ * contention. Thread counts above the core count of the machine only measure
+ * time slicing, so scaling can only be judged on a machine with at least as
+ * many cores as the largest count; other counts can be run with
+ * <code>-t</code>.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SampleCodeReaderBenchmark {
+
+    /**
+     * How the reader finds samples: "binary" serves lookups from cached
+     * binary indexes, "xml" from cached indexes parsed from XML, and
+     * "unindexed" parses the service XML file on every lookup.
+     */
+    @Param({ "binary", "xml", "unindexed" })
+    public String store;
+
+    private File root;
+    private SampleCodeReader reader;
+
+    @Setup
+    public void setUp() throws Exception {
+        root = SyntheticCorpus.writeServices("binary".equals(store));
+        reader = SyntheticCorpus.newReader(root, "unindexed".equals(store) ? 0
+                : SampleCodeReader.DEFAULT_INDEX_CACHE_SIZE);
+    }
+
+    @TearDown
+    public void tearDown() {
+        SyntheticCorpus.delete(root);
+    }
+
+    /**
+     * Per-thread position in the lookup sequence, so that threads do not
+     * share a counter.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        private int next;
+
+        @Setup
+        public void setUp() {
+            next = System.identityHashCode(this);
+        }
+
+        String nextService() {
+            next = next * 1103515245 + 12345;
+            return SyntheticCorpus.serviceName((next >>> 16)
+                    % SyntheticCorpus.SERVICES);
+        }
+
+        String nextSampleId() {
+            next = next * 1103515245 + 12345;
+            return SyntheticCorpus.sampleId((next >>> 16)
+                    % SyntheticCorpus.SAMPLES_PER_SERVICE);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public RetrievedCodeSample readSampleSingleThread(final Cursor cursor) {
+        return readSample(cursor);
+    }
+
+    @Benchmark
+    @Threads(2)
+    public RetrievedCodeSample readSampleTwoThreads(final Cursor cursor) {
+        return readSample(cursor);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public RetrievedCodeSample readSampleFourThreads(final Cursor cursor) {
+        return readSample(cursor);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public RetrievedCodeSample readSampleAllCores(final Cursor cursor) {
+        return readSample(cursor);
+    }
+
+    private RetrievedCodeSample readSample(final Cursor cursor) {
+        RetrievedCodeSample sample = reader.readSample(cursor.nextService(),
+                cursor.nextSampleId());
+        if (sample == null) {
+            throw new IllegalStateException("Missing sample");
+        }
+        return sample;
+    }
+}
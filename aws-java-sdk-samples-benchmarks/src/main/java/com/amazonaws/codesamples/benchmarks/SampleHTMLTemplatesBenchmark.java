@@ -0,0 +1,89 @@
+/*
+ * Copyright 2013-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.codesamples.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.amazonaws.codesamples.RetrievedCodeSample;
+import com.amazonaws.codesamples.SampleCodeReader;
+import com.amazonaws.codesamples.util.SampleHTMLTemplates;
+
+/**
+ * Rendering of the HTML sample section that SampleCodeTaglet injects for a
+ * documentation element with a number of @sample tags, either as a new string
+ * or straight into a reused output buffer.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SampleHTMLTemplatesBenchmark {
+
+    @Param({ "1", "3", "10" })
+    public int tagCount;
+
+    private File root;
+    private List<RetrievedCodeSample> samples;
+    private StringBuilder out;
+
+    @Setup
+    public void setUp() throws Exception {
+        root = SyntheticCorpus.writeServices(false);
+        SampleCodeReader reader = SyntheticCorpus.newReader(root,
+                SampleCodeReader.DEFAULT_INDEX_CACHE_SIZE);
+        samples = new ArrayList<RetrievedCodeSample>();
+        for (int i = 0; i < tagCount; i++) {
+            samples.add(reader.readSample(SyntheticCorpus.serviceName(0),
+                    SyntheticCorpus.sampleId(i)));
+        }
+        out = new StringBuilder();
+    }
+
+    @TearDown
+    public void tearDown() {
+        SyntheticCorpus.delete(root);
+    }
+
+    @Benchmark
+    public String getSampleSectionHTML() {
+        return SampleHTMLTemplates.getSampleSectionHTML(samples);
+    }
+
+    @Benchmark
+    public int renderSampleSectionHTML() throws IOException {
+        out.setLength(0);
+        SampleHTMLTemplates.renderSampleSectionHTML(out, samples);
+        return out.length();
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2013-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.codesamples.benchmarks;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.amazonaws.codesamples.RetrievedCodeSample;
+import com.amazonaws.codesamples.SampleCodeReader;
+
+/**
+ * Cost of an unindexed SampleCodeReader lookup depending on where the sample
+ * sits in its service XML file. Since a later sample with the same id would
+ * replace an earlier one, every lookup reads the whole file, so the three
+ * positions should cost about the same; a gap between them points at work
+ * done per matched sample rather than per file.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SampleLookupPositionBenchmark {
+
+    @Param({ "first", "middle", "last" })
+    public String position;
+
+    private File root;
+    private SampleCodeReader reader;
+    private String serviceName;
+    private String sampleId;
+
+    @Setup
+    public void setUp() throws Exception {
+        root = SyntheticCorpus.writeServices(false);
+        reader = SyntheticCorpus.newReader(root, 0);
+        serviceName = SyntheticCorpus.serviceName(0);
+
+        int last = SyntheticCorpus.SAMPLES_PER_SERVICE - 1;
+        if ("first".equals(position)) {
+            sampleId = SyntheticCorpus.sampleId(0);
+        } else if ("middle".equals(position)) {
+            sampleId = SyntheticCorpus.sampleId(last / 2);
+        } else {
+            sampleId = SyntheticCorpus.sampleId(last);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        SyntheticCorpus.delete(root);
+    }
+
+    @Benchmark
+    public RetrievedCodeSample readSample() {
+        return reader.readSample(serviceName, sampleId);
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2013-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.codesamples.benchmarks;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.amazonaws.codesamples.RetrievedCodeSample;
+import com.amazonaws.codesamples.SampleCodeReader;
+
+/**
+ * SampleCodeReader lookups against services of increasing size, cycling
+ * through every sample of the service. "cold" creates a new reader for every
+ * lookup, so each lookup loads the service from its XML file as the first
+ * lookup of a javadoc run does; "warm" reuses one reader and its index cache.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SampleReadBenchmark {
+
+    @Param({ "10", "1000", "100000" })
+    public int sampleCount;
+
+    private File root;
+    private SampleCodeReader reader;
+    private String serviceName;
+    private int next;
+
+    @Setup
+    public void setUp() throws Exception {
+        root = SyntheticCorpus.writeSizedService(sampleCount);
+        reader = SyntheticCorpus.newReader(root,
+                SampleCodeReader.DEFAULT_INDEX_CACHE_SIZE);
+        serviceName = SyntheticCorpus.sizedServiceName(sampleCount);
+    }
+
+    @TearDown
+    public void tearDown() {
+        SyntheticCorpus.delete(root);
+    }
+
+    @Benchmark
+    public RetrievedCodeSample readSampleWarm() {
+        return reader.readSample(serviceName, nextSampleId());
+    }
+
+    @Benchmark
+    public RetrievedCodeSample readSampleCold() throws Exception {
+        return SyntheticCorpus.newReader(root,
+                SampleCodeReader.DEFAULT_INDEX_CACHE_SIZE).readSample(
+                serviceName, nextSampleId());
+    }
+
+    private String nextSampleId() {
+        next = (next + 1) % sampleCount;
+        return SyntheticCorpus.sampleId(next);
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2013-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.codesamples.benchmarks;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.amazonaws.codesamples.CodeSample;
+import com.amazonaws.codesamples.SampleTagScanner;
+import com.amazonaws.codesamples.SamplesParser;
+
+/**
+ * Compares per-line tag recognition in SamplesParser against the six regular
+ * expression matchers it used previously, over a large generated samples
+ * file. Scores are per source line; run with "-prof gc" to see allocation per
+ * line (gc.alloc.rate.norm).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SampleTagScannerBenchmark {
+
+    private static final int LINES = 100000;
+    private static final int SAMPLES = 5000;
+
+    private static final Pattern BEGIN_SAMPLE_PATTERN = Pattern
+            .compile("//\\s*BEGIN_SAMPLE:([^.]+)\\.([^.]+)$");
+    private static final Pattern END_SAMPLE_PATTERN = Pattern
+            .compile("//\\s*END_SAMPLE");
+    private static final Pattern BEGIN_HIDDEN_PATTERN = Pattern
+            .compile("//\\s*BEGIN_HIDDEN");
+    private static final Pattern END_HIDDEN_PATTERN = Pattern
+            .compile("//\\s*END_HIDDEN");
+    private static final Pattern TITLE_PATTERN = Pattern
+            .compile("//\\s*TITLE:(.*)$");
+    private static final Pattern DESCRIPTION_PATTERN = Pattern
+            .compile("//\\s*DESCRIPTION:(.*)$");
+
+    private String[] lines;
+    private File sourceFile;
+    private SampleTagScanner scanner;
+
+    @Setup
+    public void setUp() throws Exception {
+        File dir = Files.createTempDirectory("scanner-benchmark").toFile();
+        sourceFile = SyntheticCorpus.writeGeneratedSamples(dir,
+                SyntheticCorpus.serviceName(0), SAMPLES);
+        List<String> fileLines = Files.readAllLines(sourceFile.toPath());
+        lines = new String[LINES];
+        for (int i = 0; i < LINES; i++) {
+            lines[i] = fileLines.get(i % fileLines.size());
+        }
+        scanner = new SampleTagScanner();
+    }
+
+    @TearDown
+    public void tearDown() {
+        sourceFile.delete();
+        sourceFile.getParentFile().delete();
+    }
+
+    /**
+     * Tag recognition as done by SamplesParser.
+     */
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public void scanner(final Blackhole bh) {
+        for (String line : lines) {
+            bh.consume(scanner.scan(line));
+        }
+    }
+
+    /**
+     * Tag recognition as previously done by SamplesParser: trim the line and
+     * build all six matchers before testing them in order.
+     */
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public void regexMatchers(final Blackhole bh) {
+        for (String line : lines) {
+            String trimmedLine = line.trim();
+            Matcher beginSampleMatcher = BEGIN_SAMPLE_PATTERN
+                    .matcher(trimmedLine);
+            Matcher endSampleMatcher = END_SAMPLE_PATTERN.matcher(trimmedLine);
+            Matcher beginHiddenMatcher = BEGIN_HIDDEN_PATTERN
+                    .matcher(trimmedLine);
+            Matcher endHiddenMatcher = END_HIDDEN_PATTERN.matcher(trimmedLine);
+            Matcher titleMatcher = TITLE_PATTERN.matcher(trimmedLine);
+            Matcher descriptionMatcher = DESCRIPTION_PATTERN
+                    .matcher(trimmedLine);
+
+            int tag;
+            if (beginSampleMatcher.find()) {
+                tag = 0;
+            } else if (endSampleMatcher.find()) {
+                tag = 1;
+            } else if (beginHiddenMatcher.find()) {
+                tag = 2;
+            } else if (endHiddenMatcher.find()) {
+                tag = 3;
+            } else if (titleMatcher.find()) {
+                tag = 4;
+            } else if (descriptionMatcher.find()) {
+                tag = 5;
+            } else {
+                tag = 6;
+            }
+            bh.consume(tag);
+        }
+    }
+
+    /**
+     * End-to-end parse of the generated samples file.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<CodeSample> parseFile() throws Exception {
+        return SamplesParser.getSamples(sourceFile);
+    }
+}
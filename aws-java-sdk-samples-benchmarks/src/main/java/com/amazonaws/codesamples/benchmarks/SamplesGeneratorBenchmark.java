@@ -0,0 +1,74 @@
+/*
+ * Copyright 2013-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.codesamples.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.amazonaws.codegen.model.intermediate.IntermediateModel;
+import com.amazonaws.samples.SamplesGenerator;
+import com.amazonaws.samples.util.IntermediateModelRetriever;
+
+/**
+ * Generation of the samples class of one service by the GenerateSamples goal,
+ * including creation of its code formatter. Intermediate models are those of
+ * the aws-java-sdk-models dependency, since generation needs complete service
+ * models rather than synthetic ones; the service parameter takes the sync
+ * interface names of models with examples.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SamplesGeneratorBenchmark {
+
+    @Param({ "AmazonS3", "AmazonDynamoDB", "AmazonEC2" })
+    public String service;
+
+    private IntermediateModel model;
+
+    @Setup
+    public void setUp() throws Exception {
+        try (Stream<IntermediateModel> models = IntermediateModelRetriever
+                .streamDependencyIntermediateModels(true)) {
+            model = models
+                    .filter(candidate -> service.equals(candidate
+                            .getMetadata().getSyncInterface()))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalStateException(
+                            "No intermediate model with examples for "
+                                    + service));
+        }
+    }
+
+    @Benchmark
+    public String getGeneratedSamples() {
+        return new SamplesGenerator(model).getGeneratedSamples();
+    }
+}
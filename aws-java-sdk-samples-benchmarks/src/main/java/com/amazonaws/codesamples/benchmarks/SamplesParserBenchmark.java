@@ -0,0 +1,74 @@
+/*
+ * Copyright 2013-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.codesamples.benchmarks;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.amazonaws.codesamples.CodeSample;
+import com.amazonaws.codesamples.SamplesParser;
+
+/**
+ * Extraction of every sample from the generated samples class of one service,
+ * as done by the ExtractSamples goal.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SamplesParserBenchmark {
+
+    @Param({ "10", "1000", "100000" })
+    public int sampleCount;
+
+    private File sourceDir;
+
+    @Setup
+    public void setUp() throws Exception {
+        sourceDir = Files.createTempDirectory("parser-benchmark").toFile();
+        SyntheticCorpus.writeGeneratedSamples(sourceDir,
+                SyntheticCorpus.sizedServiceName(sampleCount), sampleCount);
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (File file : sourceDir.listFiles()) {
+            file.delete();
+        }
+        sourceDir.delete();
+    }
+
+    @Benchmark
+    public List<CodeSample> getSamples() throws Exception {
+        return SamplesParser.getSamples(new File[] { sourceDir }, "java");
+    }
+}
@@ -0,0 +1,264 @@
+/*
+ * Copyright 2013-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.codesamples.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.amazonaws.codesamples.CodeSample;
+import com.amazonaws.codesamples.SampleCodeReader;
+import com.amazonaws.codesamples.SampleIndexWriter;
+import com.amazonaws.codesamples.SamplesParser;
+import com.amazonaws.codesamples.SamplesWriter;
+
+/**
+ * Produces deterministic synthetic inputs shaped like the output of the
+ * GenerateSamples goal, so benchmarks do not depend on SDK models.
+ *
+ * Benchmarks write the extracted sample files they read into a temporary
+ * sample root during setup, either {@link #SERVICES} services of
+ * {@link #SAMPLES_PER_SERVICE} samples each or a single service of a given
+ * size named by {@link #sizedServiceName(int)}, and read them with a reader
+ * from {@link #newReader(File, long)}.
+ */
+public final class SyntheticCorpus {
+
+    /**
+     * Directory of the sample XML files under a sample root.
+     */
+    public static final String SAMPLE_DIR = "benchmarksamples";
+
+    /**
+     * Number of services written by {@link #writeServices(boolean)}.
+     */
+    public static final int SERVICES = 16;
+
+    /**
+     * Number of samples per service written by
+     * {@link #writeServices(boolean)}.
+     */
+    public static final int SAMPLES_PER_SERVICE = 500;
+
+    private SyntheticCorpus() {
+    }
+
+    /**
+     * Writes {@link #SERVICES} services of {@link #SAMPLES_PER_SERVICE}
+     * samples each into a new temporary sample root.
+     *
+     * @param binaryIndex
+     *            whether to write a binary index for each service
+     * @return sample root, to be removed with {@link #delete(File)}
+     * @throws Exception
+     *             if the samples cannot be written
+     */
+    public static File writeServices(final boolean binaryIndex)
+            throws Exception {
+        File root = Files.createTempDirectory("synthetic-corpus").toFile();
+        List<CodeSample> samples = new ArrayList<CodeSample>();
+        for (int i = 0; i < SERVICES; i++) {
+            samples.addAll(parseGeneratedSamples(root, serviceName(i),
+                    SAMPLES_PER_SERVICE));
+        }
+        writeSamples(root, samples, binaryIndex);
+        return root;
+    }
+
+    /**
+     * Writes the service named by {@link #sizedServiceName(int)} into a new
+     * temporary sample root.
+     *
+     * @param sampleCount
+     *            number of samples in the service
+     * @return sample root, to be removed with {@link #delete(File)}
+     * @throws Exception
+     *             if the samples cannot be written
+     */
+    public static File writeSizedService(final int sampleCount)
+            throws Exception {
+        File root = Files.createTempDirectory("synthetic-corpus").toFile();
+        writeSamples(root, parseGeneratedSamples(root,
+                sizedServiceName(sampleCount), sampleCount), false);
+        return root;
+    }
+
+    /**
+     * Creates a reader of the samples under a sample root.
+     *
+     * @param root
+     *            sample root
+     * @param indexCacheSize
+     *            maximum estimated size, in bytes, of cached service indexes
+     * @return sample reader
+     * @throws Exception
+     *             if the reader cannot be created
+     */
+    public static SampleCodeReader newReader(final File root,
+            final long indexCacheSize) throws Exception {
+        return new SampleCodeReader(SAMPLE_DIR, indexCacheSize,
+                Collections.singletonList(root));
+    }
+
+    /**
+     * Deletes a directory and everything in it.
+     *
+     * @param dir
+     *            directory to delete
+     */
+    public static void delete(final File dir) {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                delete(file);
+            }
+        }
+        dir.delete();
+    }
+
+    private static List<CodeSample> parseGeneratedSamples(final File dir,
+            final String serviceName, final int sampleCount) throws Exception {
+        File sourceFile = writeGeneratedSamples(dir, serviceName, sampleCount);
+        try {
+            return SamplesParser.getSamples(sourceFile);
+        } finally {
+            sourceFile.delete();
+        }
+    }
+
+    private static void writeSamples(final File root,
+            final List<CodeSample> samples, final boolean binaryIndex)
+            throws Exception {
+        String sampleDir = new File(root, SAMPLE_DIR).getPath();
+        SamplesWriter.writeSamplesStreaming(samples, sampleDir);
+        if (binaryIndex) {
+            SampleIndexWriter.writeIndexes(samples, sampleDir);
+        }
+    }
+
+    /**
+     * Returns the name of the synthetic service with the given index.
+     *
+     * @param serviceIndex
+     *            index of service
+     * @return service name
+     */
+    public static String serviceName(final int serviceIndex) {
+        return "AmazonSynthetic" + serviceIndex;
+    }
+
+    /**
+     * Returns the name of the synthetic service with the given number of
+     * samples.
+     *
+     * @param sampleCount
+     *            number of samples in the service
+     * @return service name
+     */
+    public static String sizedServiceName(final int sampleCount) {
+        return "AmazonSyntheticSized" + sampleCount;
+    }
+
+    /**
+     * Returns the id of the synthetic sample with the given index.
+     *
+     * @param sampleIndex
+     *            index of sample
+     * @return sample id
+     */
+    public static String sampleId(final int sampleIndex) {
+        return "Operation" + sampleIndex;
+    }
+
+    /**
+     * Produces the source of a generated samples class for one service.
+     *
+     * @param serviceName
+     *            name of service
+     * @param sampleCount
+     *            number of samples in the class
+     * @return generated samples class source
+     */
+    public static String generatedSamplesSource(final String serviceName,
+            final int sampleCount) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("package com.amazonaws.codesamples.samples;\n\n");
+        sb.append("import com.amazonaws.services.synthetic.").append(serviceName)
+                .append(";\n");
+        sb.append("import com.amazonaws.services.synthetic.model.*;\n\n");
+        sb.append("import java.util.*;\n\n");
+        sb.append("public class ").append(serviceName)
+                .append("GeneratedSamples {\n\n");
+
+        for (int i = 0; i < sampleCount; i++) {
+            String operation = sampleId(i);
+            sb.append("    public void ").append(operation).append("_1() {\n");
+            sb.append("        //BEGIN_SAMPLE:").append(serviceName).append('.')
+                    .append(operation).append('\n');
+            sb.append("        //TITLE:To call ").append(operation).append('\n');
+            sb.append("        //DESCRIPTION:The following example calls ")
+                    .append(operation)
+                    .append(" with a <bucket> & \"quoted\" key.\n");
+            sb.append("        ").append(serviceName).append(" client = ")
+                    .append(serviceName)
+                    .append("ClientBuilder.standard().build();\n");
+            sb.append("        ").append(operation)
+                    .append("Request request = new ").append(operation)
+                    .append("Request().withBucket(\"examplebucket\")\n");
+            for (int j = 0; j < 4 + i % 5; j++) {
+                sb.append("                .withAttribute").append(j)
+                        .append("(\"value-").append(i).append('-').append(j)
+                        .append("\")\n");
+            }
+            sb.append("                .withTags(new Tag().withKey(\"Key\")"
+                    + ".withValue(\"Value\"));\n");
+            sb.append("        ").append(operation)
+                    .append("Result response = client.")
+                    .append(Character.toLowerCase(operation.charAt(0)))
+                    .append(operation.substring(1)).append("(request);\n");
+            sb.append("        //END_SAMPLE\n");
+            sb.append("    }\n\n");
+        }
+
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    /**
+     * Writes a generated samples class for one service into a directory.
+     *
+     * @param dir
+     *            directory to write to
+     * @param serviceName
+     *            name of service
+     * @param sampleCount
+     *            number of samples in the class
+     * @return written source file
+     * @throws IOException
+     *             if the file cannot be written
+     */
+    public static File writeGeneratedSamples(final File dir,
+            final String serviceName, final int sampleCount)
+            throws IOException {
+        File file = new File(dir, serviceName + "GeneratedSamples.java");
+        Files.write(file.toPath(), generatedSamplesSource(serviceName,
+                sampleCount).getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
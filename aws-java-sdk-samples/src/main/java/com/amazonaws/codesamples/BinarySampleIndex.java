@@ -0,0 +1,443 @@
+/*
+ * Copyright 2013-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.codesamples;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import com.amazonaws.codesamples.util.ValidationUtils;
+
+/**
+ * Sample store backed by a binary sample index written by the sample
+ * extractor. Index files on the local file system are memory-mapped; index
+ * files inside jars are read onto the heap. Samples are resolved with a single
+ * binary search over the sorted id table, without any XML parsing.
+ *
+ * Layout (all integers are big-endian 32-bit, stamps 64-bit, all offsets are
+ * absolute):
+ *
+ * <pre>
+ * header:  MAGIC, VERSION, field count, entry count, source stamp,
+ *          render stamp
+ * table:   entry offset for each entry, sorted by unsigned UTF-8 id bytes
+ * entries: length-prefixed UTF-8 id followed by each field
+ * </pre>
+ *
+ * Sample indexes carry three fields per entry: title, description and
+ * content. Rendered sample bundles carry a single field per entry: the
+ * rendered HTML sample block. The format mirrors SampleIndexWriter and
+ * RenderedSampleBundleWriter in the aws-java-sdk-sample-extractor module.
+ *
+ * Both stamps are computed with {@link #stamp(InputStream)}. The source stamp
+ * identifies the service XML file the index was built from, so that an index
+ * left behind by an earlier build can be told apart from the current samples.
+ * The render stamp identifies the sample template the entries of a bundle
+ * were rendered with, and is zero for sample indexes.
+ */
+public class BinarySampleIndex implements SampleStore {
+
+    static final String INDEX_EXTENSION = "idx";
+    static final String RENDERED_EXTENSION = "html.idx";
+    static final int MAGIC = 0x41575353;
+    static final int VERSION = 2;
+    static final int HEADER_SIZE = 32;
+
+    private static final int SAMPLE_FIELD_COUNT = 3;
+    private static final int RENDERED_FIELD_COUNT = 1;
+
+    /**
+     * Rough heap overhead, in bytes, of a mapped index: the index object, its
+     * buffer and the file mapping bookkeeping.
+     */
+    static final long MAPPED_INDEX_OVERHEAD = 256;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * Number of chars decoded at a time when streaming sample content.
+     */
+    private static final int CHUNK_CHARS = 4096;
+
+    private final String serviceName;
+    private final ByteBuffer buffer;
+    private final int fieldCount;
+    private final int entryCount;
+    private final long sourceStamp;
+    private final long renderStamp;
+
+    /**
+     * Ctor. The header, entry table and every entry are checked to lie
+     * within the buffer, so that lookups never read past its end.
+     *
+     * @param serviceName
+     *            name of service the index belongs to
+     * @param buffer
+     *            buffer holding the complete index file
+     * @throws IOException
+     *             if the buffer does not hold a complete binary sample index
+     */
+    BinarySampleIndex(final String serviceName, final ByteBuffer buffer)
+            throws IOException {
+        this.serviceName = serviceName;
+        this.buffer = buffer;
+
+        int limit = buffer.limit();
+        if (limit < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a binary sample index for "
+                    + serviceName);
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported binary sample index version "
+                    + buffer.getInt(4) + " for " + serviceName);
+        }
+        this.fieldCount = buffer.getInt(8);
+        this.entryCount = buffer.getInt(12);
+        this.sourceStamp = buffer.getLong(16);
+        this.renderStamp = buffer.getLong(24);
+        if (fieldCount < 0 || entryCount < 0
+                || HEADER_SIZE + 4L * entryCount > limit) {
+            throw new IOException("Corrupt binary sample index header for "
+                    + serviceName);
+        }
+
+        int tableEnd = HEADER_SIZE + 4 * entryCount;
+        for (int i = 0; i < entryCount; i++) {
+            int entry = buffer.getInt(HEADER_SIZE + 4 * i);
+            if (entry < tableEnd || entry > limit) {
+                throw new IOException("Entry " + i + " of binary sample index"
+                        + " for " + serviceName + " is out of bounds");
+            }
+            // the id followed by each field
+            long position = entry;
+            for (int field = 0; field <= fieldCount; field++) {
+                if (position + 4 > limit) {
+                    throw new IOException("Entry " + i + " of binary sample"
+                            + " index for " + serviceName + " is truncated");
+                }
+                int length = buffer.getInt((int) position);
+                position += 4L + length;
+                if (length < 0 || position > limit) {
+                    throw new IOException("Entry " + i + " of binary sample"
+                            + " index for " + serviceName + " is truncated");
+                }
+            }
+        }
+    }
+
+    /**
+     * Loads a binary index, memory-mapping it if it is a local file.
+     *
+     * @param serviceName
+     *            name of service the index belongs to
+     * @param indexUrl
+     *            location of the index file
+     * @return loaded index
+     * @throws IOException
+     *             if the index cannot be read or is not a complete index
+     */
+    public static BinarySampleIndex load(final String serviceName,
+            final URL indexUrl) throws IOException {
+        if ("file".equals(indexUrl.getProtocol())) {
+            File file;
+            try {
+                file = new File(indexUrl.toURI());
+            } catch (Exception e) {
+                file = new File(indexUrl.getPath());
+            }
+            RandomAccessFile raf = new RandomAccessFile(file, "r");
+            try {
+                FileChannel channel = raf.getChannel();
+                return new BinarySampleIndex(serviceName, channel.map(
+                        FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            } finally {
+                raf.close();
+            }
+        }
+
+        InputStream in = indexUrl.openStream();
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] chunk = new byte[8192];
+            int read;
+            while ((read = in.read(chunk)) != -1) {
+                bytes.write(chunk, 0, read);
+            }
+            return new BinarySampleIndex(serviceName, ByteBuffer.wrap(bytes
+                    .toByteArray()));
+        } finally {
+            in.close();
+        }
+    }
+
+    @Override
+    public String getServiceName() {
+        return serviceName;
+    }
+
+    @Override
+    public RetrievedCodeSample getSample(final String sampleId) {
+        if (fieldCount != SAMPLE_FIELD_COUNT) {
+            throw new IllegalStateException(
+                    "Index does not hold title, description and content fields");
+        }
+
+        int entry = findEntry(sampleId);
+        if (entry < 0) {
+            return null;
+        }
+
+        String title = readField(entry, 0);
+        String description = readField(entry, 1);
+        int content = fieldPosition(entry, 2);
+
+        // non-empty UTF-8 always decodes to non-empty content
+        if (ValidationUtils.areNullOrEmpty(title, description)
+                || buffer.getInt(content) == 0) {
+            return null;
+        }
+
+        return new IndexedCodeSample(sampleId, title, description, content);
+    }
+
+    /**
+     * Returns the rendered HTML sample block of a sample from a rendered
+     * sample bundle.
+     *
+     * @param sampleId
+     *            unique id of sample
+     * @return rendered sample block, or null if the bundle has no sample
+     *         with that id
+     */
+    public String getRenderedHTML(final String sampleId) {
+        if (fieldCount != RENDERED_FIELD_COUNT) {
+            throw new IllegalStateException(
+                    "Index is not a rendered sample bundle");
+        }
+
+        int entry = findEntry(sampleId);
+        return entry < 0 ? null : readField(entry, 0);
+    }
+
+    /**
+     * Returns the size of the index file for indexes read onto the heap.
+     * Mapped pages live outside the heap and are paged in and out by the
+     * operating system, so mapped indexes only count their heap overhead.
+     */
+    @Override
+    public long getEstimatedSize() {
+        return buffer.isDirect() ? MAPPED_INDEX_OVERHEAD : buffer.capacity();
+    }
+
+    /**
+     * Returns the stamp of the service XML file this index was built from.
+     *
+     * @return source stamp
+     */
+    public long getSourceStamp() {
+        return sourceStamp;
+    }
+
+    /**
+     * Returns the stamp of the sample template the entries of a rendered
+     * sample bundle were rendered with; zero for sample indexes.
+     *
+     * @return render stamp
+     */
+    public long getRenderStamp() {
+        return renderStamp;
+    }
+
+    /**
+     * Computes the stamp of some content, such as a service XML file: the
+     * first 8 bytes of the SHA-256 hash of the content, as SampleIndexWriter
+     * in the aws-java-sdk-sample-extractor module stamps what it writes.
+     *
+     * @param in
+     *            content to stamp; closed once read
+     * @return stamp of the content
+     * @throws IOException
+     *             if the content cannot be read
+     */
+    public static long stamp(final InputStream in) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+
+        try {
+            byte[] chunk = new byte[8192];
+            int read;
+            while ((read = in.read(chunk)) != -1) {
+                digest.update(chunk, 0, read);
+            }
+        } finally {
+            in.close();
+        }
+        return ByteBuffer.wrap(digest.digest()).getLong();
+    }
+
+    /**
+     * Returns the number of entries in this index.
+     *
+     * @return number of entries
+     */
+    public int size() {
+        return entryCount;
+    }
+
+    /**
+     * Finds the entry for an id with a binary search of the id table.
+     *
+     * @param id
+     *            id to look for
+     * @return absolute offset of the entry, or -1 if absent
+     */
+    int findEntry(final String id) {
+        byte[] key = id.getBytes(UTF8);
+
+        int low = 0;
+        int high = entryCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int entry = buffer.getInt(HEADER_SIZE + 4 * mid);
+            int cmp = compareId(entry, key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return entry;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Decodes a field of an entry; field 0 is the first field after the id.
+     *
+     * @param entry
+     *            absolute offset of the entry
+     * @param field
+     *            index of field to decode
+     * @return decoded field value
+     */
+    String readField(final int entry, final int field) {
+        return decode(fieldPosition(entry, field));
+    }
+
+    /**
+     * Returns the absolute offset of the length prefix of a field of an
+     * entry; field 0 is the first field after the id.
+     */
+    private int fieldPosition(final int entry, final int field) {
+        int position = entry;
+        for (int i = 0; i <= field; i++) {
+            position += 4 + buffer.getInt(position);
+        }
+        return position;
+    }
+
+    /**
+     * Decodes a field in chunks of at most {@link #CHUNK_CHARS} chars,
+     * appending each chunk to the output as it is decoded.
+     */
+    private void writeDecoded(final int position, final Appendable out)
+            throws IOException {
+        ByteBuffer bytes = buffer.duplicate();
+        bytes.limit(position + 4 + buffer.getInt(position));
+        bytes.position(position + 4);
+
+        CharsetDecoder decoder = UTF8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        CharBuffer chunk = CharBuffer.allocate(CHUNK_CHARS);
+        CoderResult result;
+        do {
+            // overflow means the chunk is full and more input remains
+            result = decoder.decode(bytes, chunk, true);
+            chunk.flip();
+            out.append(chunk);
+            chunk.clear();
+        } while (result.isOverflow());
+        decoder.flush(chunk);
+        chunk.flip();
+        out.append(chunk);
+    }
+
+    private int compareId(final int entry, final byte[] key) {
+        int length = buffer.getInt(entry);
+        int start = entry + 4;
+        int common = Math.min(length, key.length);
+        for (int i = 0; i < common; i++) {
+            int diff = (buffer.get(start + i) & 0xff) - (key[i] & 0xff);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return length - key.length;
+    }
+
+    /**
+     * Sample whose content stays in the index until it is asked for.
+     */
+    private final class IndexedCodeSample extends RetrievedCodeSample {
+
+        private final int contentPosition;
+
+        IndexedCodeSample(final String id, final String title,
+                final String description, final int contentPosition) {
+            super(id, serviceName, title, description);
+            this.contentPosition = contentPosition;
+        }
+
+        @Override
+        public String getContent() {
+            return decode(contentPosition);
+        }
+
+        @Override
+        public void writeContent(final Appendable out) throws IOException {
+            writeDecoded(contentPosition, out);
+        }
+    }
+
+    private String decode(final int position) {
+        int length = buffer.getInt(position);
+        if (buffer.hasArray()) {
+            return new String(buffer.array(), buffer.arrayOffset() + position
+                    + 4, length, UTF8);
+        }
+
+        byte[] bytes = new byte[length];
+        ByteBuffer view = buffer.duplicate();
+        view.position(position + 4);
+        view.get(bytes);
+        return new String(bytes, UTF8);
+    }
+}
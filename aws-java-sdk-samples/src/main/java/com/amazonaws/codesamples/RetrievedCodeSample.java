@@ -1,5 +1,7 @@
 package com.amazonaws.codesamples;
 
+import java.io.IOException;
+
 import com.amazonaws.codesamples.util.ValidationUtils;
 
 /**
@@ -41,6 +43,32 @@ public class RetrievedCodeSample {
                 "Sample content must be provided");
     }
 
+    /**
+     * Ctor for samples whose content is held elsewhere and provided by
+     * overriding {@link #getContent()} and {@link #writeContent(Appendable)}.
+     *
+     * @param id
+     *            sample id
+     * @param service
+     *            name of service sample associated with
+     * @param title
+     *            title of the sample
+     * @param description
+     *            description of the sample
+     */
+    RetrievedCodeSample(final String id, final String service,
+            final String title, final String description) {
+        this.id = ValidationUtils.assertInputNotEmpty(id,
+                "Sample ID must be provided");
+        this.service = ValidationUtils.assertInputNotEmpty(service,
+                "Sample service name must be provided");
+        this.title = ValidationUtils.assertInputNotEmpty(title,
+                "Sample title must be provided");
+        this.description = ValidationUtils.assertInputNotEmpty(description,
+                "Sample description must be provided");
+        this.content = null;
+    }
+
     /**
      * Returns the id of the sample.
      *
@@ -85,4 +113,18 @@ public class RetrievedCodeSample {
     public String getContent() {
         return content;
     }
+
+    /**
+     * Writes the code sample content to an output. Samples read from a
+     * binary index stream their content from the index in small chunks
+     * instead of materializing it.
+     *
+     * @param out
+     *            output to write the content to
+     * @throws IOException
+     *             if the output cannot be written
+     */
+    public void writeContent(final Appendable out) throws IOException {
+        out.append(content);
+    }
 }
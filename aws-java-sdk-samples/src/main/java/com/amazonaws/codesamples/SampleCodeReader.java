@@ -14,25 +14,77 @@
  */
 package com.amazonaws.codesamples;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
+import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
 
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import com.amazonaws.codesamples.util.SampleHTMLTemplates;
 import com.amazonaws.codesamples.util.ValidationUtils;
 import com.amazonaws.codesamples.exception.SampleRetrievalException;
 
 /**
  * Reads code samples from a source directory containing processed sample code
  * XML files.
+ *
+ * The first lookup against a service loads a {@link SampleStore} for it, and
+ * later lookups against the same service are served from that store. If the
+ * extractor wrote a binary index for the service and it is stamped with the
+ * current XML file, it is memory-mapped as a {@link BinarySampleIndex};
+ * otherwise the whole XML file is parsed into an in-memory
+ * {@link SampleIndex}. Stores are held in a least-recently-used
+ * cache bounded by their estimated heap size; mapped indexes live outside the
+ * heap and barely count. A service whose store does not fit in the cache at
+ * all is not loaded again: later lookups stream its XML file up to the
+ * requested samples, as readers without a cache do.
+ *
+ * Sample files are located with a {@link SampleResourceLocator}, which
+ * searches the classpath at most once per file, or scans a given list of
+ * directories and jars once. Lookups of samples that the extractor's
+ * {@link SampleKeyFilter sample key filters} rule out return null without
+ * touching any sample file.
+ *
+ * Readers are thread-safe and meant to be shared. Each thread parses with its
+ * own SAX parser, cached stores are immutable and looked up without locking,
+ * and concurrent first lookups against a service wait for a single load.
  */
 public class SampleCodeReader {
 
+    /**
+     * Default upper bound, in bytes, on the estimated memory retained by cached
+     * service indexes.
+     */
+    public static final long DEFAULT_INDEX_CACHE_SIZE = 64L * 1024 * 1024;
+
+    private static final String SAMPLE_EXTENSION = "xml";
+
     private static final SAXParserFactory parserFactory = SAXParserFactory
             .newInstance();
 
-    private final String sampleDir;
-    private final SAXParser saxParser;
+    private final SampleResourceLocator locator;
+    private final ThreadLocal<SAXParser> saxParsers;
+    private final SampleIndexCache indexCache;
+    private final ConcurrentMap<String, FutureTask<SampleStore>> pendingLoads;
+    private final ConcurrentMap<String, Boolean> oversizedServices;
+    private final ConcurrentMap<String, BinarySampleIndex> renderedBundles;
+    private final ConcurrentMap<String, Boolean> staleBundles;
+    private final List<SampleKeyFilter> keyFilters;
 
     /**
      * Ctor.
@@ -43,9 +95,75 @@ public class SampleCodeReader {
      *             if SAX Parser cannot be initialized
      */
     public SampleCodeReader(final String sampleDir) throws Exception {
-        this.sampleDir = ValidationUtils.assertInputNotEmpty(sampleDir,
+        this(sampleDir, DEFAULT_INDEX_CACHE_SIZE);
+    }
+
+    /**
+     * Ctor.
+     *
+     * @param sampleDir
+     *            directory containing code sample XML files
+     * @param indexCacheSize
+     *            maximum estimated size, in bytes, of cached service indexes;
+     *            zero disables indexing and parses the service file on every
+     *            lookup
+     * @throws Exception
+     *             if SAX Parser cannot be initialized
+     */
+    public SampleCodeReader(final String sampleDir, final long indexCacheSize)
+            throws Exception {
+        this(sampleDir, indexCacheSize, null);
+    }
+
+    /**
+     * Ctor.
+     *
+     * @param sampleDir
+     *            directory containing code sample XML files
+     * @param indexCacheSize
+     *            maximum estimated size, in bytes, of cached service indexes;
+     *            zero disables indexing and parses the service file on every
+     *            lookup
+     * @param sampleRoots
+     *            directories and jars holding the sample directory, scanned
+     *            once instead of searching the classpath; null searches the
+     *            classpath
+     * @throws Exception
+     *             if SAX Parser cannot be initialized, or a jar or sample key
+     *             filter cannot be read
+     */
+    public SampleCodeReader(final String sampleDir, final long indexCacheSize,
+            final List<File> sampleRoots) throws Exception {
+        ValidationUtils.assertInputNotEmpty(sampleDir,
                 "Sample directory must be provided");
-        this.saxParser = parserFactory.newSAXParser();
+        this.locator = sampleRoots == null ? new SampleResourceLocator(
+                sampleDir) : new SampleResourceLocator(sampleDir, sampleRoots);
+        if (indexCacheSize < 0) {
+            throw new IllegalArgumentException(
+                    "Index cache size must not be negative");
+        }
+        this.saxParsers = new ThreadLocal<SAXParser>() {
+            @Override
+            protected SAXParser initialValue() {
+                try {
+                    return newSAXParser();
+                } catch (Exception e) {
+                    throw new IllegalStateException(
+                            "Could not initialize SAX parser", e);
+                }
+            }
+        };
+        this.saxParsers.set(newSAXParser());
+        this.indexCache = indexCacheSize > 0 ? new SampleIndexCache(
+                indexCacheSize) : null;
+        this.pendingLoads = new ConcurrentHashMap<String, FutureTask<SampleStore>>();
+        this.oversizedServices = new ConcurrentHashMap<String, Boolean>();
+        this.renderedBundles = new ConcurrentHashMap<String, BinarySampleIndex>();
+        this.staleBundles = new ConcurrentHashMap<String, Boolean>();
+        this.keyFilters = new ArrayList<SampleKeyFilter>();
+        for (URL filter : locator.getResources(SampleKeyFilter.FILTER_FILE)) {
+            keyFilters.add(SampleKeyFilter.load(filter));
+        }
     }
 
     /**
@@ -67,36 +185,376 @@ public class SampleCodeReader {
         ValidationUtils.assertInputNotEmpty(sampleId,
                 "Sample ID must be provided");
 
-        String targetSampleFile = String.format("/%s/%s.xml", sampleDir,
-                serviceName);
-        InputStream in = getClass().getResourceAsStream(targetSampleFile);
+        if (!mightHaveSample(serviceName, sampleId)) {
+            return null;
+        }
+        if (indexCache == null || oversizedServices.containsKey(serviceName)) {
+            return readSampleFromFile(serviceName, sampleId);
+        }
+
+        SampleStore store = getSampleStore(serviceName, sampleId);
+        return store == null ? null : store.getSample(sampleId);
+    }
+
+    /**
+     * Retrieves several code samples of a service, reading the service's
+     * samples at most once.
+     *
+     * @param serviceName
+     *            service samples belong to
+     * @param sampleIds
+     *            unique ids of samples
+     * @return retrieved code samples in the order of the requested ids, with
+     *         null in place of samples that do not exist or are incomplete
+     * @throws SampleRetrievalException
+     *             if samples cannot be retrieved due to an error
+     */
+    public List<RetrievedCodeSample> readSamples(final String serviceName,
+            final Collection<String> sampleIds)
+            throws SampleRetrievalException {
+        ValidationUtils.assertInputNotEmpty(serviceName,
+                "Sample service name must be provided");
+        if (sampleIds == null) {
+            throw new IllegalArgumentException("Sample IDs must be provided");
+        }
+        for (String sampleId : sampleIds) {
+            ValidationUtils.assertInputNotEmpty(sampleId,
+                    "Sample ID must be provided");
+        }
+
+        List<RetrievedCodeSample> samples = new ArrayList<RetrievedCodeSample>(
+                sampleIds.size());
+        boolean anyMightExist = false;
+        for (String sampleId : sampleIds) {
+            anyMightExist |= mightHaveSample(serviceName, sampleId);
+        }
+        if (!anyMightExist) {
+            samples.addAll(Collections.<RetrievedCodeSample> nCopies(
+                    sampleIds.size(), null));
+            return samples;
+        }
+
+        if (indexCache == null || oversizedServices.containsKey(serviceName)) {
+            return readSamplesFromFile(serviceName, sampleIds);
+        }
+
+        SampleStore store = getSampleStore(serviceName,
+                describeIds(sampleIds));
+        for (String sampleId : sampleIds) {
+            samples.add(store == null ? null : store.getSample(sampleId));
+        }
+        return samples;
+    }
+
+    /**
+     * Returns whether a sample may exist, according to the sample key filters
+     * written by the sample extractor next to the sample files. The answer
+     * takes no file access. Services that no filter covers may have samples.
+     *
+     * @param serviceName
+     *            service sample belongs to
+     * @param sampleId
+     *            unique id of sample
+     * @return false if the sample certainly does not exist
+     */
+    public boolean mightHaveSample(final String serviceName,
+            final String sampleId) {
+        boolean covered = false;
+        for (SampleKeyFilter filter : keyFilters) {
+            if (filter.coversService(serviceName)) {
+                if (filter.mightContain(serviceName, sampleId)) {
+                    return true;
+                }
+                covered = true;
+            }
+        }
+        return !covered;
+    }
+
+    /**
+     * Retrieves the pre-rendered HTML sample block of a code sample from the
+     * rendered sample bundle of its service, as written by
+     * RenderedSampleBundleWriter in the aws-java-sdk-sample-extractor module.
+     * Bundles are memory-mapped when first used and kept open. A bundle is
+     * only used if it is stamped with the current XML file of the service
+     * and with the sample template of {@link SampleHTMLTemplates}; other
+     * bundles are left from earlier builds or were rendered with another
+     * template, and are ignored from then on.
+     *
+     * @param serviceName
+     *            service sample belongs to
+     * @param sampleId
+     *            unique id of sample
+     * @return rendered sample block, or null if the service has no usable
+     *         bundle or the bundle has no such sample
+     * @throws SampleRetrievalException
+     *             if the bundle cannot be loaded
+     */
+    public String readRenderedSample(final String serviceName,
+            final String sampleId) throws SampleRetrievalException {
+        ValidationUtils.assertInputNotEmpty(serviceName,
+                "Sample service name must be provided");
+        ValidationUtils.assertInputNotEmpty(sampleId,
+                "Sample ID must be provided");
+
+        if (!mightHaveSample(serviceName, sampleId)) {
+            return null;
+        }
+
+        BinarySampleIndex bundle = renderedBundles.get(serviceName);
+        if (bundle == null) {
+            if (staleBundles.containsKey(serviceName)) {
+                return null;
+            }
+            URL bundleUrl = locator.getResource(serviceName,
+                    BinarySampleIndex.RENDERED_EXTENSION);
+            if (bundleUrl == null) {
+                return null;
+            }
+            InputStream in = openSampleFile(serviceName, sampleId);
+            try {
+                bundle = BinarySampleIndex.load(serviceName, bundleUrl);
+                if (in == null
+                        || bundle.getSourceStamp() != BinarySampleIndex
+                                .stamp(in)
+                        || bundle.getRenderStamp() != SampleHTMLTemplates
+                                .getSampleTemplateStamp()) {
+                    staleBundles.put(serviceName, Boolean.TRUE);
+                    return null;
+                }
+            } catch (Exception e) {
+                throw new SampleRetrievalException(
+                        "Could not load rendered sample bundle", serviceName,
+                        sampleId, e);
+            } finally {
+                if (in != null) {
+                    closeQuietly(in);
+                }
+            }
+            // a concurrent load of the same bundle is harmless; keep one
+            BinarySampleIndex loaded = renderedBundles.putIfAbsent(
+                    serviceName, bundle);
+            if (loaded != null) {
+                bundle = loaded;
+            }
+        }
+        return bundle.getRenderedHTML(sampleId);
+    }
+
+    /**
+     * Returns the sample store for a service, loading and caching it on first
+     * use. Threads that look up a service while it is being loaded wait for
+     * that load instead of starting their own. A store too large for the
+     * cache serves the lookup that loaded it, and marks its service for
+     * streaming from then on.
+     */
+    private SampleStore getSampleStore(final String serviceName,
+            final String sampleId) throws SampleRetrievalException {
+        SampleStore store = indexCache.get(serviceName);
+        if (store != null) {
+            return store;
+        }
+
+        FutureTask<SampleStore> load = new FutureTask<SampleStore>(
+                new Callable<SampleStore>() {
+                    public SampleStore call() throws Exception {
+                        SampleStore loaded = loadSampleStore(serviceName,
+                                sampleId);
+                        if (loaded != null && !indexCache.put(loaded)) {
+                            oversizedServices.put(serviceName, Boolean.TRUE);
+                        }
+                        return loaded;
+                    }
+                });
+        FutureTask<SampleStore> pending = pendingLoads.putIfAbsent(
+                serviceName, load);
+        if (pending == null) {
+            pending = load;
+            try {
+                load.run();
+            } finally {
+                pendingLoads.remove(serviceName, load);
+            }
+        }
+
+        try {
+            return pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SampleRetrievalException(
+                    "Interrupted while loading samples", serviceName,
+                    sampleId, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SampleRetrievalException) {
+                throw (SampleRetrievalException) e.getCause();
+            }
+            throw new SampleRetrievalException("Could not load samples",
+                    serviceName, sampleId, e.getCause());
+        }
+    }
 
+    /**
+     * Loads the binary index of a service if there is one that matches its
+     * XML file, and otherwise parses the XML file into an in-memory index.
+     * An index that does not match was left by an earlier build and would
+     * hide the current samples, so it is ignored; hashing the XML file is
+     * still far cheaper than parsing it.
+     */
+    private SampleStore loadSampleStore(final String serviceName,
+            final String sampleId) throws SampleRetrievalException {
+        URL binaryIndex = locator.getResource(serviceName,
+                BinarySampleIndex.INDEX_EXTENSION);
+        if (binaryIndex == null) {
+            return parseSampleIndex(serviceName, sampleId);
+        }
+
+        InputStream in = openSampleFile(serviceName, sampleId);
+        if (in == null) {
+            // the samples of the service were removed since
+            return null;
+        }
+        try {
+            BinarySampleIndex index = BinarySampleIndex.load(serviceName,
+                    binaryIndex);
+            if (index.getSourceStamp() == BinarySampleIndex.stamp(in)) {
+                return index;
+            }
+        } catch (Exception e) {
+            throw new SampleRetrievalException(
+                    "Could not load binary sample index", serviceName,
+                    sampleId, e);
+        } finally {
+            closeQuietly(in);
+        }
+        return parseSampleIndex(serviceName, sampleId);
+    }
+
+    /**
+     * Parses the whole XML file of a service into an in-memory index.
+     */
+    private SampleIndex parseSampleIndex(final String serviceName,
+            final String sampleId) throws SampleRetrievalException {
+        InputStream in = openSampleFile(serviceName, sampleId);
         if (in == null) {
-            // sample file does not exist.  typically this means that this service
-            // does not yet have any samples.  quietly handle this case.
             return null;
         }
 
-        SampleCodeXMLParser parser = new SampleCodeXMLParser(sampleId);
+        SampleIndexXMLParser parser = new SampleIndexXMLParser(serviceName);
+        parse(in, parser, serviceName, sampleId);
+
+        return parser.getSampleIndex();
+    }
+
+    /**
+     * Parses a service file looking for a single sample, without indexing.
+     */
+    private RetrievedCodeSample readSampleFromFile(final String serviceName,
+            final String sampleId) throws SampleRetrievalException {
+        return readSamplesFromFile(serviceName,
+                Collections.singletonList(sampleId)).get(0);
+    }
+
+    /**
+     * Parses a service file looking for several samples in one pass, without
+     * indexing.
+     */
+    private List<RetrievedCodeSample> readSamplesFromFile(
+            final String serviceName, final Collection<String> sampleIds)
+            throws SampleRetrievalException {
+        List<RetrievedCodeSample> samples = new ArrayList<RetrievedCodeSample>(
+                sampleIds.size());
+        InputStream in = openSampleFile(serviceName, describeIds(sampleIds));
+
+        if (in == null) {
+            samples.addAll(Collections.<RetrievedCodeSample> nCopies(
+                    sampleIds.size(), null));
+            return samples;
+        }
+
+        SampleCodeXMLParser parser = new SampleCodeXMLParser(sampleIds);
+        parse(in, parser, serviceName, describeIds(sampleIds));
+
+        for (String sampleId : sampleIds) {
+            String sampleContent = parser.getSampleContent(sampleId);
+            String sampleTitle = parser.getSampleTitle(sampleId);
+            String sampleDescription = parser.getSampleDescription(sampleId);
+
+            if (ValidationUtils.areNullOrEmpty(sampleContent, sampleTitle,
+                    sampleDescription)) {
+                // quietly handle missing or incomplete samples
+                samples.add(null);
+            } else {
+                samples.add(new RetrievedCodeSample(sampleId, serviceName,
+                        sampleTitle, sampleDescription, sampleContent));
+            }
+        }
+        return samples;
+    }
+
+    /**
+     * Describes requested sample ids for error messages.
+     */
+    private static String describeIds(final Collection<String> sampleIds) {
+        return sampleIds.size() == 1 ? sampleIds.iterator().next()
+                : sampleIds.toString();
+    }
+
+    /**
+     * Parses a sample file with the calling thread's SAX parser, treating a
+     * handler that stops early with {@link SampleCodeXMLParser#SAMPLE_FOUND}
+     * as a successful parse.
+     */
+    private void parse(final InputStream in, final DefaultHandler handler,
+            final String serviceName, final String sampleId)
+            throws SampleRetrievalException {
+        SAXParser saxParser = saxParsers.get();
         try {
-            saxParser.parse(in, parser);
+            saxParser.parse(in, handler);
+        } catch (SAXException e) {
+            if (e != SampleCodeXMLParser.SAMPLE_FOUND) {
+                throw new SampleRetrievalException("Could not parse sample",
+                        serviceName, sampleId, e);
+            }
         } catch (Exception e) {
             throw new SampleRetrievalException("Could not parse sample",
                     serviceName, sampleId, e);
+        } finally {
+            saxParser.reset();
+            closeQuietly(in);
         }
+    }
 
-        String sampleContent = parser.getSampleContent();
-        String sampleTitle = parser.getSampleTitle();
-        String sampleDescription = parser.getSampleDescription();
-        
-        if (ValidationUtils.areNullOrEmpty(sampleContent, sampleTitle,
-                sampleDescription)) {
-            // quietly handle missing or incomplete samples
-            return null;
+    private static void closeQuietly(final InputStream in) {
+        try {
+            in.close();
+        } catch (IOException e) {
+            // nothing was written, so there is nothing to lose
+        }
+    }
+
+    private static SAXParser newSAXParser()
+            throws ParserConfigurationException, SAXException {
+        // factories are not guaranteed to be thread-safe
+        synchronized (parserFactory) {
+            return parserFactory.newSAXParser();
         }
+    }
 
-        return new RetrievedCodeSample(sampleId, serviceName,
-                sampleTitle, sampleDescription, sampleContent);
+    private InputStream openSampleFile(final String serviceName,
+            final String sampleId) throws SampleRetrievalException {
+        URL sampleFile = locator.getResource(serviceName, SAMPLE_EXTENSION);
+
+        // a null stream means the sample file does not exist.  typically
+        // this means that this service does not yet have any samples.
+        if (sampleFile == null) {
+            return null;
+        }
+        try {
+            return sampleFile.openStream();
+        } catch (IOException e) {
+            throw new SampleRetrievalException("Could not open sample file",
+                    serviceName, sampleId, e);
+        }
     }
 
 }
@@ -14,11 +14,17 @@
  */
 package com.amazonaws.codesamples;
 
+import com.amazonaws.codesamples.util.CompiledTemplate;
 import com.amazonaws.codesamples.util.SampleHTMLTemplates;
 import com.sun.javadoc.Tag;
 import com.sun.tools.doclets.Taglet;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
@@ -34,27 +40,105 @@ import java.net.URLClassLoader;
  * Taglet that retrieves and injects sample code blocks into sections of
  * Javadocs marked with @sample tags.  Samples are retrieved from an
  * intermediate XML format, formatted into HTML blocks, and inserted
- * into the final Javadoc.
+ * into the final Javadoc.  Samples of services whose HTML blocks were
+ * pre-rendered at build time by the sample extractor, with the same sample
+ * template, are only looked up.
  *
  * Example tag: @sample S3.FooSample
  */
 public class SampleCodeTaglet implements Taglet {
 
+    /**
+     * System property listing directories and jars, separated by the
+     * platform path separator, that hold the samples directory. They are
+     * scanned once when the taglet is created instead of searching the
+     * classpath for sample files.
+     */
+    public static final String SAMPLE_ROOTS_PROPERTY = "com.amazonaws.codesamples.sampleRoots";
+
     private static final String SAMPLE_TAG = "sample";
     private static final String SAMPLES_DIRECTORY = "samples";
     private static final Pattern SAMPLE_TAG_PATTERN = Pattern
             .compile("([^\\s.]+)\\.([^\\s.]+)$");
 
+    /**
+     * Maximum total length, in chars, of the rendered sample fragments kept
+     * for samples referenced more than once.
+     */
+    private static final long RENDER_CACHE_CHARS = 8 * 1024 * 1024;
+
+    /**
+     * Maximum length, in chars, of a rendered sample fragment to cache.
+     * Larger samples are streamed into the output every time without being
+     * copied.
+     */
+    private static final int MAX_CACHED_FRAGMENT_CHARS = 64 * 1024;
+
+    /**
+     * Render caches of every taglet created in this process. Javadoc may
+     * create several taglets, so their statistics are summed into a single
+     * report printed when the process exits.
+     */
+    private static final List<SampleRenderCache> renderCaches = Collections
+            .synchronizedList(new ArrayList<SampleRenderCache>());
+
     private SampleCodeReader reader;
+    private final SampleRenderCache renderCache;
 
     public SampleCodeTaglet() {
         try {
-            reader = new SampleCodeReader(SAMPLES_DIRECTORY);
+            reader = new SampleCodeReader(SAMPLES_DIRECTORY,
+                    SampleCodeReader.DEFAULT_INDEX_CACHE_SIZE,
+                    getSampleRoots());
         } catch (Exception e) {
             System.err.println("Could not initialize sample reader for taglet"
                     + " processor.  Code samples will not be injected.");
             e.printStackTrace();
         }
+
+        renderCache = new SampleRenderCache(RENDER_CACHE_CHARS);
+        registerRenderCache(renderCache);
+    }
+
+    /**
+     * Adds a render cache to the end of run report, registering the shutdown
+     * hook that prints the report with the first cache. Taglets are not told
+     * when the Javadoc run ends, and the report goes to standard error to
+     * stay out of the Javadoc output.
+     */
+    private static void registerRenderCache(final SampleRenderCache cache) {
+        synchronized (renderCaches) {
+            if (renderCaches.isEmpty()) {
+                Runtime.getRuntime().addShutdownHook(new Thread() {
+                    public void run() {
+                        synchronized (renderCaches) {
+                            System.err.println(SampleRenderCache
+                                    .getStatistics(renderCaches));
+                        }
+                    }
+                });
+            }
+            renderCaches.add(cache);
+        }
+    }
+
+    /**
+     * Returns the sample roots named by {@link #SAMPLE_ROOTS_PROPERTY}, or
+     * null if it is not set.
+     */
+    private static List<File> getSampleRoots() {
+        String property = System.getProperty(SAMPLE_ROOTS_PROPERTY);
+        if (property == null || property.trim().length() == 0) {
+            return null;
+        }
+
+        List<File> roots = new ArrayList<File>();
+        for (String root : property.split(Pattern.quote(File.pathSeparator))) {
+            if (root.trim().length() > 0) {
+                roots.add(new File(root.trim()));
+            }
+        }
+        return roots;
     }
 
     @Override
@@ -117,7 +201,20 @@ public class SampleCodeTaglet implements Taglet {
             return null;
         }
 
-        List<RetrievedCodeSample> samples = new ArrayList<RetrievedCodeSample>();
+        // the constructor already reported that samples will not be injected
+        if (reader == null) {
+            return "";
+        }
+
+        final String[] tagFragments = new String[tags.length];
+        final RetrievedCodeSample[] tagSamples = new RetrievedCodeSample[tags.length];
+        final String[] tagServices = new String[tags.length];
+        final String[] tagSampleIds = new String[tags.length];
+
+        // group the ids of samples not rendered yet by service so each
+        // service is read only once
+        Map<String, List<String>> serviceSampleIds = new LinkedHashMap<String, List<String>>();
+        Map<String, List<Integer>> serviceTagIndexes = new HashMap<String, List<Integer>>();
 
         for (int i = 0; i < tags.length; i++) {
             String tagText = tags[i].text();
@@ -128,30 +225,165 @@ public class SampleCodeTaglet implements Taglet {
             if (sampleTagMatcher.find()) {
                 String serviceName = sampleTagMatcher.group(1);
                 String sampleId = sampleTagMatcher.group(2);
+                tagServices[i] = serviceName;
+                tagSampleIds[i] = sampleId;
 
-                try {
-                    RetrievedCodeSample sample = reader.readSample(serviceName, sampleId);
-                    if (sample != null) {
-                        samples.add(sample);
-                    }
-                } catch (Exception e) {
-                    System.err.println("Could not parse tag: " + tagText);
-                    e.printStackTrace();
+                // most tags reference samples that do not exist
+                if (!reader.mightHaveSample(serviceName, sampleId)) {
+                    continue;
+                }
+
+                tagFragments[i] = readRenderedSample(serviceName, sampleId);
+                if (tagFragments[i] != null) {
+                    continue;
                 }
+
+                List<String> sampleIds = serviceSampleIds.get(serviceName);
+                if (sampleIds == null) {
+                    sampleIds = new ArrayList<String>();
+                    serviceSampleIds.put(serviceName, sampleIds);
+                    serviceTagIndexes.put(serviceName, new ArrayList<Integer>());
+                }
+                sampleIds.add(sampleId);
+                serviceTagIndexes.get(serviceName).add(i);
             } else {
                 System.err.println("Sample tag did not match expected format: "
                         + tagText);
             }
         }
 
+        boolean hasSamples = false;
+        for (String fragment : tagFragments) {
+            hasSamples |= fragment != null;
+        }
+
+        for (Map.Entry<String, List<String>> entry : serviceSampleIds
+                .entrySet()) {
+            List<Integer> tagIndexes = serviceTagIndexes.get(entry.getKey());
+            try {
+                List<RetrievedCodeSample> serviceSamples = reader.readSamples(
+                        entry.getKey(), entry.getValue());
+                for (int i = 0; i < tagIndexes.size(); i++) {
+                    tagSamples[tagIndexes.get(i)] = serviceSamples.get(i);
+                    hasSamples |= serviceSamples.get(i) != null;
+                }
+            } catch (Exception e) {
+                for (Integer tagIndex : tagIndexes) {
+                    System.err.println("Could not parse tag: "
+                            + tags[tagIndex].text());
+                }
+                e.printStackTrace();
+            }
+        }
+
         /*
          * Only render the sample block if we've actually got valid samples
          * to display.
          */
-        if (!samples.isEmpty()) {
-            return SampleHTMLTemplates.getSampleSectionHTML(samples);
-        } else {
+        if (!hasSamples) {
             return "";
         }
+
+        // samples are rendered straight into the section, streaming their
+        // content from the sample store; the taglet API takes the section as
+        // a String, so the section is the only copy of the samples made
+        StringBuilder html = new StringBuilder();
+        try {
+            SampleHTMLTemplates.renderSampleSectionHTML(html,
+                    new CompiledTemplate.SlotWriter() {
+                        public void writeSlot(final int slot,
+                                final Appendable out) throws IOException {
+                            for (int i = 0; i < tagFragments.length; i++) {
+                                if (tagFragments[i] != null) {
+                                    out.append(tagFragments[i]);
+                                } else if (tagSamples[i] != null) {
+                                    renderSample(out, tagServices[i],
+                                            tagSampleIds[i], tagSamples[i]);
+                                }
+                            }
+                        }
+                    });
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return html.toString();
+    }
+
+    /**
+     * Returns the rendered sample block from the rendered sample bundle of
+     * the service if the build wrote one, and otherwise from the cache of
+     * samples rendered by this taglet.
+     */
+    private String readRenderedSample(final String serviceName,
+            final String sampleId) {
+        try {
+            String fragment = reader.readRenderedSample(serviceName, sampleId);
+            if (fragment != null) {
+                return fragment;
+            }
+        } catch (Exception e) {
+            System.err.println("Could not read rendered sample "
+                    + serviceName + "." + sampleId);
+            e.printStackTrace();
+        }
+        return renderCache.get(serviceName, sampleId);
+    }
+
+    /**
+     * Renders a sample to the output, caching its fragment if it is small
+     * enough.
+     */
+    private void renderSample(final Appendable out, final String serviceName,
+            final String sampleId, final RetrievedCodeSample sample)
+            throws IOException {
+        FragmentCopy fragment = new FragmentCopy(out);
+        SampleHTMLTemplates.renderSampleHTML(fragment, sample);
+        if (fragment.getCopy() != null) {
+            renderCache.put(serviceName, sampleId, fragment.getCopy());
+        }
+    }
+
+    /**
+     * Passes rendered output through while keeping a copy of it, until the
+     * copy would grow beyond {@link #MAX_CACHED_FRAGMENT_CHARS}.
+     */
+    private static final class FragmentCopy implements Appendable {
+
+        private final Appendable out;
+        private StringBuilder copy = new StringBuilder();
+
+        FragmentCopy(final Appendable out) {
+            this.out = out;
+        }
+
+        public Appendable append(final CharSequence csq) throws IOException {
+            CharSequence text = csq == null ? "null" : csq;
+            return append(text, 0, text.length());
+        }
+
+        public Appendable append(final CharSequence csq, final int start,
+                final int end) throws IOException {
+            CharSequence text = csq == null ? "null" : csq;
+            out.append(text, start, end);
+            if (copy != null) {
+                if (copy.length() + end - start > MAX_CACHED_FRAGMENT_CHARS) {
+                    copy = null;
+                } else {
+                    copy.append(text, start, end);
+                }
+            }
+            return this;
+        }
+
+        public Appendable append(final char c) throws IOException {
+            return append(String.valueOf(c), 0, 1);
+        }
+
+        /**
+         * Returns the copy of the output, or null if it grew too long.
+         */
+        String getCopy() {
+            return copy == null ? null : copy.toString();
+        }
     }
 }
@@ -14,14 +14,45 @@
  */
 package com.amazonaws.codesamples;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
 import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
 import org.xml.sax.helpers.DefaultHandler;
 
 /**
  * SAX handler for parsing XML formatted Javadoc sample files.
+ *
+ * The handler looks for one or more target samples in a single pass. If a
+ * sample id occurs more than once, the last occurrence is returned, as the
+ * sample indexes do; sample generators give every example of an operation
+ * the same id, so the parse cannot stop at the first match and always reads
+ * the whole file. A handler with no target samples stops before reading
+ * anything by throwing {@link #SAMPLE_FOUND}, which callers must treat as
+ * success.
  */
 public class SampleCodeXMLParser extends DefaultHandler {
 
+    /**
+     * Signal thrown to stop parsing when there is nothing to read. It is
+     * preallocated and carries no stack trace, so stopping early costs no
+     * more than returning.
+     */
+    static final SAXException SAMPLE_FOUND = new SAXException(
+            "Target sample found") {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    };
+
     private static final String SAMPLE_ELEMENT = "sample";
     private static final String CONTENT_ELEMENT = "content";
     private static final String ID_ATTRIBUTE = "id";
@@ -30,19 +61,44 @@ public class SampleCodeXMLParser extends DefaultHandler {
 
     private boolean inTargetSample;
     private boolean inTargetContent;
-    private StringBuffer sampleBuffer;
+    private final StringBuilder sampleBuffer;
 
     private final String sampleId;
+    private final Set<String> targetIds;
+    private final Map<String, String> sampleTitles;
+    private final Map<String, String> sampleDescriptions;
+    private final Map<String, String> sampleContents;
 
-    private String sampleTitle;
-    private String sampleDescription;
-    private String sampleContent;
+    private String currentId;
 
     public SampleCodeXMLParser(final String sampleId) {
+        this(Collections.singleton(sampleId));
+    }
+
+    /**
+     * Ctor.
+     *
+     * @param sampleIds
+     *            ids of the samples to read; the no-argument getters return
+     *            the fields of the first
+     */
+    public SampleCodeXMLParser(final Collection<String> sampleIds) {
         this.inTargetSample = false;
         this.inTargetContent = false;
-        this.sampleBuffer = new StringBuffer();
-        this.sampleId = sampleId;
+        this.sampleBuffer = new StringBuilder();
+        this.sampleId = sampleIds.isEmpty() ? null : sampleIds.iterator()
+                .next();
+        this.targetIds = new HashSet<String>(sampleIds);
+        this.sampleTitles = new HashMap<String, String>();
+        this.sampleDescriptions = new HashMap<String, String>();
+        this.sampleContents = new HashMap<String, String>();
+    }
+
+    @Override
+    public void startDocument() throws SAXException {
+        if (targetIds.isEmpty()) {
+            throw SAMPLE_FOUND;
+        }
     }
 
     @Override
@@ -50,10 +106,14 @@ public class SampleCodeXMLParser extends DefaultHandler {
             Attributes attributes) {
         if (qName.equals(SAMPLE_ELEMENT)) {
             String idAttr = attributes.getValue(ID_ATTRIBUTE);
-            if (idAttr != null && idAttr.equals(sampleId)) {
+            if (idAttr != null && targetIds.contains(idAttr)) {
                 inTargetSample = true;
-                sampleTitle = attributes.getValue(TITLE_ATTRIBUTE);
-                sampleDescription = attributes.getValue(DESCRIPTION_ATTRIBUTE);
+                currentId = idAttr;
+                sampleTitles.put(idAttr, attributes.getValue(TITLE_ATTRIBUTE));
+                sampleDescriptions.put(idAttr,
+                        attributes.getValue(DESCRIPTION_ATTRIBUTE));
+                // a later duplicate replaces the whole sample
+                sampleContents.remove(idAttr);
             }
         }
 
@@ -72,22 +132,37 @@ public class SampleCodeXMLParser extends DefaultHandler {
 
     @Override
     public void endElement(String uri, String localName, String qName) {
-        if (inTargetContent) {
-            sampleContent = sampleBuffer.toString();
+        if (qName.equals(CONTENT_ELEMENT) && inTargetContent) {
+            sampleContents.put(currentId, sampleBuffer.toString());
+            sampleBuffer.setLength(0);
             inTargetContent = false;
+        } else if (qName.equals(SAMPLE_ELEMENT) && inTargetSample) {
+            inTargetSample = false;
+            currentId = null;
         }
-        inTargetSample = false;
     }
 
     public String getSampleTitle() {
-        return sampleTitle;
+        return getSampleTitle(sampleId);
     }
 
     public String getSampleDescription() {
-        return sampleDescription;
+        return getSampleDescription(sampleId);
     }
 
     public String getSampleContent() {
-        return sampleContent;
+        return getSampleContent(sampleId);
+    }
+
+    public String getSampleTitle(final String id) {
+        return sampleTitles.get(id);
+    }
+
+    public String getSampleDescription(final String id) {
+        return sampleDescriptions.get(id);
+    }
+
+    public String getSampleContent(final String id) {
+        return sampleContents.get(id);
     }
 }
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2013-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.codesamples;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable in-memory index of the complete samples for a single service,
+ * keyed by sample id.
+ */
+public class SampleIndex implements SampleStore {
+
+    /**
+     * Rough per-sample overhead, in bytes, of the index entry, the sample
+     * object and its string headers.
+     */
+    private static final long SAMPLE_OVERHEAD = 128;
+
+    private final String serviceName;
+    private final Map<String, RetrievedCodeSample> samples;
+    private final long estimatedSize;
+
+    /**
+     * Ctor.
+     *
+     * @param serviceName
+     *            name of service the samples belong to
+     * @param samples
+     *            complete samples keyed by sample id
+     */
+    public SampleIndex(final String serviceName,
+            final Map<String, RetrievedCodeSample> samples) {
+        this.serviceName = serviceName;
+        this.samples = Collections
+                .unmodifiableMap(new HashMap<String, RetrievedCodeSample>(
+                        samples));
+        this.estimatedSize = estimateSize(this.samples);
+    }
+
+    @Override
+    public String getServiceName() {
+        return serviceName;
+    }
+
+    @Override
+    public RetrievedCodeSample getSample(final String sampleId) {
+        return samples.get(sampleId);
+    }
+
+    /**
+     * Returns every sample in this index, in no particular order.
+     *
+     * @return unmodifiable view of the samples
+     */
+    public Collection<RetrievedCodeSample> getSamples() {
+        return samples.values();
+    }
+
+    /**
+     * Returns the number of samples in this index.
+     *
+     * @return number of samples
+     */
+    public int size() {
+        return samples.size();
+    }
+
+    @Override
+    public long getEstimatedSize() {
+        return estimatedSize;
+    }
+
+    private static long estimateSize(
+            final Map<String, RetrievedCodeSample> samples) {
+        long size = 0;
+        for (RetrievedCodeSample sample : samples.values()) {
+            long chars = sample.getId().length()
+                    + sample.getTitle().length()
+                    + sample.getDescription().length()
+                    + sample.getContent().length();
+            size += SAMPLE_OVERHEAD + 2 * chars;
+        }
+        return size;
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2013-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.codesamples;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Approximately least-recently-used cache of service sample stores, bounded by
+ * the estimated heap memory retained by the cached stores rather than by entry
+ * count so that a handful of very large services cannot crowd out the heap.
+ *
+ * Lookups do not take a lock. Each store is stamped with the current cache
+ * generation when used, and a new generation starts whenever a store is
+ * added, so a lookup only writes to shared state the first time a store is
+ * used after another store was loaded. Eviction, which only happens while
+ * adding a store, removes the stores with the oldest stamps first.
+ */
+class SampleIndexCache {
+
+    private final long maxSize;
+    private final ConcurrentHashMap<String, CachedStore> stores;
+    private volatile long generation;
+    private volatile long currentSize;
+
+    /**
+     * Ctor.
+     *
+     * @param maxSize
+     *            maximum estimated size, in bytes, of all cached stores
+     */
+    SampleIndexCache(final long maxSize) {
+        this.maxSize = maxSize;
+        this.stores = new ConcurrentHashMap<String, CachedStore>();
+    }
+
+    /**
+     * Returns the cached store for a service, marking it as recently used.
+     *
+     * @param serviceName
+     *            name of service
+     * @return cached store, or null if not cached
+     */
+    SampleStore get(final String serviceName) {
+        CachedStore cached = stores.get(serviceName);
+        if (cached == null) {
+            return null;
+        }
+
+        long current = generation;
+        if (cached.lastUsed != current) {
+            cached.lastUsed = current;
+        }
+        return cached.store;
+    }
+
+    /**
+     * Caches the store for a service, evicting the least recently used stores
+     * until the cache fits within its size budget. Stores larger than the
+     * entire budget are not retained.
+     *
+     * @param store
+     *            store to cache
+     * @return false if the store is larger than the entire budget and was
+     *         not retained
+     */
+    synchronized boolean put(final SampleStore store) {
+        if (store.getEstimatedSize() > maxSize) {
+            return false;
+        }
+
+        CachedStore added = new CachedStore(store, generation);
+        CachedStore previous = stores.put(store.getServiceName(), added);
+        long size = currentSize + store.getEstimatedSize();
+        if (previous != null) {
+            size -= previous.store.getEstimatedSize();
+        }
+        generation++;
+
+        while (size > maxSize) {
+            CachedStore eldest = null;
+            for (CachedStore cached : stores.values()) {
+                if (cached != added
+                        && (eldest == null || cached.lastUsed < eldest.lastUsed)) {
+                    eldest = cached;
+                }
+            }
+            if (eldest == null) {
+                break;
+            }
+            stores.remove(eldest.store.getServiceName(), eldest);
+            size -= eldest.store.getEstimatedSize();
+        }
+        currentSize = size;
+        return true;
+    }
+
+    /**
+     * Returns the number of cached stores.
+     *
+     * @return number of cached stores
+     */
+    int size() {
+        return stores.size();
+    }
+
+    /**
+     * Returns the estimated size, in bytes, of all cached stores.
+     *
+     * @return estimated cache size in bytes
+     */
+    long getCurrentSize() {
+        return currentSize;
+    }
+
+    /**
+     * Cached store with the cache generation it was last used in.
+     */
+    private static final class CachedStore {
+
+        private final SampleStore store;
+        private volatile long lastUsed;
+
+        CachedStore(final SampleStore store, final long lastUsed) {
+            this.store = store;
+            this.lastUsed = lastUsed;
+        }
+    }
+}
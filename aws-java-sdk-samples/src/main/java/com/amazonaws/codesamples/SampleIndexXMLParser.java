@@ -0,0 +1,113 @@
+/*
+ * Copyright 2013-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.codesamples;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.DefaultHandler;
+
+import com.amazonaws.codesamples.util.ValidationUtils;
+
+/**
+ * SAX handler that reads every sample in an XML formatted Javadoc sample file
+ * in a single pass, producing a {@link SampleIndex} for the service.
+ */
+public class SampleIndexXMLParser extends DefaultHandler {
+
+    private static final String SAMPLE_ELEMENT = "sample";
+    private static final String CONTENT_ELEMENT = "content";
+    private static final String ID_ATTRIBUTE = "id";
+    private static final String TITLE_ATTRIBUTE = "title";
+    private static final String DESCRIPTION_ATTRIBUTE = "description";
+
+    private final String serviceName;
+    private final Map<String, RetrievedCodeSample> samples;
+    private final StringBuilder contentBuffer;
+
+    private boolean inSample;
+    private boolean inContent;
+
+    private String sampleId;
+    private String sampleTitle;
+    private String sampleDescription;
+    private String sampleContent;
+
+    public SampleIndexXMLParser(final String serviceName) {
+        this.serviceName = serviceName;
+        this.samples = new HashMap<String, RetrievedCodeSample>();
+        this.contentBuffer = new StringBuilder();
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName,
+            Attributes attributes) {
+        if (qName.equals(SAMPLE_ELEMENT)) {
+            inSample = true;
+            sampleId = attributes.getValue(ID_ATTRIBUTE);
+            sampleTitle = attributes.getValue(TITLE_ATTRIBUTE);
+            sampleDescription = attributes.getValue(DESCRIPTION_ATTRIBUTE);
+            sampleContent = null;
+        } else if (qName.equals(CONTENT_ELEMENT) && inSample) {
+            inContent = true;
+            contentBuffer.setLength(0);
+        }
+    }
+
+    @Override
+    public void characters(char ch[], int start, int length) {
+        if (inContent) {
+            contentBuffer.append(ch, start, length);
+        }
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) {
+        if (qName.equals(CONTENT_ELEMENT) && inContent) {
+            sampleContent = contentBuffer.toString();
+            inContent = false;
+        } else if (qName.equals(SAMPLE_ELEMENT) && inSample) {
+            addSample();
+            inSample = false;
+        }
+    }
+
+    /**
+     * Returns the index of all complete samples read from the document.
+     *
+     * @return service sample index
+     */
+    public SampleIndex getSampleIndex() {
+        return new SampleIndex(serviceName, samples);
+    }
+
+    private void addSample() {
+        if (ValidationUtils.isNullOrEmpty(sampleId)) {
+            return;
+        }
+
+        // later definitions of an id replace earlier ones; incomplete samples
+        // are dropped so lookups for them quietly return null.
+        if (ValidationUtils.areNullOrEmpty(sampleTitle, sampleDescription,
+                sampleContent)) {
+            samples.remove(sampleId);
+        } else {
+            samples.put(sampleId, new RetrievedCodeSample(sampleId,
+                    serviceName, sampleTitle, sampleDescription,
+                    sampleContent));
+        }
+    }
+}
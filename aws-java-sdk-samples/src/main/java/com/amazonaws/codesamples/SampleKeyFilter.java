@@ -0,0 +1,187 @@
+/*
+ * Copyright 2013-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.codesamples;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Bloom filter of the <code>service.id</code> keys of the samples in a sample
+ * directory, written by the sample extractor. A filter answers whether a
+ * sample may exist without opening any sample file; it never rejects a sample
+ * that exists, but may accept about one in a hundred that do not.
+ *
+ * A filter only knows about the services it covers, since samples of other
+ * services may come from another sample directory on the classpath.
+ *
+ * Layout (all integers are big-endian, ints 32-bit and words 64-bit):
+ *
+ * <pre>
+ * header:   MAGIC, VERSION, hash count, service count
+ * services: length-prefixed UTF-8 name of each covered service, sorted
+ * bits:     word count, then the filter words
+ * </pre>
+ *
+ * The format and hashing mirror SampleKeyFilterWriter in the
+ * aws-java-sdk-sample-extractor module.
+ */
+public class SampleKeyFilter {
+
+    static final String FILTER_FILE = "sample-keys.bloom";
+    static final int MAGIC = 0x4157534B;
+    static final int VERSION = 1;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final Set<String> services;
+    private final int hashCount;
+    private final long[] bits;
+    private final int bitCount;
+
+    /**
+     * Ctor.
+     *
+     * @param services
+     *            names of the services the filter covers
+     * @param hashCount
+     *            number of bits set per key
+     * @param bits
+     *            filter words
+     */
+    SampleKeyFilter(final Set<String> services, final int hashCount,
+            final long[] bits) {
+        this.services = Collections.unmodifiableSet(new HashSet<String>(
+                services));
+        this.hashCount = hashCount;
+        this.bits = bits;
+        this.bitCount = bits.length * 64;
+    }
+
+    /**
+     * Loads a filter.
+     *
+     * @param filterUrl
+     *            location of the filter file
+     * @return loaded filter
+     * @throws IOException
+     *             if the filter cannot be read or is not a sample key filter
+     */
+    public static SampleKeyFilter load(final URL filterUrl) throws IOException {
+        InputStream in = filterUrl.openStream();
+        try {
+            return read(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Reads a filter from a stream.
+     *
+     * @param in
+     *            stream positioned at the start of a filter
+     * @return filter read
+     * @throws IOException
+     *             if the filter cannot be read or is not a sample key filter
+     */
+    static SampleKeyFilter read(final InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a sample key filter");
+        }
+        int version = data.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported sample key filter version "
+                    + version);
+        }
+        int hashCount = data.readInt();
+
+        int serviceCount = data.readInt();
+        Set<String> services = new HashSet<String>();
+        for (int i = 0; i < serviceCount; i++) {
+            byte[] name = new byte[data.readInt()];
+            data.readFully(name);
+            services.add(new String(name, "UTF-8"));
+        }
+
+        long[] bits = new long[data.readInt()];
+        if (bits.length == 0) {
+            throw new IOException("Sample key filter has no bits");
+        }
+        for (int i = 0; i < bits.length; i++) {
+            bits[i] = data.readLong();
+        }
+        return new SampleKeyFilter(services, hashCount, bits);
+    }
+
+    /**
+     * Returns whether this filter covers a service, that is whether its
+     * answers about the service's samples can be trusted.
+     *
+     * @param serviceName
+     *            name of service
+     * @return true if the filter covers the service
+     */
+    public boolean coversService(final String serviceName) {
+        return services.contains(serviceName);
+    }
+
+    /**
+     * Returns whether a sample may exist. Only meaningful for services the
+     * filter covers.
+     *
+     * @param serviceName
+     *            service sample belongs to
+     * @param sampleId
+     *            unique id of sample
+     * @return false if the sample certainly does not exist
+     */
+    public boolean mightContain(final String serviceName, final String sampleId) {
+        long hash = FNV_OFFSET_BASIS;
+        hash = hash(hash, serviceName);
+        hash = hash(hash, ".");
+        hash = hash(hash, sampleId);
+
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % bitCount;
+            if ((bits[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Continues a 64-bit FNV-1a hash over the chars of a string, hashing each
+     * char as its low then its high byte.
+     */
+    private static long hash(final long seed, final String text) {
+        long hash = seed;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            hash = (hash ^ (c & 0xff)) * FNV_PRIME;
+            hash = (hash ^ (c >>> 8)) * FNV_PRIME;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2013-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.codesamples;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Least-recently-used cache of rendered HTML sample fragments, keyed by
+ * service and sample id and bounded by the total length of the cached
+ * fragments. Samples referenced from many places in the Javadocs are then
+ * read and rendered once. Hits and misses are counted so that the cache can
+ * be sized from the report printed at the end of a Javadoc run.
+ */
+class SampleRenderCache {
+
+    private final long maxChars;
+    private final LinkedHashMap<String, String> fragments;
+    private long currentChars;
+    private long hits;
+    private long misses;
+
+    /**
+     * Ctor.
+     *
+     * @param maxChars
+     *            maximum total length of all cached fragments
+     */
+    SampleRenderCache(final long maxChars) {
+        this.maxChars = maxChars;
+        this.fragments = new LinkedHashMap<String, String>(16, 0.75f, true);
+    }
+
+    /**
+     * Returns the cached fragment of a sample, marking it as recently used,
+     * and counts the lookup as a hit or a miss.
+     *
+     * @param serviceName
+     *            name of service
+     * @param sampleId
+     *            sample id
+     * @return cached fragment, or null if not cached
+     */
+    synchronized String get(final String serviceName, final String sampleId) {
+        String fragment = fragments.get(key(serviceName, sampleId));
+        if (fragment != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return fragment;
+    }
+
+    /**
+     * Caches the fragment of a sample, evicting the least recently used
+     * fragments until the cache fits within its size budget. Fragments
+     * longer than the entire budget are not retained.
+     *
+     * @param serviceName
+     *            name of service
+     * @param sampleId
+     *            sample id
+     * @param fragment
+     *            rendered HTML fragment
+     */
+    synchronized void put(final String serviceName, final String sampleId,
+            final String fragment) {
+        if (fragment.length() > maxChars) {
+            return;
+        }
+
+        String key = key(serviceName, sampleId);
+        String previous = fragments.put(key, fragment);
+        currentChars += fragment.length();
+        if (previous != null) {
+            currentChars -= previous.length();
+        }
+
+        Iterator<Map.Entry<String, String>> eldest = fragments.entrySet()
+                .iterator();
+        while (currentChars > maxChars) {
+            Map.Entry<String, String> entry = eldest.next();
+            if (entry.getKey().equals(key)) {
+                break;
+            }
+            currentChars -= entry.getValue().length();
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Returns the number of cached fragments.
+     *
+     * @return number of cached fragments
+     */
+    synchronized int size() {
+        return fragments.size();
+    }
+
+    /**
+     * Returns the total length of all cached fragments.
+     *
+     * @return cached length in chars
+     */
+    synchronized long getCurrentChars() {
+        return currentChars;
+    }
+
+    /**
+     * Returns the number of lookups that found a cached fragment.
+     *
+     * @return hit count
+     */
+    synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of lookups that did not find a cached fragment.
+     *
+     * @return miss count
+     */
+    synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Describes the statistics of several caches, summed, for the end of run
+     * report.
+     *
+     * @param caches
+     *            caches to describe
+     * @return one line summary of hits, misses and cache size
+     */
+    static String getStatistics(final Collection<SampleRenderCache> caches) {
+        long hits = 0;
+        long misses = 0;
+        long fragments = 0;
+        long chars = 0;
+        for (SampleRenderCache cache : caches) {
+            synchronized (cache) {
+                hits += cache.hits;
+                misses += cache.misses;
+                fragments += cache.fragments.size();
+                chars += cache.currentChars;
+            }
+        }
+        return String.format("Sample render cache: %d hits, %d misses,"
+                + " %d fragments (%d chars) cached", hits, misses, fragments,
+                chars);
+    }
+
+    private static String key(final String serviceName, final String sampleId) {
+        return serviceName + "." + sampleId;
+    }
+}
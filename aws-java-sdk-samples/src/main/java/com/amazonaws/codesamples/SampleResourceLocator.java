@@ -0,0 +1,191 @@
+/*
+ * Copyright 2013-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.codesamples;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Resolves the sample files of services, such as their XML files and binary
+ * indexes, to URLs.
+ *
+ * By default sample files are looked up on the classpath, and every
+ * resolution is cached, including the absence of a file, so each file is
+ * searched for at most once. Most services have no samples, so remembering
+ * absent files matters as much as remembering found ones. Alternatively the
+ * locator can be given a list of directories and jars, which are scanned
+ * once when it is created; the classpath is then never searched. As on the
+ * classpath, a file in an earlier root hides the same file in later roots.
+ */
+public class SampleResourceLocator {
+
+    /**
+     * Marks a file that was searched for and not found.
+     */
+    private static final Resolution ABSENT = new Resolution(null);
+
+    private final String sampleDir;
+    private final Map<String, List<URL>> scannedResources;
+    private final ConcurrentMap<String, Resolution> resolutions;
+
+    /**
+     * Ctor for a locator that searches the classpath.
+     *
+     * @param sampleDir
+     *            classpath directory containing sample files
+     */
+    public SampleResourceLocator(final String sampleDir) {
+        this.sampleDir = sampleDir;
+        this.scannedResources = null;
+        this.resolutions = new ConcurrentHashMap<String, Resolution>();
+    }
+
+    /**
+     * Ctor for a locator that scans the given roots once instead of
+     * searching the classpath.
+     *
+     * @param sampleDir
+     *            directory containing sample files, relative to each root
+     * @param roots
+     *            directories and jars to scan, in order of precedence
+     * @throws IOException
+     *             if a jar cannot be read
+     */
+    public SampleResourceLocator(final String sampleDir, final List<File> roots)
+            throws IOException {
+        this.sampleDir = sampleDir;
+        this.scannedResources = new HashMap<String, List<URL>>();
+        this.resolutions = null;
+        for (File root : roots) {
+            if (root.isDirectory()) {
+                scanDirectory(root);
+            } else if (root.isFile()) {
+                scanJar(root);
+            }
+        }
+    }
+
+    /**
+     * Returns the location of a sample file of a service.
+     *
+     * @param serviceName
+     *            service the file belongs to
+     * @param extension
+     *            file extension, without the leading dot
+     * @return file location, or null if there is no such file
+     */
+    public URL getResource(final String serviceName, final String extension) {
+        String fileName = serviceName + "." + extension;
+        if (scannedResources != null) {
+            List<URL> urls = scannedResources.get(fileName);
+            return urls == null ? null : urls.get(0);
+        }
+
+        Resolution resolution = resolutions.get(fileName);
+        if (resolution == null) {
+            URL url = getClass().getResource(
+                    String.format("/%s/%s", sampleDir, fileName));
+            resolution = url == null ? ABSENT : new Resolution(url);
+            resolutions.putIfAbsent(fileName, resolution);
+        }
+        return resolution.url;
+    }
+
+    /**
+     * Returns the locations of every copy of a file in the sample
+     * directories, such as a file that each sample directory has its own
+     * copy of. Unlike single files these are not cached.
+     *
+     * @param fileName
+     *            name of file
+     * @return file locations, in order of precedence
+     * @throws IOException
+     *             if the classpath cannot be searched
+     */
+    public List<URL> getResources(final String fileName) throws IOException {
+        if (scannedResources != null) {
+            List<URL> urls = scannedResources.get(fileName);
+            return urls == null ? Collections.<URL> emptyList() : urls;
+        }
+        return Collections.list(getClass().getClassLoader().getResources(
+                sampleDir + "/" + fileName));
+    }
+
+    private void scanDirectory(final File root) throws IOException {
+        File[] files = new File(root, sampleDir).listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (file.isFile()) {
+                addScannedResource(file.getName(), file.toURI().toURL());
+            }
+        }
+    }
+
+    private void scanJar(final File root) throws IOException {
+        String prefix = sampleDir + "/";
+        String jarUrl = "jar:" + root.toURI().toURL() + "!/";
+
+        ZipFile jar = new ZipFile(root);
+        try {
+            Enumeration<? extends ZipEntry> entries = jar.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                String name = entry.getName();
+                if (entry.isDirectory() || !name.startsWith(prefix)
+                        || name.indexOf('/', prefix.length()) >= 0) {
+                    continue;
+                }
+                addScannedResource(name.substring(prefix.length()), new URL(
+                        jarUrl + name));
+            }
+        } finally {
+            jar.close();
+        }
+    }
+
+    private void addScannedResource(final String fileName, final URL url) {
+        List<URL> urls = scannedResources.get(fileName);
+        if (urls == null) {
+            urls = new ArrayList<URL>();
+            scannedResources.put(fileName, urls);
+        }
+        urls.add(url);
+    }
+
+    /**
+     * Cached outcome of a classpath search.
+     */
+    private static final class Resolution {
+
+        private final URL url;
+
+        Resolution(final URL url) {
+            this.url = url;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2013-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.codesamples;
+
+/**
+ * Read-only store of the complete samples for a single service.
+ */
+public interface SampleStore {
+
+    /**
+     * Returns the name of the service this store holds samples for.
+     *
+     * @return service name
+     */
+    String getServiceName();
+
+    /**
+     * Returns the sample with the given id.
+     *
+     * @param sampleId
+     *            unique id of sample
+     * @return sample, or null if the service has no complete sample with
+     *         that id
+     */
+    RetrievedCodeSample getSample(String sampleId);
+
+    /**
+     * Returns an estimate of the heap memory retained by this store, in
+     * bytes. Memory-mapped file content lives outside the heap and is not
+     * included.
+     *
+     * @return estimated retained size in bytes
+     */
+    long getEstimatedSize();
+}
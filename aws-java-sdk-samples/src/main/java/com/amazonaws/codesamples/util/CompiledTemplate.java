@@ -0,0 +1,135 @@
+/*
+ * Copyright 2013-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.codesamples.util;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Template compiled once into alternating literal and slot segments, so that
+ * rendering appends the literals and slot values straight to the output
+ * without building intermediate strings. Slots are written as
+ * <code>${NAME}</code>, where NAME is one of the slot names the template is
+ * compiled with.
+ */
+public final class CompiledTemplate {
+
+    private static final String SLOT_START = "${";
+    private static final String SLOT_END = "}";
+
+    /**
+     * Literal segments; literals[i] precedes the slot slots[i], and the last
+     * literal follows the last slot.
+     */
+    private final String[] literals;
+    private final int[] slots;
+
+    private CompiledTemplate(final String[] literals, final int[] slots) {
+        this.literals = literals;
+        this.slots = slots;
+    }
+
+    /**
+     * Writes the value of a template slot.
+     */
+    public interface SlotWriter {
+
+        /**
+         * Writes the value of a slot to the output.
+         *
+         * @param slot
+         *            index of the slot in the slot names the template was
+         *            compiled with
+         * @param out
+         *            output to write to
+         * @throws IOException
+         *             if the output cannot be written
+         */
+        void writeSlot(int slot, Appendable out) throws IOException;
+    }
+
+    /**
+     * Compiles a template.
+     *
+     * @param template
+     *            template text
+     * @param slotNames
+     *            names of the slots the template may use
+     * @return compiled template
+     * @throws IllegalArgumentException
+     *             if the template uses an unknown or unterminated slot
+     */
+    public static CompiledTemplate compile(final String template,
+            final String... slotNames) {
+        if (template == null) {
+            throw new IllegalArgumentException("Template must be provided");
+        }
+
+        List<String> literals = new ArrayList<String>();
+        List<Integer> slots = new ArrayList<Integer>();
+        int literalStart = 0;
+        int slotStart;
+        while ((slotStart = template.indexOf(SLOT_START, literalStart)) >= 0) {
+            int slotEnd = template.indexOf(SLOT_END, slotStart);
+            if (slotEnd < 0) {
+                throw new IllegalArgumentException(
+                        "Unterminated template slot at " + slotStart);
+            }
+
+            String name = template.substring(
+                    slotStart + SLOT_START.length(), slotEnd);
+            literals.add(template.substring(literalStart, slotStart));
+            slots.add(slotIndex(name, slotNames));
+            literalStart = slotEnd + SLOT_END.length();
+        }
+        literals.add(template.substring(literalStart));
+
+        int[] slotArray = new int[slots.size()];
+        for (int i = 0; i < slotArray.length; i++) {
+            slotArray[i] = slots.get(i);
+        }
+        return new CompiledTemplate(literals.toArray(new String[literals
+                .size()]), slotArray);
+    }
+
+    /**
+     * Renders the template, letting a slot writer write each slot value.
+     *
+     * @param out
+     *            output to render to
+     * @param slotWriter
+     *            writer of slot values
+     * @throws IOException
+     *             if the output cannot be written
+     */
+    public void render(final Appendable out, final SlotWriter slotWriter)
+            throws IOException {
+        for (int i = 0; i < slots.length; i++) {
+            out.append(literals[i]);
+            slotWriter.writeSlot(slots[i], out);
+        }
+        out.append(literals[slots.length]);
+    }
+
+    private static int slotIndex(final String name, final String[] slotNames) {
+        for (int i = 0; i < slotNames.length; i++) {
+            if (slotNames[i].equals(name)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unknown template slot: " + name);
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2013-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.codesamples.util;
+
+import java.io.IOException;
+
+/**
+ * Appendable that HTML escapes everything appended to it on its way to an
+ * underlying output, so that text can be escaped in a single pass while it
+ * is being produced, in chunks of any size.
+ * <p>
+ * Escapable characters are found with a lookup table indexed by char, and
+ * the runs of text between them are appended to the output in bulk, so text
+ * without escapable characters is copied in one call.
+ */
+public final class HtmlEscapingAppendable implements Appendable {
+
+    /**
+     * Replacements of escapable characters, indexed by char; null for chars
+     * that are copied as they are. Every escapable char is ASCII.
+     */
+    private static final String[] REPLACEMENTS = new String[128];
+
+    static {
+        REPLACEMENTS['<'] = "&lt;";
+        REPLACEMENTS['>'] = "&gt;";
+        REPLACEMENTS['&'] = "&amp;";
+        REPLACEMENTS['"'] = "&quot;";
+        REPLACEMENTS['\''] = "&#39;";
+    }
+
+    private final Appendable out;
+
+    /**
+     * Ctor.
+     *
+     * @param out
+     *            output to write escaped text to
+     */
+    public HtmlEscapingAppendable(final Appendable out) {
+        this.out = out;
+    }
+
+    public Appendable append(final CharSequence csq) throws IOException {
+        CharSequence text = csq == null ? "null" : csq;
+        escape(text, 0, text.length(), out);
+        return this;
+    }
+
+    public Appendable append(final CharSequence csq, final int start,
+            final int end) throws IOException {
+        escape(csq == null ? "null" : csq, start, end, out);
+        return this;
+    }
+
+    public Appendable append(final char c) throws IOException {
+        if (c < REPLACEMENTS.length && REPLACEMENTS[c] != null) {
+            out.append(REPLACEMENTS[c]);
+        } else {
+            out.append(c);
+        }
+        return this;
+    }
+
+    /**
+     * Writes the HTML escaped form of a range of text.
+     *
+     * @param text
+     *            text to escape
+     * @param start
+     *            index of the first char to escape
+     * @param end
+     *            index after the last char to escape
+     * @param out
+     *            output to write escaped text to
+     * @throws IOException
+     *             if the output cannot be written
+     */
+    public static void escape(final CharSequence text, final int start,
+            final int end, final Appendable out) throws IOException {
+        int runStart = start;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < REPLACEMENTS.length && REPLACEMENTS[c] != null) {
+                if (runStart < i) {
+                    out.append(text, runStart, i);
+                }
+                out.append(REPLACEMENTS[c]);
+                runStart = i + 1;
+            }
+        }
+        if (runStart < end) {
+            out.append(text, runStart, end);
+        }
+    }
+}
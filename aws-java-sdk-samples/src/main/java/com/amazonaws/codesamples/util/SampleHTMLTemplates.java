@@ -14,29 +14,94 @@
  */
 package com.amazonaws.codesamples.util;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
 import java.util.List;
+import java.util.Properties;
 
+import com.amazonaws.codesamples.BinarySampleIndex;
 import com.amazonaws.codesamples.RetrievedCodeSample;
 
 /**
  * Templates used to insert raw code samples into Javadoc HTML blocks.
+ *
+ * The templates are compiled once and render straight into the output. They
+ * can be restyled with a properties file on the classpath, named by the
+ * {@value #TEMPLATES_PROPERTY} system property and defaulting to
+ * {@value #DEFAULT_TEMPLATES_RESOURCE}, whose "section" and "sample" keys
+ * replace the built-in templates. The section template uses the
+ * <code>${SAMPLES}</code> slot; the sample template uses the
+ * <code>${TITLE}</code>, <code>${DESCRIPTION}</code> and
+ * <code>${CONTENT}</code> slots. A template that cannot be loaded or
+ * compiled is replaced by the built-in one, with a warning. Sample titles,
+ * descriptions and content are HTML escaped as they are rendered.
+ *
+ * RenderedSampleBundleWriter in the aws-java-sdk-sample-extractor module
+ * renders samples the same way at build time, and stamps its bundles with
+ * the sample template in effect there; bundles whose stamp differs from
+ * {@link #getSampleTemplateStamp()} were rendered with another template.
  */
 public class SampleHTMLTemplates {
 
-    private static final String SAMPLE_TAG = "${SAMPLES}";
-    private static final String TITLE_TAG = "${TITLE}";
-    private static final String DESCRIPTION_TAG = "${DESCRIPTION}";
-    private static final String CONTENT_TAG = "${CONTENT}";
+    /**
+     * System property naming the classpath resource to load templates from.
+     */
+    public static final String TEMPLATES_PROPERTY = "com.amazonaws.codesamples.templates";
+
+    /**
+     * Classpath resource templates are loaded from by default, if present.
+     */
+    public static final String DEFAULT_TEMPLATES_RESOURCE = "sample-templates.properties";
+
+    private static final String SAMPLE_SLOT = "SAMPLES";
+    private static final String TITLE_SLOT = "TITLE";
+    private static final String DESCRIPTION_SLOT = "DESCRIPTION";
+    private static final String CONTENT_SLOT = "CONTENT";
+
+    /**
+     * Indexes of the sample template slots, in compilation order.
+     */
+    private static final int TITLE_INDEX = 0;
+    private static final int DESCRIPTION_INDEX = 1;
 
     private static final String SAMPLES_SECTION = "<br/>"
             + "<b>Samples:</b>"
             + "<ul class=\"sampleList\"><li class=\"sampleList\">"
-            + SAMPLE_TAG
+            + "${" + SAMPLE_SLOT + "}"
             + "</li></ul>";
 
-    private static final String SAMPLE = "<h5>" + TITLE_TAG + "</h5>"
-            + "<div class=\"block\">" + DESCRIPTION_TAG + "<br/>"
-            + " <pre class=\"brush: java\">" + CONTENT_TAG + "</pre></div>";
+    private static final String SAMPLE = "<h5>${" + TITLE_SLOT + "}</h5>"
+            + "<div class=\"block\">${" + DESCRIPTION_SLOT + "}<br/>"
+            + " <pre class=\"brush: java\">${" + CONTENT_SLOT + "}</pre></div>";
+
+    private static final CompiledTemplate SECTION_TEMPLATE;
+    private static final CompiledTemplate SAMPLE_TEMPLATE;
+    private static final long SAMPLE_TEMPLATE_STAMP;
+
+    static {
+        Properties templates = loadTemplates(System.getProperty(
+                TEMPLATES_PROPERTY, DEFAULT_TEMPLATES_RESOURCE));
+        SECTION_TEMPLATE = CompiledTemplate.compile(selectTemplate(templates,
+                "section", SAMPLES_SECTION, SAMPLE_SLOT), SAMPLE_SLOT);
+        String sample = selectTemplate(templates, "sample", SAMPLE,
+                TITLE_SLOT, DESCRIPTION_SLOT, CONTENT_SLOT);
+        SAMPLE_TEMPLATE = CompiledTemplate.compile(sample, TITLE_SLOT,
+                DESCRIPTION_SLOT, CONTENT_SLOT);
+        SAMPLE_TEMPLATE_STAMP = stamp(sample);
+    }
+
+    /**
+     * Returns the stamp of the sample template in effect, as computed by
+     * {@link BinarySampleIndex#stamp(InputStream)} from its UTF-8 text.
+     *
+     * @return sample template stamp
+     */
+    public static long getSampleTemplateStamp() {
+        return SAMPLE_TEMPLATE_STAMP;
+    }
+
     /**
      * Parses a given raw code sample into a HTML sample block.
      *
@@ -50,9 +115,72 @@ public class SampleHTMLTemplates {
      */
     public static String getSampleHTML(final String title,
             final String description, final String content) {
-        return SAMPLE.replace(TITLE_TAG, title)
-                .replace(DESCRIPTION_TAG, description)
-                .replace(CONTENT_TAG, content);
+        StringBuilder html = new StringBuilder();
+        try {
+            renderSampleHTML(html, title, description, content);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return html.toString();
+    }
+
+    /**
+     * Renders a given raw code sample as a HTML sample block.
+     *
+     * @param out
+     *            output to render to
+     * @param title
+     *            code sample title
+     * @param description
+     *            code sample description
+     * @param content
+     *            code sample content
+     * @throws IOException
+     *             if the output cannot be written
+     */
+    public static void renderSampleHTML(final Appendable out,
+            final String title, final String description, final String content)
+            throws IOException {
+        SAMPLE_TEMPLATE.render(out, new CompiledTemplate.SlotWriter() {
+            public void writeSlot(final int slot, final Appendable out)
+                    throws IOException {
+                if (slot == TITLE_INDEX) {
+                    escape(title, out);
+                } else if (slot == DESCRIPTION_INDEX) {
+                    escape(description, out);
+                } else {
+                    escape(content, out);
+                }
+            }
+        });
+    }
+
+    /**
+     * Renders a retrieved code sample as a HTML sample block. The content is
+     * escaped while it is written by the sample, so content streamed from a
+     * sample store is never materialized.
+     *
+     * @param out
+     *            output to render to
+     * @param sample
+     *            code sample to render
+     * @throws IOException
+     *             if the output cannot be written
+     */
+    public static void renderSampleHTML(final Appendable out,
+            final RetrievedCodeSample sample) throws IOException {
+        SAMPLE_TEMPLATE.render(out, new CompiledTemplate.SlotWriter() {
+            public void writeSlot(final int slot, final Appendable out)
+                    throws IOException {
+                if (slot == TITLE_INDEX) {
+                    escape(sample.getTitle(), out);
+                } else if (slot == DESCRIPTION_INDEX) {
+                    escape(sample.getDescription(), out);
+                } else {
+                    sample.writeContent(new HtmlEscapingAppendable(out));
+                }
+            }
+        });
     }
 
     /**
@@ -64,15 +192,126 @@ public class SampleHTMLTemplates {
      */
     public static String getSampleSectionHTML(
             final List<RetrievedCodeSample> samples) {
-        StringBuilder samplesHTML = new StringBuilder();
+        StringBuilder html = new StringBuilder();
+        try {
+            renderSampleSectionHTML(html, samples);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return html.toString();
+    }
+
+    /**
+     * Renders samples as HTML sample blocks within an outer samples HTML
+     * block.
+     *
+     * @param out
+     *            output to render to
+     * @param samples
+     *            samples to render
+     * @throws IOException
+     *             if the output cannot be written
+     */
+    public static void renderSampleSectionHTML(final Appendable out,
+            final List<RetrievedCodeSample> samples) throws IOException {
+        renderSampleSectionHTML(out, new CompiledTemplate.SlotWriter() {
+            public void writeSlot(final int slot, final Appendable out)
+                    throws IOException {
+                for (RetrievedCodeSample sample : samples) {
+                    renderSampleHTML(out, sample);
+                }
+            }
+        });
+    }
 
-        for (RetrievedCodeSample sample : samples) {
-            samplesHTML.append(getSampleHTML(sample.getTitle(),
-                    sample.getDescription(),
-                    sample.getContent()));
+    /**
+     * Renders an outer samples HTML block whose sample blocks are written by
+     * the caller.
+     *
+     * @param out
+     *            output to render to
+     * @param samplesWriter
+     *            writer of the sample blocks
+     * @throws IOException
+     *             if the output cannot be written
+     */
+    public static void renderSampleSectionHTML(final Appendable out,
+            final CompiledTemplate.SlotWriter samplesWriter) throws IOException {
+        SECTION_TEMPLATE.render(out, samplesWriter);
+    }
+
+    /**
+     * Loads template overrides from a classpath resource; a missing resource
+     * leaves the built-in templates in place.
+     */
+    private static Properties loadTemplates(final String resourceName) {
+        Properties templates = new Properties();
+        InputStream in = SampleHTMLTemplates.class.getClassLoader()
+                .getResourceAsStream(resourceName);
+        if (in == null) {
+            return templates;
         }
 
-        return SAMPLES_SECTION.replace(SAMPLE_TAG, samplesHTML.toString());
+        try {
+            templates.load(in);
+        } catch (IOException e) {
+            System.err.println("Could not load sample templates from "
+                    + resourceName + ", using the built-in templates.");
+            e.printStackTrace();
+            templates.clear();
+        } finally {
+            try {
+                in.close();
+            } catch (IOException e) {
+                // nothing left to read
+            }
+        }
+        return templates;
     }
 
+    /**
+     * Selects a template override, falling back to the built-in template if
+     * there is no override or it does not compile. A broken override must
+     * not fail class initialization, which would fail every sample tag of
+     * the Javadoc run.
+     *
+     * @param templates
+     *            template overrides
+     * @param key
+     *            key of the template
+     * @param builtIn
+     *            built-in template
+     * @param slots
+     *            names of the slots of the template, in order
+     * @return text of a template that compiles with the given slots
+     */
+    static String selectTemplate(final Properties templates,
+            final String key, final String builtIn, final String... slots) {
+        String template = templates.getProperty(key);
+        if (template != null) {
+            try {
+                CompiledTemplate.compile(template, slots);
+                return template;
+            } catch (IllegalArgumentException e) {
+                System.err.println("Could not compile the " + key
+                        + " sample template, using the built-in template: "
+                        + e.getMessage());
+            }
+        }
+        return builtIn;
+    }
+
+    private static long stamp(final String template) {
+        try {
+            return BinarySampleIndex.stamp(new ByteArrayInputStream(template
+                    .getBytes(Charset.forName("UTF-8"))));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void escape(final String text, final Appendable out)
+            throws IOException {
+        HtmlEscapingAppendable.escape(text, 0, text.length(), out);
+    }
 }
@@ -0,0 +1,194 @@
+package com.amazonaws.codesamples;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Collections;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BinarySampleIndexTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private static final String SERVICE_NAME = "BarService";
+    private static final String INDEX_RESOURCE = "/testsamples/BarService.idx";
+
+    @Test
+    public void testReadSampleFromMappedIndex() throws Exception {
+        URL url = getClass().getResource(INDEX_RESOURCE);
+        BinarySampleIndex index = BinarySampleIndex.load(SERVICE_NAME, url);
+        assertEquals(3, index.size());
+        assertBarSample(index.getSample("BarSample"));
+        assertEquals("int x = 1;\nint y = 2;",
+                index.getSample("AnotherSample").getContent());
+        assertEquals("Unicode é Sample",
+                index.getSample("ÜnicodeSample").getTitle());
+        assertNull(index.getSample("BogusSample"));
+        assertNull(index.getSample("A"));
+        assertNull(index.getSample("ÿ"));
+    }
+
+    @Test
+    public void testReadSampleFromHeapIndex() throws Exception {
+        byte[] bytes = readIndex();
+        BinarySampleIndex index = new BinarySampleIndex(SERVICE_NAME,
+                ByteBuffer.wrap(bytes));
+        assertBarSample(index.getSample("BarSample"));
+        assertEquals(bytes.length, index.getEstimatedSize());
+    }
+
+    @Test
+    public void testMappedIndexOnlyCountsHeapOverhead() throws Exception {
+        URL url = getClass().getResource(INDEX_RESOURCE);
+        BinarySampleIndex index = BinarySampleIndex.load(SERVICE_NAME, url);
+        assertEquals(BinarySampleIndex.MAPPED_INDEX_OVERHEAD,
+                index.getEstimatedSize());
+    }
+
+    @Test
+    public void testReaderKeepsMappedIndexLargerThanCache() throws Exception {
+        byte[] xml = Files.readAllBytes(new File(getClass().getResource(
+                "/testsamples/BarService.xml").toURI()).toPath());
+        File sampleDir = tempFolder.newFolder("samples");
+        Files.write(new File(sampleDir, SERVICE_NAME + ".xml").toPath(), xml);
+        Files.write(new File(sampleDir, SERVICE_NAME + ".idx").toPath(),
+                readIndex());
+        SampleCodeReader reader = new SampleCodeReader("samples",
+                readIndex().length - 1, Collections.singletonList(tempFolder
+                        .getRoot()));
+
+        assertBarSample(reader.readSample(SERVICE_NAME, "BarSample"));
+        // a cached index is read even once its XML file is gone
+        assertTrue(new File(sampleDir, SERVICE_NAME + ".xml").delete());
+        assertBarSample(reader.readSample(SERVICE_NAME, "BarSample"));
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsTruncatedIndex() throws Exception {
+        byte[] bytes = readIndex();
+        new BinarySampleIndex(SERVICE_NAME, ByteBuffer.wrap(bytes, 0,
+                bytes.length - 3).slice());
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsEntryOffsetOutsideIndex() throws Exception {
+        ByteBuffer buffer = ByteBuffer.wrap(readIndex());
+        buffer.putInt(BinarySampleIndex.HEADER_SIZE, Integer.MAX_VALUE);
+        new BinarySampleIndex(SERVICE_NAME, buffer);
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsEntryTableOutsideIndex() throws Exception {
+        ByteBuffer buffer = ByteBuffer.wrap(readIndex());
+        buffer.putInt(12, Integer.MAX_VALUE);
+        new BinarySampleIndex(SERVICE_NAME, buffer);
+    }
+
+    @Test
+    public void testReaderPrefersBinaryIndex() throws Exception {
+        SampleCodeReader reader = new SampleCodeReader("testsamples");
+        assertBarSample(reader.readSample(SERVICE_NAME, "BarSample"));
+        assertNull(reader.readSample(SERVICE_NAME, "BogusSample"));
+    }
+
+    @Test
+    public void testIndexIsStampedWithItsXmlFile() throws Exception {
+        URL url = getClass().getResource(INDEX_RESOURCE);
+        BinarySampleIndex index = BinarySampleIndex.load(SERVICE_NAME, url);
+        assertEquals(BinarySampleIndex.stamp(getClass()
+                .getResourceAsStream("/testsamples/BarService.xml")),
+                index.getSourceStamp());
+        assertEquals(0L, index.getRenderStamp());
+    }
+
+    @Test
+    public void testReaderUsesIndexMatchingXmlFile() throws Exception {
+        // the XML file differs from the index, but the index is stamped
+        // with it, so the index is read
+        byte[] xml = "<codeSamples/>".getBytes("UTF-8");
+        ByteBuffer index = ByteBuffer.wrap(readIndex());
+        index.putLong(16, BinarySampleIndex.stamp(
+                new ByteArrayInputStream(xml)));
+
+        SampleCodeReader reader = createReader(xml, index.array());
+        assertBarSample(reader.readSample(SERVICE_NAME, "BarSample"));
+    }
+
+    @Test
+    public void testReaderIgnoresStaleIndex() throws Exception {
+        byte[] xml = ("<codeSamples><sample title=\"Fresh Sample\""
+                + " description=\"A fresh sample!\" id=\"FreshSample\">"
+                + "<content>fresh();</content></sample></codeSamples>")
+                .getBytes("UTF-8");
+
+        SampleCodeReader reader = createReader(xml, readIndex());
+        assertNull(reader.readSample(SERVICE_NAME, "BarSample"));
+        assertEquals("Fresh Sample", reader.readSample(SERVICE_NAME,
+                "FreshSample").getTitle());
+    }
+
+    @Test
+    public void testReaderIgnoresIndexWithoutXmlFile() throws Exception {
+        SampleCodeReader reader = createReader(null, readIndex());
+        assertNull(reader.readSample(SERVICE_NAME, "BarSample"));
+    }
+
+    @Test
+    public void testWritesContentFromIndex() throws Exception {
+        URL url = getClass().getResource(INDEX_RESOURCE);
+        BinarySampleIndex index = BinarySampleIndex.load(SERVICE_NAME, url);
+        StringBuilder out = new StringBuilder();
+        index.getSample("AnotherSample").writeContent(out);
+        assertEquals("int x = 1;\nint y = 2;", out.toString());
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsNonIndexContent() throws Exception {
+        new BinarySampleIndex(SERVICE_NAME, ByteBuffer.wrap(new byte[32]));
+    }
+
+    private SampleCodeReader createReader(final byte[] xml,
+            final byte[] index) throws Exception {
+        File sampleDir = tempFolder.newFolder("samples");
+        if (xml != null) {
+            Files.write(new File(sampleDir, SERVICE_NAME + ".xml").toPath(),
+                    xml);
+        }
+        Files.write(new File(sampleDir, SERVICE_NAME + ".idx").toPath(), index);
+        return new SampleCodeReader("samples",
+                SampleCodeReader.DEFAULT_INDEX_CACHE_SIZE,
+                Collections.singletonList(tempFolder.getRoot()));
+    }
+
+    private byte[] readIndex() throws Exception {
+        InputStream in = getClass().getResourceAsStream(INDEX_RESOURCE);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != -1) {
+            bytes.write(b);
+        }
+        in.close();
+        return bytes.toByteArray();
+    }
+
+    private static void assertBarSample(final RetrievedCodeSample sample) {
+        assertEquals("BarSample", sample.getId());
+        assertEquals(SERVICE_NAME, sample.getService());
+        assertEquals("Bar Sample", sample.getTitle());
+        assertEquals("A bar sample!", sample.getDescription());
+        assertEquals("String bar = \"bar!\";", sample.getContent());
+    }
+}
@@ -0,0 +1,112 @@
+package com.amazonaws.codesamples;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Collections;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.amazonaws.codesamples.util.SampleHTMLTemplates;
+
+public class RenderedSampleBundleTest {
+
+    private static final String SERVICE_NAME = "FooService";
+    private static final byte[] XML = ("<codeSamples><sample title=\"Foo\""
+            + " description=\"A foo sample\" id=\"FooSample\">"
+            + "<content>foo();</content></sample></codeSamples>").getBytes();
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void testReaderUsesMatchingBundle() throws Exception {
+        SampleCodeReader reader = createReader(XML, stamp(XML),
+                SampleHTMLTemplates.getSampleTemplateStamp());
+        assertEquals("<p>foo</p>", reader.readRenderedSample(SERVICE_NAME,
+                "FooSample"));
+        assertNull(reader.readRenderedSample(SERVICE_NAME, "BogusSample"));
+    }
+
+    @Test
+    public void testReaderIgnoresBundleOfOtherXmlFile() throws Exception {
+        SampleCodeReader reader = createReader(XML, stamp(XML) + 1,
+                SampleHTMLTemplates.getSampleTemplateStamp());
+        assertNull(reader.readRenderedSample(SERVICE_NAME, "FooSample"));
+        assertNull(reader.readRenderedSample(SERVICE_NAME, "FooSample"));
+        assertEquals("Foo", reader.readSample(SERVICE_NAME, "FooSample")
+                .getTitle());
+    }
+
+    @Test
+    public void testReaderIgnoresBundleOfOtherTemplate() throws Exception {
+        SampleCodeReader reader = createReader(XML, stamp(XML),
+                SampleHTMLTemplates.getSampleTemplateStamp() + 1);
+        assertNull(reader.readRenderedSample(SERVICE_NAME, "FooSample"));
+    }
+
+    @Test
+    public void testReaderIgnoresBundleWithoutXmlFile() throws Exception {
+        SampleCodeReader reader = createReader(null, stamp(XML),
+                SampleHTMLTemplates.getSampleTemplateStamp());
+        assertNull(reader.readRenderedSample(SERVICE_NAME, "FooSample"));
+    }
+
+    @Test
+    public void testReaderReturnsNullWithoutBundle() throws Exception {
+        SampleCodeReader reader = new SampleCodeReader("testsamples");
+        assertNull(reader.readRenderedSample("BarService", "BarSample"));
+        assertNull(reader.readRenderedSample("BarService", "BarSample"));
+    }
+
+    private SampleCodeReader createReader(final byte[] xml,
+            final long sourceStamp, final long renderStamp) throws Exception {
+        File sampleDir = tempFolder.newFolder("samples");
+        if (xml != null) {
+            Files.write(new File(sampleDir, SERVICE_NAME + ".xml").toPath(),
+                    xml);
+        }
+        Files.write(new File(sampleDir, SERVICE_NAME + "."
+                + BinarySampleIndex.RENDERED_EXTENSION).toPath(), writeBundle(
+                "FooSample", "<p>foo</p>", sourceStamp, renderStamp));
+        return new SampleCodeReader("samples",
+                SampleCodeReader.DEFAULT_INDEX_CACHE_SIZE,
+                Collections.singletonList(tempFolder.getRoot()));
+    }
+
+    /**
+     * Writes a bundle of a single sample, as RenderedSampleBundleWriter in
+     * the aws-java-sdk-sample-extractor module would.
+     */
+    private static byte[] writeBundle(final String id, final String html,
+            final long sourceStamp, final long renderStamp) throws Exception {
+        byte[] idBytes = id.getBytes("UTF-8");
+        byte[] htmlBytes = html.getBytes("UTF-8");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(bytes);
+        data.writeInt(BinarySampleIndex.MAGIC);
+        data.writeInt(BinarySampleIndex.VERSION);
+        data.writeInt(1);
+        data.writeInt(1);
+        data.writeLong(sourceStamp);
+        data.writeLong(renderStamp);
+        data.writeInt(BinarySampleIndex.HEADER_SIZE + 4);
+        data.writeInt(idBytes.length);
+        data.write(idBytes);
+        data.writeInt(htmlBytes.length);
+        data.write(htmlBytes);
+        data.flush();
+        return bytes.toByteArray();
+    }
+
+    private static long stamp(final byte[] content) throws Exception {
+        return BinarySampleIndex.stamp(new ByteArrayInputStream(content));
+    }
+}
@@ -0,0 +1,99 @@
+package com.amazonaws.codesamples;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.xml.parsers.SAXParserFactory;
+
+import org.junit.Test;
+
+public class SampleCodeReaderConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final int LOOKUPS_PER_THREAD = 2000;
+
+    @Test
+    public void testConcurrentLookupsWithIndexCache() throws Exception {
+        assertConcurrentLookups(new SampleCodeReader("testsamples"));
+    }
+
+    @Test
+    public void testConcurrentLookupsWithEvictingIndexCache() throws Exception {
+        // room for the FooService index only, so that loads and evictions
+        // race lookups
+        SampleIndexXMLParser parser = new SampleIndexXMLParser("FooService");
+        SAXParserFactory.newInstance().newSAXParser().parse(
+                getClass().getResourceAsStream("/testsamples/FooService.xml"),
+                parser);
+        assertConcurrentLookups(new SampleCodeReader("testsamples", parser
+                .getSampleIndex().getEstimatedSize()));
+    }
+
+    @Test
+    public void testConcurrentLookupsWithoutIndexCache() throws Exception {
+        assertConcurrentLookups(new SampleCodeReader("testsamples", 0));
+    }
+
+    private static void assertConcurrentLookups(final SampleCodeReader reader)
+            throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+            for (int t = 0; t < THREADS; t++) {
+                final int offset = t;
+                results.add(executor.submit(new Callable<Integer>() {
+                    public Integer call() throws Exception {
+                        start.await();
+                        for (int i = 0; i < LOOKUPS_PER_THREAD; i++) {
+                            lookup(reader, (i + offset) % 4);
+                        }
+                        return LOOKUPS_PER_THREAD;
+                    }
+                }));
+            }
+
+            start.countDown();
+            int lookups = 0;
+            for (Future<Integer> result : results) {
+                lookups += result.get();
+            }
+            assertEquals(THREADS * LOOKUPS_PER_THREAD, lookups);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void lookup(final SampleCodeReader reader, final int kind)
+            throws Exception {
+        RetrievedCodeSample sample;
+        switch (kind) {
+        case 0:
+            sample = reader.readSample("FooService", "FooSample");
+            assertEquals("FooSample", sample.getId());
+            assertEquals("FooService", sample.getService());
+            assertEquals("String foo = \"foo!\";", sample.getContent());
+            break;
+        case 1:
+            sample = reader.readSample("BarService", "BarSample");
+            assertEquals("BarSample", sample.getId());
+            assertEquals("BarService", sample.getService());
+            assertEquals("String bar = \"bar!\";", sample.getContent());
+            break;
+        case 2:
+            assertNull(reader.readSample("FooService", "EmptyContentSample"));
+            break;
+        default:
+            assertNull(reader.readSample("BogusService", "FooSample"));
+            break;
+        }
+    }
+}
@@ -2,9 +2,17 @@ package com.amazonaws.codesamples;
 
 import static org.junit.Assert.assertEquals;
 
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
 import org.junit.Assert;
+import org.junit.rules.TemporaryFolder;
 
 import com.amazonaws.codesamples.exception.SampleRetrievalException;
 
@@ -13,6 +21,9 @@ public class SampleCodeReaderTest {
     private static final String SAMPLE_ID = "FooSample";
     private static final String SERVICE_NAME = "FooService";
 
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
     private SampleCodeReader reader;
 
     @Before
@@ -31,6 +42,118 @@ public class SampleCodeReaderTest {
         assertEquals(sample.getContent(), "String foo = \"foo!\";");
     }
 
+    @Test
+    public void testRetrieveValidSampleWithoutIndex() throws Exception {
+        SampleCodeReader unindexedReader = new SampleCodeReader("testsamples", 0);
+        RetrievedCodeSample sample = unindexedReader.readSample(SERVICE_NAME,
+                SAMPLE_ID);
+        assertEquals(sample.getId(), SAMPLE_ID);
+        assertEquals(sample.getContent(), "String foo = \"foo!\";");
+        Assert.assertNull(unindexedReader.readSample(SERVICE_NAME,
+                "EmptyContentSample"));
+    }
+
+    @Test
+    public void testDuplicateIdsResolveToLastSample() throws Exception {
+        for (SampleCodeReader duplicateReader : new SampleCodeReader[] {
+                reader, new SampleCodeReader("testsamples", 0) }) {
+            RetrievedCodeSample sample = duplicateReader.readSample(
+                    "DuplicateService", "DuplicateSample");
+            assertEquals(sample.getTitle(), "Last Example");
+            assertEquals(sample.getDescription(), "The last example");
+            assertEquals(sample.getContent(), "String last = \"last!\";");
+            Assert.assertNull(duplicateReader.readSample("DuplicateService",
+                    "IncompleteDuplicateSample"));
+
+            List<RetrievedCodeSample> samples = duplicateReader.readSamples(
+                    "DuplicateService", Arrays.asList("DuplicateSample"));
+            assertEquals(samples.get(0).getTitle(), "Last Example");
+        }
+    }
+
+    @Test(expected = SampleRetrievalException.class)
+    public void testUnindexedRetrievalReportsMalformedFile() throws Exception {
+        new SampleCodeReader("testsamples", 0).readSample("TruncatedService",
+                "BrokenSample");
+    }
+
+    @Test
+    public void testServiceLargerThanCacheIsStreamed() throws Exception {
+        File sampleDir = tempFolder.newFolder("samples");
+        File sampleFile = new File(sampleDir, SERVICE_NAME + ".xml");
+        writeSample(sampleFile, "First");
+        SampleCodeReader smallReader = new SampleCodeReader("samples", 1,
+                Collections.singletonList(tempFolder.getRoot()));
+        assertEquals("First", smallReader.readSample(SERVICE_NAME, SAMPLE_ID)
+                .getTitle());
+
+        // nothing was cached, so every lookup reads the current file
+        writeSample(sampleFile, "Second");
+        assertEquals("Second", smallReader.readSample(SERVICE_NAME,
+                SAMPLE_ID).getTitle());
+        assertEquals("Second", smallReader.readSamples(SERVICE_NAME,
+                Arrays.asList(SAMPLE_ID)).get(0).getTitle());
+    }
+
+    @Test
+    public void testRetrieveSamplesInRequestedOrder() throws Exception {
+        assertBulkRetrieval(reader);
+    }
+
+    @Test
+    public void testRetrieveSamplesWithoutIndex() throws Exception {
+        assertBulkRetrieval(new SampleCodeReader("testsamples", 0));
+    }
+
+    @Test
+    public void testRetrieveSamplesFromBinaryIndex() throws Exception {
+        List<RetrievedCodeSample> samples = reader.readSamples("BarService",
+                Arrays.asList("AnotherSample", "BogusSample", "BarSample"));
+        assertEquals(samples.size(), 3);
+        assertEquals(samples.get(0).getContent(), "int x = 1;\nint y = 2;");
+        Assert.assertNull(samples.get(1));
+        assertEquals(samples.get(2).getContent(), "String bar = \"bar!\";");
+    }
+
+    @Test
+    public void testRetrieveSamplesFromMissingService() throws Exception {
+        List<RetrievedCodeSample> samples = reader.readSamples("BogusService",
+                Arrays.asList(SAMPLE_ID, "OtherSample"));
+        assertEquals(samples.size(), 2);
+        Assert.assertNull(samples.get(0));
+        Assert.assertNull(samples.get(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRetrieveSamplesEmptySample() throws Exception {
+        reader.readSamples(SERVICE_NAME, Arrays.asList(SAMPLE_ID, ""));
+    }
+
+    private static void assertBulkRetrieval(final SampleCodeReader reader)
+            throws Exception {
+        List<RetrievedCodeSample> samples = reader.readSamples(SERVICE_NAME,
+                Arrays.asList("EmptyContentSample", SAMPLE_ID, "BogusSample",
+                        SAMPLE_ID));
+        assertEquals(samples.size(), 4);
+        Assert.assertNull(samples.get(0));
+        assertEquals(samples.get(1).getId(), SAMPLE_ID);
+        assertEquals(samples.get(1).getContent(), "String foo = \"foo!\";");
+        Assert.assertNull(samples.get(2));
+        assertEquals(samples.get(3).getId(), SAMPLE_ID);
+    }
+
+    @Test
+    public void testRepeatedRetrievalUsesIndex() throws Exception {
+        RetrievedCodeSample first = reader.readSample(SERVICE_NAME, SAMPLE_ID);
+        RetrievedCodeSample second = reader.readSample(SERVICE_NAME, SAMPLE_ID);
+        Assert.assertSame(first, second);
+    }
+
+    @Test
+    public void testRetrieveSampleFromMissingService() throws Exception {
+        Assert.assertNull(reader.readSample("BogusService", SAMPLE_ID));
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void testRetrieveSampleNullService() throws SampleRetrievalException {
         reader.readSample(null, SAMPLE_ID);
@@ -92,4 +215,12 @@ public class SampleCodeReaderTest {
             throws SampleRetrievalException {
         Assert.assertNull(reader.readSample(SERVICE_NAME, "EmptyContentSample"));
     }
+
+    private static void writeSample(final File sampleFile, final String title)
+            throws Exception {
+        Files.write(sampleFile.toPath(), ("<codeSamples><sample title=\""
+                + title + "\" description=\"A foo sample!\" id=\""
+                + SAMPLE_ID + "\"><content>foo();</content></sample>"
+                + "</codeSamples>").getBytes("UTF-8"));
+    }
 }
@@ -0,0 +1,65 @@
+package com.amazonaws.codesamples;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class SampleIndexCacheTest {
+
+    @Test
+    public void testEvictsLeastRecentlyUsedIndex() {
+        SampleIndex foo = createIndex("Foo");
+        SampleIndex bar = createIndex("Bar");
+        SampleIndex baz = createIndex("Baz");
+
+        SampleIndexCache cache = new SampleIndexCache(
+                2 * foo.getEstimatedSize());
+        cache.put(foo);
+        cache.put(bar);
+        assertNotNull(cache.get("Foo"));
+
+        cache.put(baz);
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get("Foo"));
+        assertNull(cache.get("Bar"));
+        assertNotNull(cache.get("Baz"));
+        assertTrue(cache.getCurrentSize() <= 2 * foo.getEstimatedSize());
+    }
+
+    @Test
+    public void testIndexLargerThanBudgetIsNotRetained() {
+        SampleIndex foo = createIndex("Foo");
+
+        SampleIndexCache cache = new SampleIndexCache(
+                foo.getEstimatedSize() - 1);
+        assertFalse(cache.put(foo));
+        assertNull(cache.get("Foo"));
+        assertEquals(0, cache.getCurrentSize());
+    }
+
+    @Test
+    public void testReplacingIndexUpdatesSize() {
+        SampleIndex foo = createIndex("Foo");
+
+        SampleIndexCache cache = new SampleIndexCache(
+                10 * foo.getEstimatedSize());
+        assertTrue(cache.put(foo));
+        assertTrue(cache.put(createIndex("Foo")));
+        assertEquals(1, cache.size());
+        assertEquals(foo.getEstimatedSize(), cache.getCurrentSize());
+    }
+
+    private static SampleIndex createIndex(final String serviceName) {
+        Map<String, RetrievedCodeSample> samples = new HashMap<String, RetrievedCodeSample>();
+        samples.put("Sample", new RetrievedCodeSample("Sample", serviceName,
+                "Title", "Description", "Content"));
+        return new SampleIndex(serviceName, samples);
+    }
+}
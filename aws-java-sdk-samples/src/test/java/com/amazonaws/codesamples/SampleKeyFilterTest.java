@@ -0,0 +1,50 @@
+package com.amazonaws.codesamples;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class SampleKeyFilterTest {
+
+    private static final String SERVICE_NAME = "BarService";
+
+    @Test
+    public void testFilterHoldsExtractedKeys() throws Exception {
+        SampleKeyFilter filter = SampleKeyFilter.load(getClass().getResource(
+                "/testsamples/" + SampleKeyFilter.FILTER_FILE));
+        assertTrue(filter.coversService(SERVICE_NAME));
+        assertFalse(filter.coversService("FooService"));
+        assertTrue(filter.mightContain(SERVICE_NAME, "BarSample"));
+        assertTrue(filter.mightContain(SERVICE_NAME, "AnotherSample"));
+        assertTrue(filter.mightContain(SERVICE_NAME, "ÜnicodeSample"));
+
+        int falsePositives = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (filter.mightContain(SERVICE_NAME, "BogusSample" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 50);
+    }
+
+    @Test
+    public void testReaderOnlyTrustsFiltersForCoveredServices()
+            throws Exception {
+        SampleCodeReader reader = new SampleCodeReader("testsamples");
+        assertTrue(reader.mightHaveSample(SERVICE_NAME, "BarSample"));
+        assertFalse(reader.mightHaveSample(SERVICE_NAME, "BogusSample"));
+        assertTrue(reader.mightHaveSample("FooService", "BogusSample"));
+
+        assertEquals("Bar Sample", reader.readSample(SERVICE_NAME,
+                "BarSample").getTitle());
+        assertNull(reader.readSample(SERVICE_NAME, "BogusSample"));
+        assertEquals(Arrays.asList((RetrievedCodeSample) null, null),
+                reader.readSamples(SERVICE_NAME, Arrays.asList("BogusSample",
+                        "OtherBogusSample")));
+    }
+}
@@ -0,0 +1,72 @@
+package com.amazonaws.codesamples;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class SampleRenderCacheTest {
+
+    @Test
+    public void testCountsHitsAndMisses() {
+        SampleRenderCache cache = new SampleRenderCache(100);
+        assertNull(cache.get("Foo", "FooSample"));
+
+        cache.put("Foo", "FooSample", "<h5>Foo</h5>");
+        assertEquals("<h5>Foo</h5>", cache.get("Foo", "FooSample"));
+        assertEquals("<h5>Foo</h5>", cache.get("Foo", "FooSample"));
+        assertNull(cache.get("Foo", "BarSample"));
+
+        assertEquals(2, cache.getHits());
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsedFragment() {
+        SampleRenderCache cache = new SampleRenderCache(20);
+        cache.put("Foo", "One", "0123456789");
+        cache.put("Foo", "Two", "0123456789");
+        cache.get("Foo", "One");
+
+        cache.put("Foo", "Three", "0123456789");
+        assertEquals(2, cache.size());
+        assertEquals("0123456789", cache.get("Foo", "One"));
+        assertNull(cache.get("Foo", "Two"));
+        assertEquals("0123456789", cache.get("Foo", "Three"));
+        assertEquals(20, cache.getCurrentChars());
+    }
+
+    @Test
+    public void testFragmentLargerThanBudgetIsNotRetained() {
+        SampleRenderCache cache = new SampleRenderCache(5);
+        cache.put("Foo", "FooSample", "0123456789");
+        assertNull(cache.get("Foo", "FooSample"));
+        assertEquals(0, cache.getCurrentChars());
+    }
+
+    @Test
+    public void testReplacingFragmentUpdatesSize() {
+        SampleRenderCache cache = new SampleRenderCache(100);
+        cache.put("Foo", "FooSample", "0123456789");
+        cache.put("Foo", "FooSample", "01234");
+        assertEquals(1, cache.size());
+        assertEquals(5, cache.getCurrentChars());
+    }
+
+    @Test
+    public void testStatisticsSumAllCaches() {
+        SampleRenderCache first = new SampleRenderCache(100);
+        first.put("Foo", "FooSample", "0123456789");
+        first.get("Foo", "FooSample");
+        SampleRenderCache second = new SampleRenderCache(100);
+        second.put("Foo", "FooSample", "01234");
+        second.get("Foo", "BarSample");
+        second.get("Foo", "FooSample");
+
+        assertEquals("Sample render cache: 2 hits, 1 misses, 2 fragments"
+                + " (15 chars) cached", SampleRenderCache.getStatistics(
+                Arrays.asList(first, second)));
+    }
+}
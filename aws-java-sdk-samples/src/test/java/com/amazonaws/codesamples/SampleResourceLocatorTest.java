@@ -0,0 +1,94 @@
+package com.amazonaws.codesamples;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SampleResourceLocatorTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void testCachesClasspathResolutions() {
+        SampleResourceLocator locator = new SampleResourceLocator(
+                "testsamples");
+        URL url = locator.getResource("FooService", "xml");
+        assertNotNull(url);
+        assertEquals(url, locator.getResource("FooService", "xml"));
+        assertNull(locator.getResource("BogusService", "xml"));
+        assertNull(locator.getResource("BogusService", "xml"));
+    }
+
+    @Test
+    public void testScansDirectoriesAndJarsInOrder() throws Exception {
+        File dir = tempFolder.newFolder("classes");
+        File samples = new File(dir, "samples");
+        samples.mkdirs();
+        Files.write(new File(samples, "FooService.xml").toPath(),
+                bytes("dir"));
+
+        File jar = tempFolder.newFile("samples.jar");
+        ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jar));
+        try {
+            out.putNextEntry(new ZipEntry("samples/"));
+            out.putNextEntry(new ZipEntry("samples/FooService.xml"));
+            out.write(bytes("jar"));
+            out.putNextEntry(new ZipEntry("samples/BarService.xml"));
+            out.write(bytes("bar"));
+            out.putNextEntry(new ZipEntry("samples/nested/BazService.xml"));
+            out.write(bytes("baz"));
+        } finally {
+            out.close();
+        }
+
+        SampleResourceLocator locator = new SampleResourceLocator("samples",
+                Arrays.asList(dir, jar, new File(dir, "missing")));
+        assertEquals("dir", read(locator.getResource("FooService", "xml")));
+        assertEquals("bar", read(locator.getResource("BarService", "xml")));
+        assertNull(locator.getResource("BazService", "xml"));
+        assertNull(locator.getResource("BarService", "idx"));
+    }
+
+    @Test
+    public void testReaderReadsFromScannedRoots() throws Exception {
+        File dir = new File(getClass().getResource("/testsamples/FooService.xml")
+                .toURI()).getParentFile().getParentFile();
+        SampleCodeReader reader = new SampleCodeReader("testsamples",
+                SampleCodeReader.DEFAULT_INDEX_CACHE_SIZE, Arrays.asList(dir));
+        assertEquals("Foo Sample", reader.readSample("FooService",
+                "FooSample").getTitle());
+        assertEquals("Bar Sample", reader.readSample("BarService",
+                "BarSample").getTitle());
+        assertNull(reader.readSample("BogusService", "FooSample"));
+    }
+
+    private static byte[] bytes(final String content) {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String read(final URL url) throws Exception {
+        InputStream in = url.openStream();
+        try {
+            byte[] buffer = new byte[16];
+            int length = in.read(buffer);
+            return new String(buffer, 0, length, StandardCharsets.UTF_8);
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.amazonaws.codesamples.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.Test;
+
+import com.amazonaws.codesamples.RetrievedCodeSample;
+
+public class CompiledTemplateTest {
+
+    @Test
+    public void testRendersLiteralsAndSlots() throws Exception {
+        CompiledTemplate template = CompiledTemplate.compile(
+                "<h5>${TITLE}</h5>${CONTENT}${TITLE}!", "TITLE", "CONTENT");
+        StringBuilder out = new StringBuilder();
+        template.render(out, new CompiledTemplate.SlotWriter() {
+            public void writeSlot(final int slot, final Appendable out)
+                    throws IOException {
+                out.append(slot == 0 ? "Foo" : "foo();");
+            }
+        });
+        assertEquals("<h5>Foo</h5>foo();Foo!", out.toString());
+    }
+
+    @Test
+    public void testRendersTemplateWithoutSlots() throws Exception {
+        StringBuilder out = new StringBuilder();
+        CompiledTemplate.compile("<br/>").render(out,
+                new CompiledTemplate.SlotWriter() {
+                    public void writeSlot(final int slot, final Appendable out) {
+                        throw new AssertionError("No slot to write");
+                    }
+                });
+        assertEquals("<br/>", out.toString());
+    }
+
+    @Test
+    public void testSlotWriterWritesSlots() throws Exception {
+        CompiledTemplate template = CompiledTemplate.compile("[${A}|${B}]",
+                "A", "B");
+        StringBuilder out = new StringBuilder();
+        template.render(out, new CompiledTemplate.SlotWriter() {
+            public void writeSlot(final int slot, final Appendable out)
+                    throws IOException {
+                out.append("slot").append(String.valueOf(slot));
+            }
+        });
+        assertEquals("[slot0|slot1]", out.toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownSlotIsRejected() {
+        CompiledTemplate.compile("${TITLE}", "CONTENT");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnterminatedSlotIsRejected() {
+        CompiledTemplate.compile("${TITLE", "TITLE");
+    }
+
+    @Test
+    public void testBrokenOverrideFallsBackToBuiltInTemplate() {
+        Properties templates = new Properties();
+        templates.setProperty("broken", "<b>${TITLE</b>");
+        templates.setProperty("unknown", "<b>${NAME}</b>");
+        templates.setProperty("valid", "<i>${TITLE}</i>");
+
+        assertEquals("<b>${TITLE}</b>", SampleHTMLTemplates.selectTemplate(
+                templates, "broken", "<b>${TITLE}</b>", "TITLE"));
+        assertEquals("<b>${TITLE}</b>", SampleHTMLTemplates.selectTemplate(
+                templates, "unknown", "<b>${TITLE}</b>", "TITLE"));
+        assertEquals("<i>${TITLE}</i>", SampleHTMLTemplates.selectTemplate(
+                templates, "valid", "<b>${TITLE}</b>", "TITLE"));
+        assertEquals("<b>${TITLE}</b>", SampleHTMLTemplates.selectTemplate(
+                templates, "missing", "<b>${TITLE}</b>", "TITLE"));
+    }
+
+    @Test
+    public void testSampleSectionMatchesFragments() throws Exception {
+        RetrievedCodeSample foo = new RetrievedCodeSample("FooSample",
+                "FooService", "Foo", "Foo sample", "foo();");
+        RetrievedCodeSample bar = new RetrievedCodeSample("BarSample",
+                "FooService", "Bar", "Bar sample", "bar();");
+
+        String section = SampleHTMLTemplates.getSampleSectionHTML(Arrays
+                .asList(foo, bar));
+        assertEquals("<br/><b>Samples:</b>"
+                + "<ul class=\"sampleList\"><li class=\"sampleList\">"
+                + "<h5>Foo</h5><div class=\"block\">Foo sample<br/>"
+                + " <pre class=\"brush: java\">foo();</pre></div>"
+                + "<h5>Bar</h5><div class=\"block\">Bar sample<br/>"
+                + " <pre class=\"brush: java\">bar();</pre></div>"
+                + "</li></ul>", section);
+
+        final List<String> fragments = Arrays.asList(
+                SampleHTMLTemplates.getSampleHTML("Foo", "Foo sample", "foo();"),
+                SampleHTMLTemplates.getSampleHTML("Bar", "Bar sample", "bar();"));
+        StringBuilder out = new StringBuilder();
+        SampleHTMLTemplates.renderSampleSectionHTML(out,
+                new CompiledTemplate.SlotWriter() {
+                    public void writeSlot(final int slot, final Appendable out)
+                            throws IOException {
+                        for (String fragment : fragments) {
+                            out.append(fragment);
+                        }
+                    }
+                });
+        assertEquals(section, out.toString());
+    }
+
+    @Test
+    public void testSampleContentIsEscaped() throws Exception {
+        RetrievedCodeSample sample = new RetrievedCodeSample("FooSample",
+                "FooService", "Foo<T>", "Foo & bar",
+                "List<String> s = \"a\" + 'b' & c;");
+        String expected = "<h5>Foo&lt;T&gt;</h5>"
+                + "<div class=\"block\">Foo &amp; bar<br/>"
+                + " <pre class=\"brush: java\">List&lt;String&gt; s ="
+                + " &quot;a&quot; + &#39;b&#39; &amp; c;</pre></div>";
+
+        StringBuilder out = new StringBuilder();
+        SampleHTMLTemplates.renderSampleHTML(out, sample);
+        assertEquals(expected, out.toString());
+        assertEquals(expected, SampleHTMLTemplates.getSampleHTML(
+                sample.getTitle(), sample.getDescription(),
+                sample.getContent()));
+    }
+}
@@ -0,0 +1,35 @@
+package com.amazonaws.codesamples.util;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class HtmlEscapingAppendableTest {
+
+    @Test
+    public void testEscapesSpecialCharacters() throws Exception {
+        assertEquals("a &lt;b&gt; &amp; &quot;c&quot; &#39;d&#39;",
+                escape("a <b> & \"c\" 'd'"));
+    }
+
+    @Test
+    public void testCopiesTextWithoutSpecialCharacters() throws Exception {
+        assertEquals("", escape(""));
+        assertEquals("int x = 1; // é ☃", escape("int x = 1; // é ☃"));
+    }
+
+    @Test
+    public void testEscapesRangesAndChars() throws Exception {
+        StringBuilder out = new StringBuilder();
+        HtmlEscapingAppendable escaping = new HtmlEscapingAppendable(out);
+        escaping.append("x<y>z", 1, 4);
+        escaping.append('&').append('é');
+        assertEquals("&lt;y&gt;&amp;é", out.toString());
+    }
+
+    private static String escape(final String text) throws Exception {
+        StringBuilder out = new StringBuilder();
+        HtmlEscapingAppendable.escape(text, 0, text.length(), out);
+        return out.toString();
+    }
+}